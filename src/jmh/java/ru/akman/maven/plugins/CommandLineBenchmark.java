@@ -0,0 +1,101 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building of the tool options with the large argument lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandLineBenchmark {
+
+  /**
+   * Number of the options (arguments of the single option).
+   */
+  @Param({"10", "1000", "10000"})
+  private int size;
+
+  /**
+   * The command line builder with the options.
+   */
+  private CommandLineBuilder builder;
+
+  /**
+   * The option with the arguments.
+   */
+  private CommandLineOption option;
+
+  /**
+   * Create the options.
+   */
+  @Setup
+  public void setup() {
+    builder = new CommandLineBuilder();
+    builder.setExecutable("jlink");
+    for (int i = 0; i < size; i++) {
+      final CommandLineOption opt = builder.createOpt();
+      opt.createArg().setValue("--add-modules");
+      opt.createArg().setValue("org.example.module" + i);
+    }
+    option = new CommandLineOption(new Commandline());
+    option.createArg().setValue("--module-path");
+    for (int i = 0; i < size; i++) {
+      option.createArg().setValue("/home/user/.m2/repository/org/example/"
+          + "artifact" + i + "/1.0/artifact" + i + "-1.0.jar");
+    }
+  }
+
+  /**
+   * Build the list of the options.
+   *
+   * @return the list of the options
+   */
+  @Benchmark
+  public List<String> buildOptionList() {
+    return builder.buildOptionList();
+  }
+
+  /**
+   * Join the arguments of the option.
+   *
+   * @return the option string
+   */
+  @Benchmark
+  public String optionToString() {
+    return option.toString();
+  }
+
+}
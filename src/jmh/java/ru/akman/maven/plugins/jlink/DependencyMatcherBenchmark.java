@@ -0,0 +1,180 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Filtering of the synthetic dependency sets by the dependencyset rules.
+ *
+ * <p>
+ * The filtering of the dependency (JlinkMojo.filterDependency) delegates
+ * the matching of the files and the module names to DependencyMatcher,
+ * which is created once per dependencyset and memoizes the results
+ * by the dependency file, so the filtering of the whole dependency set
+ * with the new matcher is the cost paid by every execution of the goal.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependencyMatcherBenchmark {
+
+  /**
+   * Number of the groups of the synthetic dependencies.
+   */
+  private static final int GROUPS = 50;
+
+  /**
+   * Number of the dependencies.
+   */
+  @Param({"10", "1000", "10000"})
+  private int size;
+
+  /**
+   * The dependencyset.
+   */
+  private DependencySet depSet;
+
+  /**
+   * The dependency files.
+   */
+  private File[] files;
+
+  /**
+   * The dependency paths.
+   */
+  private Path[] paths;
+
+  /**
+   * The dependency module names.
+   */
+  private String[] names;
+
+  /**
+   * Compiled file patterns.
+   */
+  private List<PathMatcher> pathMatchers;
+
+  /**
+   * Compiled module name patterns.
+   */
+  private List<Pattern> namePatterns;
+
+  /**
+   * Create the synthetic dependencies and the dependencyset.
+   */
+  @Setup
+  public void setup() {
+    files = new File[size];
+    paths = new Path[size];
+    names = new String[size];
+    for (int i = 0; i < size; i++) {
+      final int group = i % GROUPS;
+      files[i] = new File("/home/user/.m2/repository/org/example/group"
+          + group + "/artifact" + i + "/1.0." + i + "/artifact" + i + "-1.0."
+          + i + ".jar");
+      paths[i] = files[i].toPath();
+      names[i] = "org.example.group" + group + ".module" + i;
+    }
+    final List<String> includes = new ArrayList<>();
+    includes.add("glob:**/group1*/**");
+    includes.add("glob:**/group2?/**/*.jar");
+    includes.add("regex:.*/artifact[0-9]*7-.*\\.jar");
+    final List<String> includenames = new ArrayList<>();
+    includenames.add("org\\.example\\.group3.*");
+    includenames.add(".*\\.module[0-9]*5");
+    final List<String> excludes = new ArrayList<>();
+    excludes.add("glob:**/group19/**");
+    excludes.add("regex:.*-1\\.0\\.[0-9]*3\\.jar");
+    final List<String> excludenames = new ArrayList<>();
+    excludenames.add(".*\\.module[0-9]*9");
+    depSet = new DependencySet();
+    depSet.setIncludes(includes);
+    depSet.setIncludeNames(includenames);
+    depSet.setExcludes(excludes);
+    depSet.setExcludeNames(excludenames);
+    pathMatchers = new ArrayList<>();
+    for (final String include : includes) {
+      pathMatchers.add(FileSystems.getDefault().getPathMatcher(include));
+    }
+    namePatterns = new ArrayList<>();
+    for (final String includename : includenames) {
+      namePatterns.add(Pattern.compile(includename));
+    }
+  }
+
+  /**
+   * Filter the dependency set with the new matcher.
+   *
+   * @param blackhole the blackhole
+   */
+  @Benchmark
+  public void filterDependencies(final Blackhole blackhole) {
+    final DependencyMatcher matcher = new DependencyMatcher(depSet);
+    for (int i = 0; i < size; i++) {
+      blackhole.consume(matcher.matches(files[i], names[i]));
+    }
+  }
+
+  /**
+   * Match the dependency paths by the file patterns.
+   *
+   * @param blackhole the blackhole
+   */
+  @Benchmark
+  public void pathMatches(final Blackhole blackhole) {
+    for (int i = 0; i < size; i++) {
+      blackhole.consume(DependencyMatcher.pathMatches(pathMatchers, paths[i]));
+    }
+  }
+
+  /**
+   * Match the dependency module names by the name patterns.
+   *
+   * @param blackhole the blackhole
+   */
+  @Benchmark
+  public void nameMatches(final Blackhole blackhole) {
+    for (int i = 0; i < size; i++) {
+      blackhole.consume(DependencyMatcher.nameMatches(namePatterns, names[i]));
+    }
+  }
+
+}
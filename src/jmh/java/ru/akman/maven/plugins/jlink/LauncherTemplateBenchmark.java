@@ -0,0 +1,105 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Templating of the launcher scripts (JlinkMojo.createLauncherScript)
+ * on the big templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LauncherTemplateBenchmark {
+
+  /**
+   * Number of the lines of the template.
+   */
+  @Param({"10", "1000", "10000"})
+  private int size;
+
+  /**
+   * The lines of the template.
+   */
+  private List<String> template;
+
+  /**
+   * The variables of the template.
+   */
+  private Map<String, String> data;
+
+  /**
+   * Create the template and the variables.
+   */
+  @Setup
+  public void setup() {
+    data = new HashMap<>();
+    data.put("SCRIPT_NAME", "launcher");
+    data.put("JLINK_VM_OPTIONS", "-Xshare:auto -XX:+UseSerialGC");
+    data.put("MAIN_MODULE", "org.example.app");
+    data.put("MAIN_CLASS", "org.example.app.Main");
+    data.put("ARGS", "--verbose");
+    template = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      switch (i % 4) {
+        case 0:
+          template.add("# line " + i + " of the launcher ${SCRIPT_NAME}");
+          break;
+        case 1:
+          template.add("JLINK_VM_OPTIONS=\"${JLINK_VM_OPTIONS}\"");
+          break;
+        case 2:
+          template.add("DIR=`dirname \\$0`; CLASS=\\${CLASS:-none}");
+          break;
+        default:
+          template.add("\"$DIR/java\" $JLINK_VM_OPTIONS -m ${MAIN_MODULE}/"
+              + "${MAIN_CLASS} ${ARGS} \"$@\"");
+          break;
+      }
+    }
+  }
+
+  /**
+   * Fill the template.
+   *
+   * @return the lines of the launcher script
+   */
+  @Benchmark
+  public List<String> fillLauncherTemplate() {
+    return JlinkMojo.fillLauncherTemplate(template.stream(), data);
+  }
+
+}
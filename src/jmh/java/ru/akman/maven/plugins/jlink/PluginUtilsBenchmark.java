@@ -0,0 +1,173 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.model.fileset.FileSet;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building of the debug strings of the plugin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PluginUtilsBenchmark {
+
+  /**
+   * Number of the entries.
+   */
+  @Param({"10", "1000", "10000"})
+  private int size;
+
+  /**
+   * The project artifacts.
+   */
+  private Set<Artifact> artifacts;
+
+  /**
+   * The path elements.
+   */
+  private List<File> pathElements;
+
+  /**
+   * The fileset.
+   */
+  private FileSet fileSet;
+
+  /**
+   * The dependencyset.
+   */
+  private DependencySet depSet;
+
+  /**
+   * The module descriptor.
+   */
+  private JavaModuleDescriptor descriptor;
+
+  /**
+   * Create the entries.
+   */
+  @Setup
+  public void setup() {
+    final DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+    artifacts = new LinkedHashSet<>();
+    pathElements = new ArrayList<>();
+    fileSet = new FileSet();
+    fileSet.setDirectory("/home/user/project/target/classes");
+    final List<String> patterns = new ArrayList<>();
+    final JavaModuleDescriptor.Builder builder =
+        JavaModuleDescriptor.newModule("org.example.app");
+    for (int i = 0; i < size; i++) {
+      final Artifact artifact = new DefaultArtifact("org.example.group" + i,
+          "artifact" + i, "1.0." + i, "compile", "jar", null, handler);
+      final File file = new File("/home/user/.m2/repository/org/example/group"
+          + i + "/artifact" + i + "/1.0." + i + "/artifact" + i + "-1.0." + i
+          + ".jar");
+      artifact.setFile(file);
+      artifacts.add(artifact);
+      pathElements.add(file);
+      fileSet.addInclude("**/group" + i + "/**");
+      fileSet.addExclude("**/group" + i + "/**/*-sources.jar");
+      patterns.add("glob:**/group" + i + "/**");
+      builder.requires("org.example.module" + i);
+      builder.exports("org.example.app.api" + i);
+    }
+    depSet = new DependencySet();
+    depSet.setIncludes(patterns);
+    depSet.setIncludeNames(patterns);
+    depSet.setExcludes(patterns);
+    depSet.setExcludeNames(patterns);
+    descriptor = builder.build();
+  }
+
+  /**
+   * Build the debug string of the artifacts.
+   *
+   * @return the debug string
+   */
+  @Benchmark
+  public String artifactSetDebugInfo() {
+    return PluginUtils.getArtifactSetDebugInfo(artifacts);
+  }
+
+  /**
+   * Build the debug string of the path elements.
+   *
+   * @return the debug string
+   */
+  @Benchmark
+  public String pathElementsDebugInfo() {
+    return PluginUtils.getPathElementsDebugInfo("PATH ELEMENTS",
+        pathElements);
+  }
+
+  /**
+   * Build the debug string of the fileset.
+   *
+   * @return the debug string
+   */
+  @Benchmark
+  public String fileSetDebugInfo() {
+    return PluginUtils.getFileSetDebugInfo("FILESET", fileSet, "data");
+  }
+
+  /**
+   * Build the debug string of the dependencyset.
+   *
+   * @return the debug string
+   */
+  @Benchmark
+  public String dependencySetDebugInfo() {
+    return PluginUtils.getDependencySetDebugInfo("DEPENDENCYSET", depSet,
+        "data");
+  }
+
+  /**
+   * Build the debug string of the dependency.
+   *
+   * @return the debug string
+   */
+  @Benchmark
+  public String dependencyDebugInfo() {
+    return PluginUtils.getDependencyDebugInfo(pathElements.get(0),
+        descriptor, true);
+  }
+
+}
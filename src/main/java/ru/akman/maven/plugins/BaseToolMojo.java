@@ -18,16 +18,20 @@ package ru.akman.maven.plugins;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.spi.ToolProvider;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
@@ -44,8 +48,10 @@ import org.apache.maven.shared.model.fileset.util.FileSetManager;
 import org.apache.maven.toolchain.Toolchain;
 import org.apache.maven.toolchain.ToolchainManager;
 import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineTimeOutException;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Base class for creating a CLI tool Mojos.
@@ -87,6 +93,12 @@ public abstract class BaseToolMojo extends AbstractMojo {
    */
   private static final int ANDROID_MINOR = 9;
 
+  /**
+   * The name of the system property contains home directory
+   * of the running JDK.
+   */
+  private static final String JAVA_HOME_PROPERTY = "java.home";
+
   /**
    * The name of the subdirectory under JAVA_HOME where executables live.
    */
@@ -112,6 +124,12 @@ public abstract class BaseToolMojo extends AbstractMojo {
    */
   private static final String VERSION_OPTION = "--version";
 
+  /**
+   * The name of the tool used to take the thread dump of the timed out
+   * tool (without extension).
+   */
+  private static final String JCMD_NAME = "jcmd";
+
   /**
    * Project base directory (that containing the pom.xml file).
    */
@@ -180,6 +198,21 @@ public abstract class BaseToolMojo extends AbstractMojo {
   @Inject
   private ToolchainManager toolchainManager;
 
+  /**
+   * Timing of the phases of the execution.
+   */
+  private final PhaseMetrics metrics = new PhaseMetrics();
+
+  /**
+   * The file where the full output of the executed tools is written.
+   */
+  private File toolLog;
+
+  /**
+   * Timeout of the executed tools in seconds, 0 means no timeout.
+   */
+  private int toolTimeout;
+
   /**
    * Build plugin manager.
    */
@@ -608,44 +641,174 @@ public abstract class BaseToolMojo extends AbstractMojo {
   }
 
   /**
-   * Log result of the commandline execution.
+   * Load the persistent cache of the resolved tools.
+   *
+   * @param toolCacheFile the file of the persistent tool cache or null
+   *
+   * @return the loaded tool cache or null if it should not be used
+   */
+  private ToolCache getToolCache(final File toolCacheFile) {
+    if (toolCacheFile == null) {
+      return null;
+    }
+    final ToolCache toolCache = new ToolCache(toolCacheFile.toPath());
+    try {
+      toolCache.load();
+    } catch (IOException | IllegalArgumentException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to read tool cache: [{0}]", toolCacheFile), ex);
+      }
+    }
+    return toolCache;
+  }
+
+  /**
+   * Get the cached information about the tool executable.
+   *
+   * @param toolCache the tool cache or null
+   * @param executablePath the real path of the tool executable
+   *
+   * @return the cached information or null if it is missing or stale
+   */
+  private ToolCache.ToolInfo getCachedToolInfo(final ToolCache toolCache,
+      final Path executablePath) {
+    if (toolCache == null) {
+      return null;
+    }
+    try {
+      return toolCache.get(executablePath);
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to check tool cache entry for: [{0}]", executablePath),
+            ex);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Log the failure of the commandline execution. The output of the tool
+   * is already forwarded to the log line by line, so only the tails of the
+   * output are logged again.
    *
    * @param cmdLine the command line
-   * @param exitCode the exit code
+   * @param failure the description of the failure
    * @param stdout the standard output
    * @param stderr the standard error
    */
-  private void logCommandLineExecution(final Commandline cmdLine,
-      final int exitCode, final String stdout, final String stderr) {
-    if (exitCode == 0) {
-      if (!StringUtils.isBlank(stdout)) {
-        if (getLog().isDebugEnabled()) {
-          getLog().debug(System.lineSeparator() + stdout);
-        }
-      }
-      if (!StringUtils.isBlank(stderr)) {
-        if (getLog().isDebugEnabled()) {
-          getLog().debug(System.lineSeparator() + stderr);
-        }
-      }
-    } else {
-      if (getLog().isErrorEnabled()) {
-        getLog().error(System.lineSeparator() + "Exit code: " + exitCode);
+  private void logCommandLineFailure(final Commandline cmdLine,
+      final String failure, final ToolOutput stdout, final ToolOutput stderr) {
+    if (!getLog().isErrorEnabled()) {
+      return;
+    }
+    getLog().error(System.lineSeparator() + failure);
+    final String out = stdout.getTail();
+    if (!StringUtils.isBlank(out)) {
+      getLog().error(System.lineSeparator() + out);
+    }
+    final String err = stderr.getTail();
+    if (!StringUtils.isBlank(err)) {
+      getLog().error(System.lineSeparator() + err);
+    }
+    getLog().error(System.lineSeparator()
+        + "Command line was: "
+        + CommandLineUtils.toString(cmdLine.getCommandline()));
+  }
+
+  /**
+   * Set the timeout of the executed tools. The forked tool is killed
+   * together with its descendants on the timeout. The tool running inside
+   * the current JVM can't be stopped, so the tools are always forked
+   * if the timeout is set.
+   *
+   * @param seconds the timeout in seconds, 0 means no timeout
+   */
+  protected void setToolTimeout(final int seconds) {
+    toolTimeout = Math.max(0, seconds);
+  }
+
+  /**
+   * Create the watchdog of the tool execution.
+   *
+   * @return the watchdog or null if there is no timeout
+   */
+  private ToolWatchdog createWatchdog() {
+    return toolTimeout == 0
+        ? null
+        : new ToolWatchdog(toolTimeout,
+            findSiblingToolExecutable(JCMD_NAME));
+  }
+
+  /**
+   * Set the file where the full output of the executed tools is written.
+   * The existing file is deleted, the output of every execution
+   * is appended to the file.
+   *
+   * @param file the file or null if the output should not be written
+   */
+  protected void setToolLog(final File file) {
+    toolLog = file;
+    if (toolLog == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(toolLog.toPath());
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to delete tool output file: [{0}]", toolLog), ex);
       }
-      if (!StringUtils.isBlank(stdout)) {
-        if (getLog().isErrorEnabled()) {
-          getLog().error(System.lineSeparator() + stdout);
-        }
+    }
+  }
+
+  /**
+   * Open the file of the tool output for the execution.
+   *
+   * @param cmdLine the command line
+   *
+   * @return the writer or null if the output should not be written
+   */
+  private Writer openToolLog(final Commandline cmdLine) {
+    if (toolLog == null) {
+      return null;
+    }
+    final Path toolLogPath = toolLog.toPath();
+    try {
+      if (toolLogPath.getParent() != null) {
+        Files.createDirectories(toolLogPath.getParent());
       }
-      if (!StringUtils.isBlank(stderr)) {
-        if (getLog().isErrorEnabled()) {
-          getLog().error(System.lineSeparator() + stderr);
-        }
+      final Writer writer = Files.newBufferedWriter(toolLogPath,
+          Charset.defaultCharset(), StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      writer.write("$ " + CommandLineUtils.toString(cmdLine.getCommandline())
+          + System.lineSeparator());
+      return writer;
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to open tool output file: [{0}]", toolLogPath), ex);
       }
-      if (getLog().isErrorEnabled()) {
-        getLog().error(System.lineSeparator()
-            + "Command line was: "
-            + CommandLineUtils.toString(cmdLine.getCommandline()));
+      return null;
+    }
+  }
+
+  /**
+   * Close the file of the tool output.
+   *
+   * @param writer the writer, can be null
+   */
+  private void closeToolLog(final Writer writer) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to write tool output file: [{0}]", toolLog), ex);
       }
     }
   }
@@ -659,6 +822,15 @@ public abstract class BaseToolMojo extends AbstractMojo {
     return baseDir;
   }
 
+  /**
+   * Get the timing of the phases of the execution.
+   *
+   * @return the phase metrics
+   */
+  protected PhaseMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * Get project build directory.
    *
@@ -824,22 +996,214 @@ public abstract class BaseToolMojo extends AbstractMojo {
    *                              command line
    */
   protected int execCmdLine(final Commandline cmdLine,
-      final CommandLineUtils.StringStreamConsumer out,
-      final CommandLineUtils.StringStreamConsumer err)
+      final StreamConsumer out, final StreamConsumer err)
       throws CommandLineException {
+    return execCmdLine(cmdLine, out, err, false);
+  }
+
+  /**
+   * Execute command line with defined standard output/error streams.
+   * The output is forwarded to the log line by line as it arrives,
+   * only the tail of the output is kept to report the errors.
+   *
+   * @param cmdLine command line
+   * @param out standard output, can be null
+   * @param err standard error, can be null
+   * @param verbose forward the output to the info level of the log
+   *                instead of the debug
+   *
+   * @return exit code
+   *
+   * @throws CommandLineException if any errors occurred while processing
+   *                              command line
+   */
+  protected int execCmdLine(final Commandline cmdLine,
+      final StreamConsumer out, final StreamConsumer err,
+      final boolean verbose) throws CommandLineException {
     if (getLog().isDebugEnabled()) {
       getLog().debug(CommandLineUtils.toString(cmdLine.getCommandline()));
     }
-    final CommandLineUtils.StringStreamConsumer stdout = out == null
-        ? new CommandLineUtils.StringStreamConsumer()
-        : out;
-    final CommandLineUtils.StringStreamConsumer stderr = err == null
-        ? new CommandLineUtils.StringStreamConsumer()
-        : err;
-    final int exitCode =
-        CommandLineUtils.executeCommandLine(cmdLine, stdout, err);
-    logCommandLineExecution(cmdLine, exitCode, stdout.getOutput(),
-        stderr.getOutput());
+    final Writer tee = openToolLog(cmdLine);
+    final ToolOutput stdout = new ToolOutput(getLog(), verbose, out, tee);
+    final ToolOutput stderr = new ToolOutput(getLog(), verbose, err, tee);
+    final ToolWatchdog watchdog = createWatchdog();
+    final int exitCode;
+    try {
+      exitCode = watchdog == null
+          ? CommandLineUtils.executeCommandLine(cmdLine, stdout, stderr)
+          : watchdog.execute(cmdLine, stdout, stderr);
+    } catch (CommandLineTimeOutException ex) {
+      logCommandLineFailure(cmdLine, ex.getMessage()
+          + System.lineSeparator() + watchdog.getDiagnostics(),
+          stdout, stderr);
+      throw ex;
+    } finally {
+      closeToolLog(tee);
+    }
+    if (exitCode != 0) {
+      logCommandLineFailure(cmdLine, "Exit code: " + exitCode, stdout,
+          stderr);
+    }
+    return exitCode;
+  }
+
+  /**
+   * Find the executable of the other tool living in the same directory
+   * as the resolved tool executable, i.e. the other tool of the same JDK.
+   *
+   * @param toolName the name of the other tool (without extension)
+   *
+   * @return the executable of the other tool or null if it not found
+   */
+  protected File findSiblingToolExecutable(final String toolName) {
+    if (toolExecutable == null || toolExecutable.getParentFile() == null) {
+      return null;
+    }
+    final Path executablePath = findToolExecutable(toolName,
+        List.of(toolExecutable.getParentFile().toPath()));
+    return executablePath == null ? null : executablePath.toFile();
+  }
+
+  /**
+   * Find the tool provider which can be used to run the tool inside
+   * the current JVM. The tool provider is only returned if the resolved
+   * tool home directory is the home directory of the running JDK and
+   * the timeout is not set, otherwise the tool must be executed
+   * in a separate process.
+   *
+   * @param toolName the name of the tool (without extension)
+   *
+   * @return the tool provider or null
+   */
+  protected ToolProvider findToolProvider(final String toolName) {
+    if (toolHomeDirectory == null) {
+      return null;
+    }
+    if (toolTimeout > 0) {
+      // the tool running inside the current JVM ignores the interrupts
+      // and can't be killed on the timeout
+      if (getLog().isDebugEnabled()) {
+        getLog().debug(MessageFormat.format(
+            "Timeout is set, [{0}] is executed in a separate process",
+            toolName));
+      }
+      return null;
+    }
+    final String javaHome = System.getProperty(JAVA_HOME_PROPERTY);
+    if (StringUtils.isBlank(javaHome)) {
+      return null;
+    }
+    try {
+      final Path toolHomePath = toolHomeDirectory.toPath().toRealPath();
+      final Path javaHomePath = Paths.get(javaHome).toRealPath();
+      if (!toolHomePath.equals(javaHomePath)) {
+        if (getLog().isDebugEnabled()) {
+          getLog().debug(MessageFormat.format(
+              "Home directory for [{0}]: {1} does not match the running JDK: "
+              + "{2}", toolName, toolHomePath, javaHomePath));
+        }
+        return null;
+      }
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to compare home directory for [{0}] with the running JDK",
+            toolName), ex);
+      }
+      return null;
+    }
+    final ToolProvider toolProvider =
+        ToolProvider.findFirst(toolName).orElse(null);
+    if (toolProvider == null && getLog().isDebugEnabled()) {
+      getLog().debug(MessageFormat.format(
+          "Tool provider for [{0}] not found in the running JDK", toolName));
+    }
+    return toolProvider;
+  }
+
+  /**
+   * Execute command line inside the current JVM using the tool provider.
+   * The executable of the command line is ignored, the arguments must be
+   * already expanded (the tool providers do not expand @argfiles).
+   *
+   * @param toolProvider the tool provider
+   * @param cmdLine command line
+   *
+   * @return exit code
+   *
+   * @throws CommandLineException if any errors occurred while running
+   *                              the tool
+   */
+  protected int execToolProvider(final ToolProvider toolProvider,
+      final Commandline cmdLine) throws CommandLineException {
+    return execToolProvider(toolProvider, cmdLine, null, null);
+  }
+
+  /**
+   * Execute command line inside the current JVM using the tool provider
+   * with defined standard output/error consumers.
+   *
+   * @param toolProvider the tool provider
+   * @param cmdLine command line
+   * @param out standard output, can be null
+   * @param err standard error, can be null
+   *
+   * @return exit code
+   *
+   * @throws CommandLineException if any errors occurred while running
+   *                              the tool
+   */
+  protected int execToolProvider(final ToolProvider toolProvider,
+      final Commandline cmdLine, final StreamConsumer out,
+      final StreamConsumer err) throws CommandLineException {
+    return execToolProvider(toolProvider, cmdLine, out, err, false);
+  }
+
+  /**
+   * Execute command line inside the current JVM using the tool provider
+   * with defined standard output/error consumers. The output is forwarded
+   * to the log line by line as it arrives, only the tail of the output
+   * is kept to report the errors.
+   *
+   * @param toolProvider the tool provider
+   * @param cmdLine command line
+   * @param out standard output, can be null
+   * @param err standard error, can be null
+   * @param verbose forward the output to the info level of the log
+   *                instead of the debug
+   *
+   * @return exit code
+   *
+   * @throws CommandLineException if any errors occurred while running
+   *                              the tool
+   */
+  protected int execToolProvider(final ToolProvider toolProvider,
+      final Commandline cmdLine, final StreamConsumer out,
+      final StreamConsumer err, final boolean verbose)
+      throws CommandLineException {
+    if (getLog().isDebugEnabled()) {
+      getLog().debug(MessageFormat.format("Running [{0}] in-process: {1}",
+          toolProvider.name(),
+          CommandLineUtils.toString(cmdLine.getCommandline())));
+    }
+    final Writer tee = openToolLog(cmdLine);
+    final ToolOutput stdout = new ToolOutput(getLog(), verbose, out, tee);
+    final ToolOutput stderr = new ToolOutput(getLog(), verbose, err, tee);
+    final int exitCode;
+    try (PrintWriter outWriter = new PrintWriter(stdout.asWriter());
+        PrintWriter errWriter = new PrintWriter(stderr.asWriter())) {
+      exitCode = toolProvider.run(outWriter, errWriter,
+          cmdLine.getArguments());
+    } catch (RuntimeException ex) {
+      throw new CommandLineException(MessageFormat.format(
+          "Error: Unable to run [{0}] in-process", toolProvider.name()), ex);
+    } finally {
+      closeToolLog(tee);
+    }
+    if (exitCode != 0) {
+      logCommandLineFailure(cmdLine, "Exit code: " + exitCode, stdout,
+          stderr);
+    }
     return exitCode;
   }
 
@@ -856,6 +1220,25 @@ public abstract class BaseToolMojo extends AbstractMojo {
    */
   protected void init(final String toolName, final File toolHomeDir,
       final String toolBinDirName) throws MojoExecutionException {
+    init(toolName, toolHomeDir, toolBinDirName, null);
+  }
+
+  /**
+   * Init Mojo using the persistent cache of the resolved tools.
+   *
+   * @param toolName the name of the tool (without extension)
+   * @param toolHomeDir the tool home directory
+   * @param toolBinDirName the name of subdirectory where the tool live
+   *                       relative to the tool home directory
+   * @param toolCacheFile the file of the persistent tool cache or null
+   *                      if the cache should not be used
+   *
+   * @throws MojoExecutionException if any errors occurred while processing
+   *                                configuration parameters
+   */
+  protected void init(final String toolName, final File toolHomeDir,
+      final String toolBinDirName, final File toolCacheFile)
+      throws MojoExecutionException {
     if (getProject() == null) {
       throw new MojoExecutionException(
           "Error: The predefined variable ${project} is not defined");
@@ -912,6 +1295,7 @@ public abstract class BaseToolMojo extends AbstractMojo {
     }
 
     // Resolve all available jdk toolchains
+    final PhaseMetrics.Phase resolution = metrics.start("tool-resolution");
     toolchains = getToolchainManager().getToolchains(getSession(), JDK, null);
     if (toolchains == null) {
       if (getLog().isDebugEnabled()) {
@@ -946,14 +1330,45 @@ public abstract class BaseToolMojo extends AbstractMojo {
           "Error: Executable for [{0}] not found", toolName));
     }
     toolExecutable = executablePath.toFile();
-
-    // Obtain the tool version
-    try {
-      toolVersion = obtainToolVersion(executablePath);
-    } catch (CommandLineException ex) {
-      throw new MojoExecutionException(MessageFormat.format(
-          "Error: Unable to obtain version of [{0}]", toolName), ex);
+    resolution.addFiles(1L).close();
+
+    // Look up the tool version in the persistent cache
+    final PhaseMetrics.Phase probe = metrics.start("version-probe");
+    final ToolCache toolCache = getToolCache(toolCacheFile);
+    final ToolCache.ToolInfo toolInfo =
+        getCachedToolInfo(toolCache, executablePath);
+    if (toolInfo == null) {
+      // Obtain the tool version
+      try {
+        toolVersion = obtainToolVersion(executablePath);
+      } catch (CommandLineException ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Unable to obtain version of [{0}]", toolName), ex);
+      }
+      // Obtain the corresponding java version matching the tool version
+      toolJavaVersion = getCorrespondingJavaVersion(toolVersion);
+      if (toolCache != null && toolVersion != null) {
+        try {
+          toolCache.put(executablePath, new ToolCache.ToolInfo(
+              toolVersion, toolJavaVersion));
+        } catch (IOException ex) {
+          if (getLog().isWarnEnabled()) {
+            getLog().warn(MessageFormat.format(
+                "Unable to write tool cache: [{0}]", toolCacheFile), ex);
+          }
+        }
+      }
+    } else {
+      toolVersion = toolInfo.getVersion();
+      toolJavaVersion = toolInfo.getJavaVersion();
+      if (getLog().isDebugEnabled()) {
+        getLog().debug(MessageFormat.format(
+            "Version of [{0}] found in tool cache: [{1}]", toolName,
+            toolCacheFile));
+      }
     }
+    probe.close();
+
     if (toolVersion == null) {
       if (getLog().isWarnEnabled()) {
         getLog().warn(MessageFormat.format(
@@ -966,8 +1381,6 @@ public abstract class BaseToolMojo extends AbstractMojo {
       }
     }
 
-    // Obtain the corresponding java version matching the tool version
-    toolJavaVersion = getCorrespondingJavaVersion(toolVersion);
     if (toolJavaVersion == null) {
       if (getLog().isWarnEnabled()) {
         getLog().warn(MessageFormat.format(
@@ -0,0 +1,253 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal writer of the pretty printed JSON documents used by the reports.
+ *
+ * <p>
+ * The writer doesn't validate the structure of the document, the caller
+ * is responsible for the proper nesting of the objects and the arrays.
+ * </p>
+ */
+public class JsonWriter {
+
+  /**
+   * Indent of the nested values.
+   */
+  private static final String INDENT = "  ";
+
+  /**
+   * The document.
+   */
+  private final StringBuilder out = new StringBuilder();
+
+  /**
+   * Is the first value of the current object or array written,
+   * one entry per nesting level.
+   */
+  private final Deque<Boolean> started = new ArrayDeque<>();
+
+  /**
+   * Is the name of the value just written.
+   */
+  private boolean named;
+
+  /**
+   * Begin the object.
+   *
+   * @return this writer
+   */
+  public JsonWriter beginObject() {
+    return open('{');
+  }
+
+  /**
+   * End the object.
+   *
+   * @return this writer
+   */
+  public JsonWriter endObject() {
+    return close('}');
+  }
+
+  /**
+   * Begin the array.
+   *
+   * @return this writer
+   */
+  public JsonWriter beginArray() {
+    return open('[');
+  }
+
+  /**
+   * End the array.
+   *
+   * @return this writer
+   */
+  public JsonWriter endArray() {
+    return close(']');
+  }
+
+  /**
+   * Write the name of the next value of the object.
+   *
+   * @param name the name
+   *
+   * @return this writer
+   */
+  public JsonWriter name(final String name) {
+    separate();
+    quote(name);
+    out.append(": ");
+    named = true;
+    return this;
+  }
+
+  /**
+   * Write the string value.
+   *
+   * @param value the value, can be null
+   *
+   * @return this writer
+   */
+  public JsonWriter value(final String value) {
+    separate();
+    if (value == null) {
+      out.append("null");
+    } else {
+      quote(value);
+    }
+    return this;
+  }
+
+  /**
+   * Write the number value.
+   *
+   * @param value the value, can be null
+   *
+   * @return this writer
+   */
+  public JsonWriter value(final Number value) {
+    separate();
+    out.append(value == null
+        || value instanceof Double && !Double.isFinite(value.doubleValue())
+        ? "null" : value.toString());
+    return this;
+  }
+
+  /**
+   * Write the boolean value.
+   *
+   * @param value the value
+   *
+   * @return this writer
+   */
+  public JsonWriter value(final boolean value) {
+    separate();
+    out.append(value);
+    return this;
+  }
+
+  /**
+   * Get the written document.
+   *
+   * @return the document
+   */
+  @Override
+  public String toString() {
+    return out.toString();
+  }
+
+  /**
+   * Open the object or the array.
+   *
+   * @param bracket the opening bracket
+   *
+   * @return this writer
+   */
+  private JsonWriter open(final char bracket) {
+    separate();
+    out.append(bracket);
+    started.push(Boolean.FALSE);
+    return this;
+  }
+
+  /**
+   * Close the object or the array.
+   *
+   * @param bracket the closing bracket
+   *
+   * @return this writer
+   */
+  private JsonWriter close(final char bracket) {
+    final boolean empty = !started.pop();
+    if (!empty) {
+      newLine();
+    }
+    out.append(bracket);
+    return this;
+  }
+
+  /**
+   * Write the separator and the indent before the value or the name.
+   */
+  private void separate() {
+    if (named) {
+      named = false;
+      return;
+    }
+    if (started.isEmpty()) {
+      return;
+    }
+    if (started.pop()) {
+      out.append(',');
+    }
+    started.push(Boolean.TRUE);
+    newLine();
+  }
+
+  /**
+   * Write the new line and the indent of the current nesting level.
+   */
+  private void newLine() {
+    out.append(System.lineSeparator());
+    for (int i = 0; i < started.size(); i++) {
+      out.append(INDENT);
+    }
+  }
+
+  /**
+   * Write the quoted and escaped string.
+   *
+   * @param value the string
+   */
+  private void quote(final String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char ch = value.charAt(i);
+      switch (ch) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (ch < ' ') {
+            out.append(String.format("\\u%04x", (int) ch));
+          } else {
+            out.append(ch);
+          }
+      }
+    }
+    out.append('"');
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of the phase of the Mojo execution, it marks the phases
+ * in the flight recordings, so they line up with the phase metrics.
+ * The event costs nothing if no recording is running.
+ */
+@Name("ru.akman.maven.plugins.Phase")
+@Label("Plugin Phase")
+@Category({"Maven", "Plugin"})
+@Description("Phase of the execution of the plugin goal")
+class PhaseEvent extends Event {
+
+  /**
+   * Phase name.
+   */
+  @Label("Phase")
+  private final String phase;
+
+  /**
+   * Number of the touched files.
+   */
+  @Label("Files")
+  private long files;
+
+  /**
+   * Number of the touched bytes.
+   */
+  @Label("Bytes")
+  @DataAmount
+  private long bytes;
+
+  /**
+   * Create the event of the phase.
+   *
+   * @param phase the phase name
+   */
+  PhaseEvent(final String phase) {
+    this.phase = phase;
+  }
+
+  /**
+   * Set the counters of the phase.
+   *
+   * @param files the number of the touched files
+   * @param bytes the number of the touched bytes
+   */
+  void setCounters(final long files, final long bytes) {
+    this.files = files;
+    this.bytes = bytes;
+  }
+
+}
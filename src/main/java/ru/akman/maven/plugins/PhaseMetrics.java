@@ -0,0 +1,489 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Timing of the named phases of the Mojo execution.
+ *
+ * <p>
+ * Every phase records the wall time, the CPU time of the calling thread,
+ * the CPU time of the whole process (it includes the worker threads and
+ * the tools running inside the current JVM, if the platform supports it)
+ * and the number of the files and the bytes touched by the phase.
+ * Every phase is also emitted as the JFR event, so the phases line up with
+ * the flight recording of the JVM, if any.
+ * </p>
+ *
+ * <pre>
+ * try (PhaseMetrics.Phase phase = metrics.start("staging-copy")) {
+ *   ...
+ *   phase.addFiles(copied).addBytes(bytes);
+ * }
+ * </pre>
+ */
+public class PhaseMetrics {
+
+  /**
+   * The number of nanoseconds in the second.
+   */
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  /**
+   * Thread management interface.
+   */
+  private static final ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean();
+
+  /**
+   * Operating system management interface.
+   */
+  private static final OperatingSystemMXBean OS =
+      ManagementFactory.getOperatingSystemMXBean();
+
+  /**
+   * Is the flight recorder module present in the current runtime.
+   */
+  private static final boolean JFR = ModuleLayer.boot()
+      .findModule("jdk.jfr").isPresent();
+
+  /**
+   * Start time of the metrics.
+   */
+  private final long start = System.nanoTime();
+
+  /**
+   * Recorded phases in the order of their start.
+   */
+  private final List<Phase> phases = new ArrayList<>();
+
+  /**
+   * Start the phase.
+   *
+   * @param name the phase name
+   *
+   * @return the started phase, it is recorded when closed
+   */
+  public Phase start(final String name) {
+    final Phase phase = new Phase(name, System.nanoTime() - start);
+    synchronized (phases) {
+      phases.add(phase);
+    }
+    return phase;
+  }
+
+  /**
+   * Get the recorded phases.
+   *
+   * @return the phases in the order of their start
+   */
+  public List<Phase> getPhases() {
+    synchronized (phases) {
+      return Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+  }
+
+  /**
+   * Get the wall time since the metrics were created.
+   *
+   * @return the wall time in nanoseconds
+   */
+  public long getElapsed() {
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Get the metrics as the JSON document.
+   *
+   * @param properties the string properties added to the document before
+   *                   the metrics, i.e. the project coordinates
+   *
+   * @return the JSON document, the times are in milliseconds
+   */
+  public String toJson(final Map<String, String> properties) {
+    final JsonWriter json = new JsonWriter().beginObject();
+    properties.forEach((name, value) -> json.name(name).value(value));
+    json.name("wallMillis").value(millis(getElapsed()));
+    json.name("phases").beginArray();
+    for (final Phase phase : getPhases()) {
+      json.beginObject();
+      json.name("name").value(phase.getName());
+      json.name("startMillis").value(millis(phase.getOffset()));
+      json.name("wallMillis").value(millis(phase.getWall()));
+      json.name("cpuMillis").value(millis(phase.getCpu()));
+      json.name("processCpuMillis").value(millis(phase.getProcessCpu()));
+      json.name("files").value(phase.getFiles());
+      json.name("bytes").value(phase.getBytes());
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    return json.toString();
+  }
+
+  /**
+   * Get the metrics in the Prometheus text exposition format.
+   *
+   * @param prefix the prefix of the metric names, i.e. "jlink"
+   * @param labels the labels added to every sample
+   *
+   * @return the metrics
+   */
+  public String toPrometheus(final String prefix,
+      final Map<String, String> labels) {
+    final StringBuilder out = new StringBuilder();
+    final List<Phase> recorded = getPhases();
+    gauge(out, prefix + "_phase_wall_seconds",
+        "Wall time of the phase.", recorded, labels,
+        phase -> seconds(phase.getWall()));
+    gauge(out, prefix + "_phase_cpu_seconds",
+        "CPU time of the thread which run the phase.", recorded, labels,
+        phase -> seconds(phase.getCpu()));
+    gauge(out, prefix + "_phase_process_cpu_seconds",
+        "CPU time of the process during the phase.", recorded, labels,
+        phase -> seconds(phase.getProcessCpu()));
+    gauge(out, prefix + "_phase_files",
+        "Number of the files touched by the phase.", recorded, labels,
+        phase -> Long.toString(phase.getFiles()));
+    gauge(out, prefix + "_phase_bytes",
+        "Number of the bytes touched by the phase.", recorded, labels,
+        phase -> Long.toString(phase.getBytes()));
+    header(out, prefix + "_wall_seconds", "Wall time of the execution.");
+    out.append(prefix).append("_wall_seconds").append(labels(labels, null))
+        .append(' ').append(seconds(getElapsed())).append('\n');
+    return out.toString();
+  }
+
+  /**
+   * Append the gauge of the phases.
+   *
+   * @param out the output
+   * @param name the metric name
+   * @param help the metric description
+   * @param recorded the phases
+   * @param labels the common labels
+   * @param value the value of the phase
+   */
+  private static void gauge(final StringBuilder out, final String name,
+      final String help, final List<Phase> recorded,
+      final Map<String, String> labels,
+      final Function<Phase, String> value) {
+    header(out, name, help);
+    for (final Phase phase : recorded) {
+      out.append(name).append(labels(labels, phase.getName()))
+          .append(' ').append(value.apply(phase)).append('\n');
+    }
+  }
+
+  /**
+   * Append the help and the type of the gauge.
+   *
+   * @param out the output
+   * @param name the metric name
+   * @param help the metric description
+   */
+  private static void header(final StringBuilder out, final String name,
+      final String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+        .append("# TYPE ").append(name).append(" gauge\n");
+  }
+
+  /**
+   * Format the labels of the sample.
+   *
+   * @param labels the common labels
+   * @param phase the phase name or null
+   *
+   * @return the formatted labels
+   */
+  private static String labels(final Map<String, String> labels,
+      final String phase) {
+    final StringBuilder out = new StringBuilder("{");
+    labels.forEach((key, value) -> {
+      if (out.length() > 1) {
+        out.append(',');
+      }
+      out.append(key).append("=\"").append(escape(value)).append('"');
+    });
+    if (phase != null) {
+      if (out.length() > 1) {
+        out.append(',');
+      }
+      out.append("phase=\"").append(escape(phase)).append('"');
+    }
+    return out.append('}').toString();
+  }
+
+  /**
+   * Escape the label value.
+   *
+   * @param value the label value
+   *
+   * @return the escaped value
+   */
+  private static String escape(final String value) {
+    return value == null ? "" : value
+        .replace("\\", "\\\\")
+        .replace("\"", "\\\"")
+        .replace("\n", "\\n");
+  }
+
+  /**
+   * Format the nanoseconds as seconds.
+   *
+   * @param nanos the nanoseconds
+   *
+   * @return the formatted seconds
+   */
+  private static String seconds(final long nanos) {
+    return String.format(Locale.ROOT, "%.6f", nanos / NANOS_PER_SECOND);
+  }
+
+  /**
+   * Convert the nanoseconds to the milliseconds.
+   *
+   * @param nanos the nanoseconds
+   *
+   * @return the milliseconds with the microsecond precision
+   */
+  private static Double millis(final long nanos) {
+    return Math.round(nanos / 1_000.0) / 1_000.0;
+  }
+
+  /**
+   * Get the CPU time of the current thread.
+   *
+   * @return the CPU time in nanoseconds or 0 if it's not supported
+   */
+  private static long getThreadCpuTime() {
+    return THREADS.isCurrentThreadCpuTimeSupported()
+        ? Math.max(0L, THREADS.getCurrentThreadCpuTime())
+        : 0L;
+  }
+
+  /**
+   * Get the CPU time of the process.
+   *
+   * @return the CPU time in nanoseconds or 0 if it's not supported
+   */
+  private static long getProcessCpuTime() {
+    return OS instanceof com.sun.management.OperatingSystemMXBean
+        ? Math.max(0L, ((com.sun.management.OperatingSystemMXBean) OS)
+            .getProcessCpuTime())
+        : 0L;
+  }
+
+  /**
+   * Phase of the execution.
+   */
+  public static class Phase implements AutoCloseable {
+
+    /**
+     * Phase name.
+     */
+    private final String name;
+
+    /**
+     * Start time of the phase relative to the start of the metrics.
+     */
+    private final long offset;
+
+    /**
+     * Start time of the phase.
+     */
+    private final long wallStart = System.nanoTime();
+
+    /**
+     * Thread CPU time at the start of the phase.
+     */
+    private final long cpuStart = getThreadCpuTime();
+
+    /**
+     * Process CPU time at the start of the phase.
+     */
+    private final long processCpuStart = getProcessCpuTime();
+
+    /**
+     * Wall time of the phase.
+     */
+    private long wall;
+
+    /**
+     * Thread CPU time of the phase.
+     */
+    private long cpu;
+
+    /**
+     * Process CPU time of the phase.
+     */
+    private long processCpu;
+
+    /**
+     * Number of the touched files.
+     */
+    private long files;
+
+    /**
+     * Number of the touched bytes.
+     */
+    private long bytes;
+
+    /**
+     * Is the phase closed.
+     */
+    private boolean closed;
+
+    /**
+     * JFR event of the phase or null if JFR is not present.
+     */
+    private final PhaseEvent event;
+
+    /**
+     * Create the phase.
+     *
+     * @param name the phase name
+     * @param offset the start time relative to the start of the metrics
+     */
+    Phase(final String name, final long offset) {
+      this.name = name;
+      this.offset = offset;
+      event = JFR ? new PhaseEvent(name) : null;
+      if (event != null) {
+        event.begin();
+      }
+    }
+
+    /**
+     * Add the touched files.
+     *
+     * @param count the number of the files
+     *
+     * @return this phase
+     */
+    public Phase addFiles(final long count) {
+      files += count;
+      return this;
+    }
+
+    /**
+     * Add the touched bytes.
+     *
+     * @param count the number of the bytes
+     *
+     * @return this phase
+     */
+    public Phase addBytes(final long count) {
+      bytes += count;
+      return this;
+    }
+
+    /**
+     * Finish the phase.
+     */
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      wall = System.nanoTime() - wallStart;
+      cpu = getThreadCpuTime() - cpuStart;
+      processCpu = getProcessCpuTime() - processCpuStart;
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.setCounters(files, bytes);
+          event.commit();
+        }
+      }
+    }
+
+    /**
+     * Get the phase name.
+     *
+     * @return the phase name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Get the start time of the phase relative to the start of the metrics.
+     *
+     * @return the start time in nanoseconds
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Get the wall time of the phase.
+     *
+     * @return the wall time in nanoseconds
+     */
+    public long getWall() {
+      return wall;
+    }
+
+    /**
+     * Get the CPU time of the thread which run the phase.
+     *
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpu() {
+      return cpu;
+    }
+
+    /**
+     * Get the CPU time of the process during the phase.
+     *
+     * @return the CPU time in nanoseconds
+     */
+    public long getProcessCpu() {
+      return processCpu;
+    }
+
+    /**
+     * Get the number of the touched files.
+     *
+     * @return the number of the files
+     */
+    public long getFiles() {
+      return files;
+    }
+
+    /**
+     * Get the number of the touched bytes.
+     *
+     * @return the number of the bytes
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+  }
+
+}
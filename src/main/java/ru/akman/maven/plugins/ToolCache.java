@@ -0,0 +1,222 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import org.apache.commons.lang3.JavaVersion;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Persistent cache of the resolved tools.
+ *
+ * <p>
+ * Every entry is keyed by the real path of the tool executable and
+ * remembers the size and the last modified time of the executable,
+ * so the entry becomes stale automatically when the JDK is upgraded
+ * in place.
+ * </p>
+ */
+public class ToolCache {
+
+  /**
+   * Comment stored in the cache file.
+   */
+  private static final String COMMENT = "Resolved tools cache";
+
+  /**
+   * Key suffix for the size of the executable.
+   */
+  private static final String SIZE = ".size";
+
+  /**
+   * Key suffix for the last modified time of the executable.
+   */
+  private static final String MTIME = ".mtime";
+
+  /**
+   * Key suffix for the tool version.
+   */
+  private static final String VERSION = ".version";
+
+  /**
+   * Key suffix for the tool corresponding java version.
+   */
+  private static final String JAVA_VERSION = ".javaversion";
+
+  /**
+   * Cache file.
+   */
+  private final Path file;
+
+  /**
+   * Cache entries.
+   */
+  private final Properties entries = new Properties();
+
+  /**
+   * Create the cache backed by the specified file.
+   *
+   * @param file the cache file
+   */
+  public ToolCache(final Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Load the cache entries from the cache file if it exists.
+   *
+   * @throws IOException if any errors occurred while reading the cache file
+   */
+  public void load() throws IOException {
+    entries.clear();
+    if (Files.isRegularFile(file)) {
+      try (InputStream in = Files.newInputStream(file)) {
+        entries.load(in);
+      }
+    }
+  }
+
+  /**
+   * Get the cached information about the tool executable.
+   *
+   * @param executable the real path of the tool executable
+   *
+   * @return the cached information or null if it is missing or stale
+   *
+   * @throws IOException if any errors occurred while reading attributes
+   *                     of the tool executable
+   */
+  public ToolInfo get(final Path executable) throws IOException {
+    final String key = executable.toString();
+    final String size = entries.getProperty(key + SIZE);
+    final String mtime = entries.getProperty(key + MTIME);
+    final String version = entries.getProperty(key + VERSION);
+    if (size == null || mtime == null || StringUtils.isBlank(version)
+        || !size.equals(Long.toString(Files.size(executable)))
+        || !mtime.equals(Long.toString(
+            Files.getLastModifiedTime(executable).toMillis()))) {
+      return null;
+    }
+    JavaVersion javaVersion = null;
+    final String javaVersionName = entries.getProperty(key + JAVA_VERSION);
+    if (!StringUtils.isBlank(javaVersionName)) {
+      try {
+        javaVersion = JavaVersion.valueOf(javaVersionName);
+      } catch (IllegalArgumentException ex) {
+        return null;
+      }
+    }
+    return new ToolInfo(version, javaVersion);
+  }
+
+  /**
+   * Put the information about the tool executable into the cache and
+   * store the cache file.
+   *
+   * @param executable the real path of the tool executable
+   * @param info the information about the tool
+   *
+   * @throws IOException if any errors occurred while writing the cache file
+   */
+  public void put(final Path executable, final ToolInfo info)
+      throws IOException {
+    final String key = executable.toString();
+    entries.setProperty(key + SIZE, Long.toString(Files.size(executable)));
+    entries.setProperty(key + MTIME, Long.toString(
+        Files.getLastModifiedTime(executable).toMillis()));
+    entries.setProperty(key + VERSION, info.getVersion());
+    entries.setProperty(key + JAVA_VERSION, info.getJavaVersion() == null
+        ? "" : info.getJavaVersion().name());
+    store();
+  }
+
+  /**
+   * Store the cache entries to the cache file. The file is replaced
+   * atomically, so concurrent builds never observe a partially
+   * written cache.
+   *
+   * @throws IOException if any errors occurred while writing the cache file
+   */
+  private void store() throws IOException {
+    final Path dir = file.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    final Path temp = Files.createTempFile(dir, file.getFileName().toString(),
+        ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(temp)) {
+        entries.store(out, COMMENT);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Cached information about the tool.
+   */
+  public static class ToolInfo {
+
+    /**
+     * Tool version.
+     */
+    private final String version;
+
+    /**
+     * Tool corresponding java version.
+     */
+    private final JavaVersion javaVersion;
+
+    /**
+     * Create the information about the tool.
+     *
+     * @param version the tool version
+     * @param javaVersion the tool corresponding java version
+     */
+    public ToolInfo(final String version, final JavaVersion javaVersion) {
+      this.version = version;
+      this.javaVersion = javaVersion;
+    }
+
+    /**
+     * Get tool version.
+     *
+     * @return tool version
+     */
+    public String getVersion() {
+      return version;
+    }
+
+    /**
+     * Get tool corresponding java version.
+     *
+     * @return tool corresponding java version
+     */
+    public JavaVersion getJavaVersion() {
+      return javaVersion;
+    }
+
+  }
+
+}
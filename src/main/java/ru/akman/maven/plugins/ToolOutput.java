@@ -0,0 +1,227 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Streaming consumer of the tool output.
+ *
+ * <p>
+ * Every line is forwarded to the Maven log as soon as it arrives,
+ * only the bounded tail of the output is kept in memory to report
+ * the errors of the tool. The full output can be written into the shared
+ * file (tee) and passed to the delegate consumer, i.e. to the consumer
+ * which collects the output to be parsed.
+ * </p>
+ */
+public class ToolOutput implements StreamConsumer {
+
+  /**
+   * The maximum number of the lines kept in the tail.
+   */
+  public static final int TAIL_LINES = 200;
+
+  /**
+   * The Maven log.
+   */
+  private final Log log;
+
+  /**
+   * Forward the lines to the info level of the log instead of the debug.
+   */
+  private final boolean verbose;
+
+  /**
+   * The delegate consumer, can be null.
+   */
+  private final StreamConsumer delegate;
+
+  /**
+   * The writer of the full output, can be null. It can be shared
+   * by the consumers of the standard output and the standard error,
+   * so the writes are synchronized on it.
+   */
+  private final Writer tee;
+
+  /**
+   * The tail of the output.
+   */
+  private final Deque<String> tail = new ArrayDeque<>();
+
+  /**
+   * The total number of the lines.
+   */
+  private long lines;
+
+  /**
+   * Is the writing of the full output failed.
+   */
+  private volatile boolean teeFailed;
+
+  /**
+   * Create the consumer.
+   *
+   * @param log the Maven log
+   * @param verbose forward the lines to the info level of the log
+   * @param delegate the delegate consumer, can be null
+   * @param tee the writer of the full output, can be null
+   */
+  public ToolOutput(final Log log, final boolean verbose,
+      final StreamConsumer delegate, final Writer tee) {
+    this.log = log;
+    this.verbose = verbose;
+    this.delegate = delegate;
+    this.tee = tee;
+  }
+
+  /**
+   * Consume the line of the output.
+   *
+   * @param line the line
+   *
+   * @throws IOException if the delegate consumer failed
+   */
+  @Override
+  public void consumeLine(final String line) throws IOException {
+    if (verbose) {
+      if (log.isInfoEnabled()) {
+        log.info(line);
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug(line);
+      }
+    }
+    if (tee != null && !teeFailed) {
+      try {
+        synchronized (tee) {
+          tee.write(line);
+          tee.write(System.lineSeparator());
+        }
+      } catch (IOException ex) {
+        teeFailed = true;
+        if (log.isWarnEnabled()) {
+          log.warn("Unable to write the tool output", ex);
+        }
+      }
+    }
+    synchronized (tail) {
+      if (tail.size() == TAIL_LINES) {
+        tail.removeFirst();
+      }
+      tail.addLast(line);
+      lines++;
+    }
+    if (delegate != null) {
+      delegate.consumeLine(line);
+    }
+  }
+
+  /**
+   * Get the total number of the lines.
+   *
+   * @return the number of the lines
+   */
+  public long getLines() {
+    synchronized (tail) {
+      return lines;
+    }
+  }
+
+  /**
+   * Get the tail of the output.
+   *
+   * @return the last lines of the output
+   */
+  public String getTail() {
+    synchronized (tail) {
+      final StringBuilder result = new StringBuilder();
+      if (lines > tail.size()) {
+        result
+            .append(MessageFormat.format("... {0} lines omitted",
+                Long.toString(lines - tail.size())))
+            .append(System.lineSeparator());
+      }
+      return result
+          .append(String.join(System.lineSeparator(), tail))
+          .toString();
+    }
+  }
+
+  /**
+   * Get the writer which splits the written characters into the lines
+   * consumed by this consumer, i.e. the output of the tool running
+   * inside the current JVM. The last incomplete line is consumed when
+   * the writer is closed.
+   *
+   * @return the writer
+   */
+  public Writer asWriter() {
+    return new Writer() {
+
+      private final StringBuilder line = new StringBuilder();
+
+      @Override
+      public void write(final char[] cbuf, final int off, final int len)
+          throws IOException {
+        synchronized (lock) {
+          for (int i = off; i < off + len; i++) {
+            final char ch = cbuf[i];
+            if (ch == '\n') {
+              consumeBuffer();
+            } else {
+              line.append(ch);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void flush() {
+        // the incomplete line is kept until it is completed
+      }
+
+      @Override
+      public void close() throws IOException {
+        synchronized (lock) {
+          if (line.length() > 0) {
+            consumeBuffer();
+          }
+        }
+      }
+
+      private void consumeBuffer() throws IOException {
+        final int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+          line.setLength(length - 1);
+        }
+        final String text = line.toString();
+        line.setLength(0);
+        consumeLine(text);
+      }
+
+    };
+  }
+
+}
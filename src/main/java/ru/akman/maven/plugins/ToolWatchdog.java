@@ -0,0 +1,225 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.SystemUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineTimeOutException;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+import org.codehaus.plexus.util.cli.StreamPumper;
+
+/**
+ * Watchdog of the tool execution.
+ *
+ * <p>
+ * If the forked tool doesn't finish in time, the thread dump of the tool
+ * is taken (by jcmd Thread.print or, if jcmd is not available, by kill -3,
+ * then the JVM prints the dump into its standard output), the whole process
+ * tree of the tool is killed and the execution fails. The tool running
+ * inside the current JVM ignores the interrupts and can't be killed,
+ * so only the forked tools are watched.
+ * </p>
+ */
+public class ToolWatchdog {
+
+  /**
+   * Timeout of the jcmd execution in seconds.
+   */
+  private static final long JCMD_TIMEOUT = 30L;
+
+  /**
+   * Time given to the JVM to print the thread dump after kill -3.
+   */
+  private static final long DUMP_WAIT_MILLIS = 1_000L;
+
+  /**
+   * Time given to the killed process to exit in seconds.
+   */
+  private static final long KILL_TIMEOUT = 10L;
+
+  /**
+   * Timeout of the tool execution in seconds.
+   */
+  private final long timeout;
+
+  /**
+   * The jcmd executable, can be null.
+   */
+  private final File jcmd;
+
+  /**
+   * Diagnostics captured on the timeout.
+   */
+  private String diagnostics = "";
+
+  /**
+   * Create the watchdog.
+   *
+   * @param timeout the timeout of the tool execution in seconds
+   * @param jcmd the jcmd executable used to take the thread dump,
+   *             can be null
+   */
+  public ToolWatchdog(final long timeout, final File jcmd) {
+    this.timeout = timeout;
+    this.jcmd = jcmd;
+  }
+
+  /**
+   * Get the diagnostics captured on the timeout, i.e. the thread dump.
+   *
+   * @return the diagnostics or an empty string
+   */
+  public String getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * Execute the command line in the separate process.
+   *
+   * @param cmdLine the command line
+   * @param out the consumer of the standard output
+   * @param err the consumer of the standard error
+   *
+   * @return the exit code
+   *
+   * @throws CommandLineTimeOutException if the process timed out
+   * @throws CommandLineException if any errors occurred while processing
+   *                              command line
+   */
+  public int execute(final Commandline cmdLine, final StreamConsumer out,
+      final StreamConsumer err) throws CommandLineException {
+    final Process process = cmdLine.execute();
+    final StreamPumper outPumper =
+        new StreamPumper(process.getInputStream(), out);
+    final StreamPumper errPumper =
+        new StreamPumper(process.getErrorStream(), err);
+    outPumper.start();
+    errPumper.start();
+    try {
+      process.getOutputStream().close();
+      if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+        diagnostics = dumpThreads(process.toHandle());
+        destroyProcessTree(process.toHandle());
+        process.waitFor(KILL_TIMEOUT, TimeUnit.SECONDS);
+        throw new CommandLineTimeOutException(MessageFormat.format(
+            "Error: The process [{0}] did not finish in {1} seconds "
+            + "and was killed", Long.toString(process.pid()),
+            Long.toString(timeout)));
+      }
+      outPumper.waitUntilDone();
+      errPumper.waitUntilDone();
+    } catch (InterruptedException ex) {
+      destroyProcessTree(process.toHandle());
+      Thread.currentThread().interrupt();
+      throw new CommandLineException(
+          "Error: Interrupted while waiting for the process", ex);
+    } catch (IOException ex) {
+      destroyProcessTree(process.toHandle());
+      throw new CommandLineException(
+          "Error: Unable to close the standard input of the process", ex);
+    } finally {
+      outPumper.close();
+      errPumper.close();
+    }
+    if (outPumper.getException() != null) {
+      throw new CommandLineException("Error inside systemOut parser",
+          outPumper.getException());
+    }
+    if (errPumper.getException() != null) {
+      throw new CommandLineException("Error inside systemErr parser",
+          errPumper.getException());
+    }
+    return process.exitValue();
+  }
+
+  /**
+   * Take the thread dump of the process.
+   *
+   * @param process the process
+   *
+   * @return the thread dump or the description where it is written
+   *
+   * @throws InterruptedException if the current thread is interrupted
+   */
+  private String dumpThreads(final ProcessHandle process)
+      throws InterruptedException {
+    final String pid = Long.toString(process.pid());
+    if (jcmd != null) {
+      try {
+        final Path dump = Files.createTempFile("jcmd", ".txt");
+        try {
+          final Process jcmdProcess =
+              new ProcessBuilder(jcmd.toString(), pid, "Thread.print")
+                  .redirectErrorStream(true)
+                  .redirectOutput(dump.toFile())
+                  .start();
+          if (jcmdProcess.waitFor(JCMD_TIMEOUT, TimeUnit.SECONDS)
+              && jcmdProcess.exitValue() == 0) {
+            return new String(Files.readAllBytes(dump),
+                Charset.defaultCharset());
+          }
+          jcmdProcess.destroyForcibly();
+        } finally {
+          Files.deleteIfExists(dump);
+        }
+      } catch (IOException ex) {
+        // fallback to kill -3
+      }
+    }
+    if (!SystemUtils.IS_OS_WINDOWS) {
+      try {
+        final Process kill = new ProcessBuilder("kill", "-3", pid).start();
+        if (kill.waitFor(JCMD_TIMEOUT, TimeUnit.SECONDS)
+            && kill.exitValue() == 0) {
+          Thread.sleep(DUMP_WAIT_MILLIS);
+          return MessageFormat.format(
+              "The thread dump of the process [{0}] is written into "
+              + "its standard output", pid);
+        }
+      } catch (IOException ex) {
+        // the thread dump is not available
+      }
+    }
+    return MessageFormat.format(
+        "The thread dump of the process [{0}] is not available", pid);
+  }
+
+  /**
+   * Kill the process and all its descendants.
+   *
+   * @param process the process
+   */
+  private static void destroyProcessTree(final ProcessHandle process) {
+    // the descendants are collected before the parent is killed,
+    // otherwise they are reparented and can't be found
+    final List<ProcessHandle> descendants =
+        process.descendants().collect(Collectors.toList());
+    process.destroyForcibly();
+    descendants.forEach(ProcessHandle::destroyForcibly);
+  }
+
+}
@@ -0,0 +1,442 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import ru.akman.maven.plugins.JsonWriter;
+
+/**
+ * The benchmark goal measures the startup of the linked image.
+ *
+ * <p>
+ * The launcher of the image is run several times after the warmup runs.
+ * The time to the readiness marker printed by the application (or to
+ * the exit of the application), the peak resident set size (Linux only)
+ * and the size of the image on disk are written into the JSON report,
+ * so the startup regressions can be tracked and the releases can be gated
+ * by the startup budget.
+ * </p>
+ */
+@Mojo(
+    name = "benchmark"
+)
+public class BenchmarkMojo extends AbstractMojo {
+
+  /**
+   * The name of the subdirectory of the image where the launchers live.
+   */
+  private static final String IMAGE_BIN = "bin";
+
+  /**
+   * The extension of the Windows launcher script.
+   */
+  private static final String WIN_SCRIPT_EXT = ".bat";
+
+  /**
+   * The number of nanoseconds in the millisecond.
+   */
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  /**
+   * The name of the project property of the source encoding.
+   */
+  private static final String SOURCE_ENCODING_PROPERTY =
+      "project.build.sourceEncoding";
+
+  /**
+   * The reported percentiles.
+   */
+  private static final List<Integer> PERCENTILES = List.of(50, 90, 99);
+
+  /**
+   * Maven project.
+   */
+  @Parameter(
+      defaultValue = "${project}",
+      readonly = true,
+      required = true
+  )
+  private MavenProject project;
+
+  /**
+   * Specifies the location of the linked runtime image.
+   */
+  @Parameter(
+      defaultValue = "${project.build.directory}/jlink/image"
+  )
+  private File output;
+
+  /**
+   * Specifies the launcher of the image to run, the launcher script
+   * named by the launcher command is run from the "bin" directory
+   * of the image.
+   */
+  @Parameter
+  private Launcher launcher;
+
+  /**
+   * Specifies the arguments passed to the launcher by the benchmark runs.
+   */
+  @Parameter
+  private String benchmarkargs;
+
+  /**
+   * Specifies the number of the measured runs.
+   */
+  @Parameter(
+      defaultValue = "10"
+  )
+  private int benchmarkruns;
+
+  /**
+   * Specifies the number of the warmup runs which are not measured
+   * (they populate the file system cache).
+   */
+  @Parameter(
+      defaultValue = "2"
+  )
+  private int benchmarkwarmups;
+
+  /**
+   * Specifies the regular expression of the readiness marker printed
+   * by the application on the standard output. The startup time is
+   * the time to the first line matching the marker, then the application
+   * and its descendants are destroyed. If the marker is not specified
+   * the startup time is the time to the exit of the application.
+   */
+  @Parameter
+  private String benchmarkmarker;
+
+  /**
+   * Specifies the timeout of every run in seconds.
+   */
+  @Parameter(
+      defaultValue = "60"
+  )
+  private int benchmarktimeout;
+
+  /**
+   * Specifies the location of the JSON report of the benchmark.
+   */
+  @Parameter(
+      defaultValue = "${project.build.directory}/jlink/benchmark.json"
+  )
+  private File benchmarkreport;
+
+  /**
+   * Specifies the startup budget in milliseconds. The build fails if
+   * the median startup time exceeds the budget. Zero disables the check.
+   */
+  @Parameter(
+      defaultValue = "0"
+  )
+  private long benchmarkbudget;
+
+  /**
+   * Execute goal.
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    final Path image = output.toPath();
+    if (!Files.isDirectory(image)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: The image does not exist: [{0}]", image));
+    }
+    final List<String> command = getCommand(image);
+    final Pattern marker = getMarker();
+    final StartupBenchmark benchmark = new StartupBenchmark(command,
+        project.getBasedir(), marker,
+        TimeUnit.SECONDS.toMillis(benchmarktimeout),
+        Charset.defaultCharset());
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Benchmarking startup of the image: {0} ({1} warmup runs,"
+          + " {2} measured runs)", String.join(" ", command),
+          Integer.toString(benchmarkwarmups),
+          Integer.toString(benchmarkruns)));
+    }
+    final List<Long> startups = new ArrayList<>();
+    final List<Long> peakRss = new ArrayList<>();
+    try {
+      for (int i = 0; i < benchmarkwarmups; i++) {
+        benchmark.run();
+      }
+      for (int i = 0; i < benchmarkruns; i++) {
+        final StartupBenchmark.Sample sample = benchmark.run();
+        startups.add(sample.getStartup());
+        if (sample.getPeakRss() >= 0L) {
+          peakRss.add(sample.getPeakRss());
+        }
+        if (getLog().isDebugEnabled()) {
+          getLog().debug(MessageFormat.format(
+              "Run {0}: {1} ms, peak RSS {2} kB",
+              Integer.toString(i + 1), toMillis(sample.getStartup()),
+              Long.toString(sample.getPeakRss())));
+        }
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException(
+          "Error: Unable to run the benchmark of the image", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException(
+          "Error: The benchmark of the image was interrupted", ex);
+    }
+    final long imageSize = getImageSize(image);
+    writeReport(image, command, imageSize, startups, peakRss);
+    final long median = StartupBenchmark.percentile(startups, 50.0);
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Startup: median {0} ms, p90 {1} ms, p99 {2} ms,"
+          + " peak RSS {3} kB, image size {4} bytes",
+          toMillis(median),
+          toMillis(StartupBenchmark.percentile(startups, 90.0)),
+          toMillis(StartupBenchmark.percentile(startups, 99.0)),
+          peakRss.isEmpty() ? "n/a" : Long.toString(
+              StartupBenchmark.percentile(peakRss, 50.0)),
+          Long.toString(imageSize)));
+    }
+    if (benchmarkbudget > 0L
+        && median > TimeUnit.MILLISECONDS.toNanos(benchmarkbudget)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: The median startup time {0} ms exceeds the budget {1} ms",
+          toMillis(median), Long.toString(benchmarkbudget)));
+    }
+  }
+
+  /**
+   * Get the command which runs the launcher of the image.
+   *
+   * @param image the image directory
+   *
+   * @return the command line
+   *
+   * @throws MojoExecutionException if the launcher is not found
+   */
+  private List<String> getCommand(final Path image)
+      throws MojoExecutionException {
+    final String scriptName = launcher == null ? ""
+        : StringUtils.stripToEmpty(launcher.getCommand());
+    if (StringUtils.isBlank(scriptName)) {
+      throw new MojoExecutionException(
+          "Error: The launcher command is not specified");
+    }
+    final Path script = image.resolve(IMAGE_BIN).resolve(
+        SystemUtils.IS_OS_WINDOWS ? scriptName + WIN_SCRIPT_EXT : scriptName);
+    if (!Files.isRegularFile(script)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: The launcher script does not exist: [{0}]", script));
+    }
+    final List<String> command = new ArrayList<>();
+    if (SystemUtils.IS_OS_WINDOWS) {
+      command.add("cmd.exe");
+      command.add("/c");
+    }
+    command.add(script.toString());
+    if (!StringUtils.isBlank(benchmarkargs)) {
+      try {
+        command.addAll(Arrays.asList(
+            CommandLineUtils.translateCommandline(benchmarkargs)));
+      } catch (Exception ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Unable to parse the benchmark arguments: [{0}]",
+            benchmarkargs), ex);
+      }
+    }
+    return command;
+  }
+
+  /**
+   * Get the readiness marker.
+   *
+   * @return the compiled marker or null if it's not specified
+   *
+   * @throws MojoExecutionException if the marker is not valid
+   */
+  private Pattern getMarker() throws MojoExecutionException {
+    if (StringUtils.isEmpty(benchmarkmarker)) {
+      return null;
+    }
+    try {
+      return Pattern.compile(benchmarkmarker);
+    } catch (PatternSyntaxException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Invalid readiness marker: [{0}]", benchmarkmarker), ex);
+    }
+  }
+
+  /**
+   * Get the size of the image on disk.
+   *
+   * @param image the image directory
+   *
+   * @return the total size of the files of the image in bytes
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private static long getImageSize(final Path image)
+      throws MojoExecutionException {
+    try {
+      return PluginUtils.getDirectorySize(image);
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to compute the size of the image: [{0}]", image),
+          ex);
+    }
+  }
+
+  /**
+   * Write the JSON report of the benchmark.
+   *
+   * @param image the image directory
+   * @param command the benchmarked command
+   * @param imageSize the size of the image on disk
+   * @param startups the startup times in nanoseconds
+   * @param peakRss the peak resident set sizes in kilobytes
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void writeReport(final Path image, final List<String> command,
+      final long imageSize, final List<Long> startups,
+      final List<Long> peakRss) throws MojoExecutionException {
+    final JsonWriter json = new JsonWriter().beginObject();
+    json.name("image").value(image.toString());
+    json.name("command").beginArray();
+    for (final String arg : command) {
+      json.value(arg);
+    }
+    json.endArray();
+    json.name("marker").value(benchmarkmarker);
+    json.name("warmups").value(benchmarkwarmups);
+    json.name("runs").value(benchmarkruns);
+    json.name("imageSize").value(imageSize);
+    json.name("startupMillis").beginObject();
+    writeStatistics(json, startups, true);
+    json.endObject();
+    json.name("peakRssKilobytes");
+    if (peakRss.isEmpty()) {
+      json.value((Number) null);
+    } else {
+      json.beginObject();
+      writeStatistics(json, peakRss, false);
+      json.endObject();
+    }
+    json.name("budgetMillis").value(benchmarkbudget);
+    json.endObject();
+    final Path reportPath = benchmarkreport.toPath();
+    try {
+      if (reportPath.getParent() != null) {
+        Files.createDirectories(reportPath.getParent());
+      }
+      Files.write(reportPath,
+          (json + System.lineSeparator()).getBytes(getCharset()));
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write the benchmark report: [{0}]", reportPath),
+          ex);
+    }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Benchmark report: [{0}]", reportPath));
+    }
+  }
+
+  /**
+   * Get the charset of the report.
+   *
+   * @return the project source encoding or the default charset
+   */
+  private Charset getCharset() {
+    final String encoding = project.getProperties().getProperty(
+        SOURCE_ENCODING_PROPERTY);
+    return encoding == null ? Charset.defaultCharset()
+        : Charset.forName(encoding);
+  }
+
+  /**
+   * Write the statistics of the values.
+   *
+   * @param json the JSON writer
+   * @param values the values
+   * @param nanos are the values the times in nanoseconds
+   */
+  private static void writeStatistics(final JsonWriter json,
+      final List<Long> values, final boolean nanos) {
+    json.name("min").value(toValue(
+        StartupBenchmark.percentile(values, 0.0), nanos));
+    for (final Integer percentile : PERCENTILES) {
+      json.name(percentile == 50 ? "median" : "p" + percentile)
+          .value(toValue(StartupBenchmark.percentile(values, percentile),
+              nanos));
+    }
+    json.name("max").value(toValue(
+        StartupBenchmark.percentile(values, 100.0), nanos));
+    json.name("samples").beginArray();
+    for (final Long value : values) {
+      json.value(toValue(value, nanos));
+    }
+    json.endArray();
+  }
+
+  /**
+   * Convert the value for the report.
+   *
+   * @param value the value
+   * @param nanos is the value the time in nanoseconds
+   *
+   * @return the milliseconds if the value is the time or the value itself
+   */
+  private static Number toValue(final long value, final boolean nanos) {
+    return nanos ? (Number) (Math.round(value / 1_000.0) / 1_000.0)
+        : (Number) value;
+  }
+
+  /**
+   * Format the time in milliseconds.
+   *
+   * @param nanos the time in nanoseconds
+   *
+   * @return the formatted time in milliseconds
+   */
+  private static String toMillis(final long nanos) {
+    return String.format(Locale.ROOT, "%.1f",
+        nanos / NANOS_PER_MILLI);
+  }
+
+}
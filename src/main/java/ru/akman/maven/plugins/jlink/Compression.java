@@ -18,29 +18,85 @@ package ru.akman.maven.plugins.jlink;
 
 /**
  * Compression type.
+ *
+ * <p>
+ * The legacy levels 0, 1 and 2 are supported by all versions of the jlink
+ * tool, the zip levels zip-0 ... zip-9 are supported since JDK 21.
+ * </p>
  */
 public enum Compression {
 
   /**
    * Select no compression.
    */
-  NO_COMPRESSION(0),
+  NO_COMPRESSION(0, false),
   /**
    * Select constant string sharing.
    */
-  CONSTANT_STRING_SHARING(1),
+  CONSTANT_STRING_SHARING(1, false),
   /**
    * Select zip compression.
    */
-  ZIP(2);
-  
+  ZIP(2, false),
+  /**
+   * Select zip compression level 0 (no compression).
+   */
+  ZIP_0(0, true),
+  /**
+   * Select zip compression level 1 (best speed).
+   */
+  ZIP_1(1, true),
+  /**
+   * Select zip compression level 2.
+   */
+  ZIP_2(2, true),
+  /**
+   * Select zip compression level 3.
+   */
+  ZIP_3(3, true),
+  /**
+   * Select zip compression level 4.
+   */
+  ZIP_4(4, true),
+  /**
+   * Select zip compression level 5.
+   */
+  ZIP_5(5, true),
+  /**
+   * Select zip compression level 6 (same as ZIP).
+   */
+  ZIP_6(6, true),
+  /**
+   * Select zip compression level 7.
+   */
+  ZIP_7(7, true),
+  /**
+   * Select zip compression level 8.
+   */
+  ZIP_8(8, true),
+  /**
+   * Select zip compression level 9 (best compression).
+   */
+  ZIP_9(9, true);
+
+  /**
+   * The first JDK version which supports the zip levels.
+   */
+  public static final int ZIP_LEVELS_VERSION = 21;
+
   /**
    * Compression level.
    */
   private final int value;
-  
-  Compression(final int value) {
+
+  /**
+   * Is it the zip level.
+   */
+  private final boolean zipLevel;
+
+  Compression(final int value, final boolean zipLevel) {
     this.value = value;
+    this.zipLevel = zipLevel;
   }
 
   /**
@@ -52,4 +108,45 @@ public enum Compression {
     return value;
   }
 
+  /**
+   * Check whether it is the zip level (zip-0 ... zip-9).
+   *
+   * @return true if it is the zip level
+   */
+  public boolean isZipLevel() {
+    return zipLevel;
+  }
+
+  /**
+   * Get the value of the jlink option --compress.
+   *
+   * <p>
+   * The zip levels are converted to the nearest legacy level for the jlink
+   * tool older than JDK 21: zip-0 to 0 and other zip levels to 2.
+   * </p>
+   *
+   * @param version the feature version of the jlink tool
+   *
+   * @return the value of the option
+   */
+  public String getOption(final int version) {
+    if (!zipLevel) {
+      return Integer.toString(value);
+    }
+    if (version >= ZIP_LEVELS_VERSION) {
+      return "zip-" + value;
+    }
+    return value == 0 ? NO_COMPRESSION.getOption(version)
+        : ZIP.getOption(version);
+  }
+
+  /**
+   * Get the name of the level used in the reports.
+   *
+   * @return the zip level (zip-N) or the legacy level (0, 1 or 2)
+   */
+  public String getLevelName() {
+    return zipLevel ? "zip-" + value : Integer.toString(value);
+  }
+
 }
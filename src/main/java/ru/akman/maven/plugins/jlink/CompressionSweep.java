@@ -0,0 +1,167 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sweep of the compression levels.
+ *
+ * <p>
+ * The image is linked at every candidate level, the size of the image
+ * and the startup time of the training command are measured and the level
+ * which meets the size budget with the lowest startup time is selected.
+ * </p>
+ */
+public class CompressionSweep {
+
+  /**
+   * Default number of the measured runs of every candidate image.
+   */
+  private static final int DEFAULT_RUNS = 5;
+
+  /**
+   * Candidate compression levels.
+   */
+  private List<Compression> levels;
+
+  /**
+   * Size budget of the image, i.e. 64M.
+   */
+  private String sizebudget;
+
+  /**
+   * Number of the measured runs of every candidate image.
+   */
+  private int runs = DEFAULT_RUNS;
+
+  /**
+   * Regular expression of the readiness marker.
+   */
+  private String marker;
+
+  /**
+   * Get candidate compression levels.
+   *
+   * @return the candidate compression levels
+   */
+  public List<Compression> getLevels() {
+    return this.levels;
+  }
+
+  /**
+   * Set candidate compression levels.
+   *
+   * @param levels the candidate compression levels
+   */
+  public void setLevels(final List<Compression> levels) {
+    this.levels = levels;
+  }
+
+  /**
+   * Get size budget of the image.
+   *
+   * @return the size budget of the image
+   */
+  public String getSizeBudget() {
+    return this.sizebudget;
+  }
+
+  /**
+   * Set size budget of the image.
+   *
+   * @param sizebudget the size budget of the image, i.e. 64M
+   */
+  public void setSizeBudget(final String sizebudget) {
+    this.sizebudget = sizebudget;
+  }
+
+  /**
+   * Get number of the measured runs.
+   *
+   * @return the number of the measured runs of every candidate image
+   */
+  public int getRuns() {
+    return this.runs;
+  }
+
+  /**
+   * Set number of the measured runs.
+   *
+   * @param runs the number of the measured runs of every candidate image
+   */
+  public void setRuns(final int runs) {
+    this.runs = runs;
+  }
+
+  /**
+   * Get regular expression of the readiness marker.
+   *
+   * @return the regular expression of the readiness marker
+   */
+  public String getMarker() {
+    return this.marker;
+  }
+
+  /**
+   * Set regular expression of the readiness marker.
+   *
+   * @param marker the regular expression of the readiness marker
+   */
+  public void setMarker(final String marker) {
+    this.marker = marker;
+  }
+
+  /**
+   * Select the compression level which meets the size budget with
+   * the lowest startup time.
+   *
+   * @param results the size and the startup time of the images
+   *                by the compression level
+   * @param budget the size budget in bytes, 0 means no budget
+   *
+   * @return the selected level, the first one of the equally fast levels,
+   *         or null if no level meets the budget
+   */
+  public static Compression selectFastestLevel(
+      final Map<Compression, long[]> results, final long budget) {
+    return results.entrySet().stream()
+        .filter(entry -> budget <= 0L || entry.getValue()[0] <= budget)
+        .min((a, b) -> Long.compare(a.getValue()[1], b.getValue()[1]))
+        .map(Map.Entry::getKey)
+        .orElse(null);
+  }
+
+  /**
+   * Select the compression level of the smallest image.
+   *
+   * @param results the size and the startup time of the images
+   *                by the compression level
+   *
+   * @return the selected level, the first one of the equally small levels,
+   *         or null if there are no results
+   */
+  public static Compression selectSmallestLevel(
+      final Map<Compression, long[]> results) {
+    return results.entrySet().stream()
+        .min((a, b) -> Long.compare(a.getValue()[0], b.getValue()[0]))
+        .map(Map.Entry::getKey)
+        .orElse(null);
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled matcher of the dependencies for the dependencyset.
+ *
+ * <p>
+ * The file patterns are compiled once into the path matchers and
+ * the module name patterns are merged into the single regular expression
+ * (or used one by one if they can't be merged, i.e. they contain
+ * back references or inline flags). The results are memoized
+ * per dependency file.
+ * </p>
+ */
+public class DependencyMatcher {
+
+  /**
+   * Pattern of the constructs which can't be merged into
+   * the single regular expression: back references and inline flags.
+   */
+  private static final Pattern UNMERGEABLE =
+      Pattern.compile("\\\\(\\d|k<)|\\(\\?(?=[a-zA-Z-])[a-zA-Z]*(-[a-zA-Z]*)?[:)]");
+
+  /**
+   * Include file patterns.
+   */
+  private final List<PathMatcher> includes;
+
+  /**
+   * Include module name patterns.
+   */
+  private final List<Pattern> includenames;
+
+  /**
+   * Exclude file patterns.
+   */
+  private final List<PathMatcher> excludes;
+
+  /**
+   * Exclude module name patterns.
+   */
+  private final List<Pattern> excludenames;
+
+  /**
+   * Memoized results.
+   */
+  private final Map<File, Boolean> results = new HashMap<>();
+
+  /**
+   * Create the matcher for the dependencyset.
+   *
+   * @param depSet the dependencyset
+   *
+   * @throws IllegalArgumentException if the file pattern is invalid
+   * @throws PatternSyntaxException if the module name pattern is invalid
+   */
+  public DependencyMatcher(final DependencySet depSet) {
+    includes = compilePathPatterns(depSet.getIncludes());
+    includenames = compileNamePatterns(depSet.getIncludeNames());
+    excludes = compilePathPatterns(depSet.getExcludes());
+    excludenames = compileNamePatterns(depSet.getExcludeNames());
+  }
+
+  /**
+   * Checks whether the dependency matches at least one include pattern
+   * and doesn't match any exclude pattern. If no include patterns are
+   * specified, then the dependency is included.
+   *
+   * @param file the dependency file
+   * @param name the dependency module name
+   *
+   * @return will the dependency be accepted
+   */
+  public boolean matches(final File file, final String name) {
+    return results.computeIfAbsent(file, key -> {
+      final Path path = key.toPath();
+      final boolean included = (includes.isEmpty() && includenames.isEmpty())
+          || pathMatches(includes, path) || nameMatches(includenames, name);
+      return included
+          && !pathMatches(excludes, path) && !nameMatches(excludenames, name);
+    });
+  }
+
+  /**
+   * Checks if the path matches at least one of the matchers.
+   *
+   * @param matchers the list of matchers
+   * @param path the file path
+   *
+   * @return true if the path matches at least one of the matchers
+   */
+  static boolean pathMatches(final List<PathMatcher> matchers,
+      final Path path) {
+    for (final PathMatcher matcher : matchers) {
+      if (matcher.matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the name matches at least one of the patterns.
+   *
+   * @param patterns the list of patterns
+   * @param name the name
+   *
+   * @return true if the name matches at least one of the patterns
+   */
+  static boolean nameMatches(final List<Pattern> patterns,
+      final String name) {
+    for (final Pattern pattern : patterns) {
+      if (pattern.matcher(name).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compile the file patterns. The pattern should be regex or glob,
+   * this is determined by the prefix specified in the pattern.
+   *
+   * @param patterns the list of patterns, can be null
+   *
+   * @return the list of the path matchers
+   */
+  private static List<PathMatcher> compilePathPatterns(
+      final List<String> patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return patterns.stream()
+        .map(FileSystems.getDefault()::getPathMatcher)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Compile the module name patterns. The pattern should be regex only.
+   *
+   * @param patterns the list of patterns, can be null
+   *
+   * @return the list of the compiled patterns
+   *
+   * @throws PatternSyntaxException if the pattern is invalid
+   */
+  static List<Pattern> compileNamePatterns(
+      final List<String> patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<Pattern> result = new ArrayList<>();
+    for (final String pattern : patterns) {
+      result.add(Pattern.compile(pattern));
+    }
+    if (result.size() > 1
+        && patterns.stream().noneMatch(p -> UNMERGEABLE.matcher(p).find())) {
+      try {
+        return Collections.singletonList(Pattern.compile(patterns.stream()
+            .collect(Collectors.joining(")|(?:", "(?:", ")"))));
+      } catch (PatternSyntaxException ex) {
+        // use the patterns compiled one by one
+      }
+    }
+    return result;
+  }
+
+}
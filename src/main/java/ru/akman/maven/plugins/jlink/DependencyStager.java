@@ -0,0 +1,418 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Incremental stager of the dependencies.
+ *
+ * <p>
+ * The files are staged into the staging directory only if they are changed,
+ * i.e. the size or the last modified time (or the content if the checksum
+ * comparison is enabled) of the staged file differs from the source file,
+ * or if the staged file was staged in the other mode, i.e. the hard link
+ * is staged again in the copy mode.
+ * The files are staged in parallel and the orphaned files that don't
+ * belong to the dependencies anymore are removed from the staging directory.
+ * </p>
+ *
+ * <p>
+ * Depending on the staging mode the files are copied, hard linked,
+ * symbolic linked or cloned (copy-on-write). If the link or the clone can't
+ * be created, i.e. the file system doesn't support it, the stager falls back
+ * to copy for the rest of the files.
+ * </p>
+ */
+public class DependencyStager {
+
+  /**
+   * Suffix of the temporary files.
+   */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /**
+   * Command used to clone files.
+   */
+  private static final String CP = "cp";
+
+  /**
+   * Maximum number of the threads used to stage files.
+   */
+  private final int threads;
+
+  /**
+   * Compare the contents of the files.
+   */
+  private final boolean checksum;
+
+  /**
+   * Staging mode.
+   */
+  private volatile StagingMode mode;
+
+  /**
+   * Create the stager.
+   *
+   * @param threads the maximum number of the threads used to stage files
+   * @param checksum compare the contents of the files with the same size
+   * @param mode the staging mode
+   */
+  public DependencyStager(final int threads, final boolean checksum,
+      final StagingMode mode) {
+    this.threads = Math.max(1, threads);
+    this.checksum = checksum;
+    this.mode = mode == null ? StagingMode.COPY : mode;
+  }
+
+  /**
+   * Get the staging mode. It can differ from the requested mode if
+   * the stager has fallen back to copy.
+   *
+   * @return the staging mode
+   */
+  public StagingMode getMode() {
+    return mode;
+  }
+
+  /**
+   * Stage the files into the directory. The directories and the missing
+   * files are skipped. If several files have the same name the last one
+   * is staged.
+   *
+   * @param files the files to stage
+   * @param dir the staging directory
+   *
+   * @return the result of the staging
+   *
+   * @throws IOException if any errors occurred while staging files
+   */
+  public Result stage(final List<File> files, final Path dir)
+      throws IOException {
+    final Result result = new Result();
+    final Map<String, Path> sources = new LinkedHashMap<>();
+    for (final File file : files) {
+      if (file.isFile()) {
+        sources.put(file.getName(), file.toPath().toAbsolutePath());
+      }
+    }
+    Files.createDirectories(dir);
+    // remove orphaned files
+    final List<Path> orphans;
+    try (Stream<Path> stream = Files.list(dir)) {
+      orphans = stream
+          .filter(path -> !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+          .filter(path -> !sources.containsKey(path.getFileName().toString()))
+          .collect(Collectors.toList());
+    }
+    for (final Path orphan : orphans) {
+      Files.delete(orphan);
+      result.removed++;
+    }
+    // stage changed files
+    final List<Callable<Result>> tasks = new ArrayList<>();
+    for (final Map.Entry<String, Path> entry : sources.entrySet()) {
+      final Path source = entry.getValue();
+      final Path target = dir.resolve(entry.getKey());
+      tasks.add(() -> stage(source, target));
+    }
+    if (tasks.isEmpty()) {
+      return result;
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(threads, tasks.size()));
+    try {
+      for (final Future<Result> future : executor.invokeAll(tasks)) {
+        result.add(future.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Staging of the dependencies was interrupted", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException(ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return result;
+  }
+
+  /**
+   * Stage the file if it is changed.
+   *
+   * @param source the source file
+   * @param target the staged file
+   *
+   * @return the result of the staging
+   *
+   * @throws IOException if any errors occurred while staging the file
+   */
+  private Result stage(final Path source, final Path target)
+      throws IOException {
+    final Result result = new Result();
+    if (isUpToDate(source, target)) {
+      result.skipped++;
+      return result;
+    }
+    final Path temp = target.resolveSibling(target.getFileName()
+        + TEMP_SUFFIX);
+    try {
+      Files.deleteIfExists(temp);
+      if (link(source, temp)) {
+        result.linked++;
+      } else {
+        Files.copy(source, temp, StandardCopyOption.COPY_ATTRIBUTES);
+        result.copied++;
+        result.bytes += Files.size(temp);
+      }
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return result;
+  }
+
+  /**
+   * Check whether the staged file is up to date.
+   *
+   * @param source the source file
+   * @param target the staged file
+   *
+   * @return true if the staged file is up to date
+   *
+   * @throws IOException if any errors occurred while reading files
+   */
+  private boolean isUpToDate(final Path source, final Path target)
+      throws IOException {
+    if (Files.isSymbolicLink(target)) {
+      return mode == StagingMode.SYMLINK
+          && source.equals(Files.readSymbolicLink(target));
+    }
+    if (!Files.isRegularFile(target)) {
+      return false;
+    }
+    // the hard link staged in the other mode must be replaced by the copy
+    // and vice versa, the copy is kept if the hard link can't be created
+    // across the file systems
+    final boolean sameFile = Files.isSameFile(source, target);
+    if (mode == StagingMode.HARDLINK && isSameFileStore(source, target)) {
+      return sameFile;
+    }
+    if (sameFile || Files.size(source) != Files.size(target)) {
+      return false;
+    }
+    if (checksum) {
+      final Fingerprint fingerprint = new Fingerprint();
+      return fingerprint.getFileDigest(source).equals(
+          fingerprint.getFileDigest(target));
+    }
+    return Files.getLastModifiedTime(source).toMillis()
+        == Files.getLastModifiedTime(target).toMillis();
+  }
+
+  /**
+   * Check whether the files are on the same file store.
+   *
+   * @param source the source file
+   * @param target the staged file
+   *
+   * @return true if the files are on the same file store
+   *
+   * @throws IOException if any errors occurred while reading file stores
+   */
+  private static boolean isSameFileStore(final Path source, final Path target)
+      throws IOException {
+    return Files.getFileStore(source).equals(Files.getFileStore(target));
+  }
+
+  /**
+   * Link or clone the file according to the staging mode. If the link
+   * or the clone can't be created the staging mode falls back to copy.
+   *
+   * @param source the source file
+   * @param target the target file
+   *
+   * @return true if the link or the clone is created
+   */
+  private boolean link(final Path source, final Path target) {
+    final StagingMode current = mode;
+    try {
+      switch (current) {
+        case HARDLINK:
+          Files.createLink(target, source);
+          return true;
+        case SYMLINK:
+          Files.createSymbolicLink(target, source);
+          return true;
+        case REFLINK:
+          if (reflink(source, target)) {
+            return true;
+          }
+          break;
+        default:
+          return false;
+      }
+    } catch (IOException | UnsupportedOperationException ex) {
+      // fall back to copy
+    }
+    mode = StagingMode.COPY;
+    return false;
+  }
+
+  /**
+   * Clone the file (copy-on-write) using the FICLONE ioctl
+   * via the cp command.
+   *
+   * @param source the source file
+   * @param target the target file
+   *
+   * @return true if the clone is created
+   *
+   * @throws IOException if any errors occurred while cloning the file
+   */
+  private static boolean reflink(final Path source, final Path target)
+      throws IOException {
+    final Process process = new ProcessBuilder(CP, "--reflink=always",
+        "--preserve=mode,timestamps", source.toString(), target.toString())
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    try {
+      if (process.waitFor() == 0) {
+        Files.setLastModifiedTime(target,
+            FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis()));
+        return true;
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      process.destroy();
+    }
+    Files.deleteIfExists(target);
+    return false;
+  }
+
+  /**
+   * Result of the staging.
+   */
+  public static class Result {
+
+    /**
+     * Number of the copied files.
+     */
+    private int copied;
+
+    /**
+     * Number of the linked or cloned files.
+     */
+    private int linked;
+
+    /**
+     * Number of the up to date files.
+     */
+    private int skipped;
+
+    /**
+     * Number of the removed orphaned files.
+     */
+    private int removed;
+
+    /**
+     * Number of the copied bytes.
+     */
+    private long bytes;
+
+    /**
+     * Add the other result to this one.
+     *
+     * @param other the other result
+     */
+    private void add(final Result other) {
+      copied += other.copied;
+      linked += other.linked;
+      skipped += other.skipped;
+      removed += other.removed;
+      bytes += other.bytes;
+    }
+
+    /**
+     * Get number of the copied files.
+     *
+     * @return number of the copied files
+     */
+    public int getCopied() {
+      return copied;
+    }
+
+    /**
+     * Get number of the linked or cloned files.
+     *
+     * @return number of the linked or cloned files
+     */
+    public int getLinked() {
+      return linked;
+    }
+
+    /**
+     * Get number of the up to date files.
+     *
+     * @return number of the up to date files
+     */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    /**
+     * Get number of the removed orphaned files.
+     *
+     * @return number of the removed orphaned files
+     */
+    public int getRemoved() {
+      return removed;
+    }
+
+    /**
+     * Get number of the copied bytes.
+     *
+     * @return number of the copied bytes
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+  }
+
+}
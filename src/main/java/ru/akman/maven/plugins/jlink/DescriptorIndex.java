@@ -0,0 +1,508 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor.JavaRequires.JavaModifier;
+import org.codehaus.plexus.languages.java.jpms.ModuleNameSource;
+
+/**
+ * Persistent index of the module descriptors of the jar files.
+ *
+ * <p>
+ * Every entry is keyed by the absolute path of the jar file and remembers
+ * the size and the last modified time of the file, so the entry becomes
+ * stale automatically when the file is changed. The entry remembers
+ * the Java release used to select the versioned entries of the multi-release
+ * jar too, so the entry becomes stale when the toolchain is switched. The entry stores the source
+ * of the module name and the module descriptor: the name, the automatic
+ * flag, the requires, the exports, the uses and the provides.
+ * </p>
+ *
+ * <p>
+ * The index file is shared by the builds, so only the entries put by this
+ * build are merged into the entries stored in the file by other builds.
+ * The merge is done under the file lock.
+ * </p>
+ */
+public class DescriptorIndex {
+
+  /**
+   * Comment stored in the index file.
+   */
+  private static final String COMMENT = "Module descriptors index";
+
+  /**
+   * Key suffix for the size of the file.
+   */
+  private static final String SIZE = ".size";
+
+  /**
+   * Key suffix for the last modified time of the file.
+   */
+  private static final String MTIME = ".mtime";
+
+  /**
+   * Key suffix for the Java release.
+   */
+  private static final String RELEASE = ".release";
+
+  /**
+   * Key suffix for the source of the module name.
+   */
+  private static final String SOURCE = ".source";
+
+  /**
+   * Key suffix for the module name.
+   */
+  private static final String NAME = ".name";
+
+  /**
+   * Key suffix for the automatic flag.
+   */
+  private static final String AUTOMATIC = ".automatic";
+
+  /**
+   * Key suffix for the requires.
+   */
+  private static final String REQUIRES = ".requires";
+
+  /**
+   * Key suffix for the exports.
+   */
+  private static final String EXPORTS = ".exports";
+
+  /**
+   * Key suffix for the uses.
+   */
+  private static final String USES = ".uses";
+
+  /**
+   * Key suffix for the provides.
+   */
+  private static final String PROVIDES = ".provides";
+
+  /**
+   * Separator of the items of the list.
+   */
+  private static final String ITEM_SEPARATOR = " ";
+
+  /**
+   * Separator of the item and its values.
+   */
+  private static final String VALUE_SEPARATOR = ":";
+
+  /**
+   * Separator of the values.
+   */
+  private static final String VALUES_SEPARATOR = "+";
+
+  /**
+   * Key suffixes of the entry.
+   */
+  private static final List<String> SUFFIXES = List.of(SIZE, MTIME, RELEASE,
+      SOURCE, NAME, AUTOMATIC, REQUIRES, EXPORTS, USES, PROVIDES);
+
+  /**
+   * Suffix of the lock file.
+   */
+  private static final String LOCK_SUFFIX = ".lock";
+
+  /**
+   * Lock of the index files inside the current JVM, the file locks are
+   * held on behalf of the whole JVM and can't be used by its threads.
+   */
+  private static final Object JVM_LOCK = new Object();
+
+  /**
+   * Index file.
+   */
+  private final Path file;
+
+  /**
+   * Keys of the entries put by this build.
+   */
+  private final Set<String> updated = new HashSet<>();
+
+  /**
+   * Index entries.
+   */
+  private final Properties entries = new Properties();
+
+  /**
+   * Is the index modified since it was loaded.
+   */
+  private volatile boolean modified;
+
+  /**
+   * Create the index backed by the specified file.
+   *
+   * @param file the index file
+   */
+  public DescriptorIndex(final Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Load the index entries from the index file if it exists.
+   *
+   * @throws IOException if any errors occurred while reading the index file
+   */
+  public void load() throws IOException {
+    synchronized (entries) {
+      entries.clear();
+      updated.clear();
+      modified = false;
+      read(entries);
+    }
+  }
+
+  /**
+   * Read the entries from the index file if it exists.
+   *
+   * @param target the properties to read the entries into
+   *
+   * @throws IOException if any errors occurred while reading the index file
+   */
+  private void read(final Properties target) throws IOException {
+    if (Files.isRegularFile(file)) {
+      try (InputStream in = Files.newInputStream(file)) {
+        target.load(in);
+      }
+    }
+  }
+
+  /**
+   * Get the indexed module descriptor of the jar file.
+   *
+   * @param jar the jar file
+   * @param release the Java release used to select the versioned entries
+   *                of the multi-release jar
+   *
+   * @return the indexed entry or null if it is missing or stale
+   *
+   * @throws IOException if any errors occurred while reading attributes
+   *                     of the jar file
+   */
+  public Entry get(final Path jar, final int release) throws IOException {
+    final String key = jar.toAbsolutePath().toString();
+    final String size = entries.getProperty(key + SIZE);
+    final String mtime = entries.getProperty(key + MTIME);
+    if (size == null || mtime == null
+        || !Integer.toString(release).equals(
+            entries.getProperty(key + RELEASE))
+        || !size.equals(Long.toString(Files.size(jar)))
+        || !mtime.equals(Long.toString(
+            Files.getLastModifiedTime(jar).toMillis()))) {
+      return null;
+    }
+    final String source = entries.getProperty(key + SOURCE);
+    if (StringUtils.isEmpty(source)) {
+      return new Entry(null, null);
+    }
+    try {
+      return new Entry(readDescriptor(key), ModuleNameSource.valueOf(source));
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Put the module descriptor of the jar file into the index.
+   *
+   * @param jar the jar file
+   * @param release the Java release used to select the versioned entries
+   *                of the multi-release jar
+   * @param descriptor the module descriptor, null if the file is not a module
+   * @param source the source of the module name
+   *
+   * @throws IOException if any errors occurred while reading attributes
+   *                     of the jar file
+   */
+  public void put(final Path jar, final int release,
+      final JavaModuleDescriptor descriptor, final ModuleNameSource source)
+      throws IOException {
+    final String key = jar.toAbsolutePath().toString();
+    final String size = Long.toString(Files.size(jar));
+    final String mtime = Long.toString(
+        Files.getLastModifiedTime(jar).toMillis());
+    synchronized (entries) {
+      updated.add(key);
+      entries.setProperty(key + SIZE, size);
+      entries.setProperty(key + MTIME, mtime);
+      entries.setProperty(key + RELEASE, Integer.toString(release));
+      entries.setProperty(key + SOURCE, source == null || descriptor == null
+          ? "" : source.name());
+      if (source != null && descriptor != null) {
+        writeDescriptor(key, descriptor);
+      }
+    }
+    modified = true;
+  }
+
+  /**
+   * Store the index entries to the index file if the index is modified.
+   * The entries put by this build are merged into the entries stored
+   * in the file by other builds and the entries of the missing files
+   * are removed. The merge is done under the lock of the index file and
+   * the file is replaced atomically, so concurrent builds never lose
+   * the entries of each other and never observe a partially written index.
+   *
+   * @throws IOException if any errors occurred while writing the index file
+   */
+  public void store() throws IOException {
+    if (!modified) {
+      return;
+    }
+    final Path dir = file.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    final Path lockFile =
+        file.resolveSibling(file.getFileName() + LOCK_SUFFIX);
+    synchronized (JVM_LOCK) {
+      try (FileChannel channel = FileChannel.open(lockFile,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+          FileLock lock = channel.lock()) {
+        final Properties merged = new Properties();
+        read(merged);
+        synchronized (entries) {
+          for (final String key : updated) {
+            for (final String suffix : SUFFIXES) {
+              final String value = entries.getProperty(key + suffix);
+              if (value == null) {
+                merged.remove(key + suffix);
+              } else {
+                merged.setProperty(key + suffix, value);
+              }
+            }
+          }
+        }
+        final Set<String> missing = merged.stringPropertyNames().stream()
+            .filter(name -> name.endsWith(SIZE))
+            .map(name -> name.substring(0, name.length() - SIZE.length()))
+            .filter(key -> !Files.isRegularFile(Paths.get(key)))
+            .collect(Collectors.toSet());
+        missing.forEach(key -> SUFFIXES.forEach(
+            suffix -> merged.remove(key + suffix)));
+        final Path temp = Files.createTempFile(dir,
+            file.getFileName().toString(), ".tmp");
+        try {
+          try (OutputStream out = Files.newOutputStream(temp)) {
+            merged.store(out, COMMENT);
+          }
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+          Files.deleteIfExists(temp);
+        }
+        synchronized (entries) {
+          entries.clear();
+          entries.putAll(merged);
+          updated.clear();
+        }
+      }
+    }
+    modified = false;
+  }
+
+  /**
+   * Write the module descriptor into the index entries.
+   *
+   * @param key the key of the entry
+   * @param descriptor the module descriptor
+   */
+  private void writeDescriptor(final String key,
+      final JavaModuleDescriptor descriptor) {
+    entries.setProperty(key + NAME, descriptor.name());
+    entries.setProperty(key + AUTOMATIC,
+        Boolean.toString(descriptor.isAutomatic()));
+    entries.setProperty(key + REQUIRES, descriptor.requires().stream()
+        .map(requires -> format(requires.name(), requires.modifiers().stream()
+            .map(JavaModifier::name)
+            .collect(Collectors.toList())))
+        .collect(Collectors.joining(ITEM_SEPARATOR)));
+    entries.setProperty(key + EXPORTS, descriptor.exports().stream()
+        .map(exports -> format(exports.source(), exports.targets() == null
+            ? null : List.copyOf(exports.targets())))
+        .collect(Collectors.joining(ITEM_SEPARATOR)));
+    entries.setProperty(key + USES, String.join(ITEM_SEPARATOR,
+        descriptor.uses()));
+    entries.setProperty(key + PROVIDES, descriptor.provides().stream()
+        .map(provides -> format(provides.service(), provides.providers()))
+        .collect(Collectors.joining(ITEM_SEPARATOR)));
+  }
+
+  /**
+   * Read the module descriptor from the index entries.
+   *
+   * @param key the key of the entry
+   *
+   * @return the module descriptor
+   */
+  private JavaModuleDescriptor readDescriptor(final String key) {
+    final String name = entries.getProperty(key + NAME);
+    if (Boolean.parseBoolean(entries.getProperty(key + AUTOMATIC))) {
+      return JavaModuleDescriptor.newAutomaticModule(name).build();
+    }
+    final JavaModuleDescriptor.Builder builder =
+        JavaModuleDescriptor.newModule(name);
+    for (final String item : split(entries.getProperty(key + REQUIRES))) {
+      final List<String> modifiers = getValues(item);
+      if (modifiers.isEmpty()) {
+        builder.requires(getItem(item));
+      } else {
+        final Set<JavaModifier> set = new LinkedHashSet<>();
+        modifiers.forEach(modifier -> set.add(JavaModifier.valueOf(modifier)));
+        builder.requires(set, getItem(item));
+      }
+    }
+    for (final String item : split(entries.getProperty(key + EXPORTS))) {
+      final List<String> targets = getValues(item);
+      if (targets.isEmpty()) {
+        builder.exports(getItem(item));
+      } else {
+        builder.exports(getItem(item), new HashSet<>(targets));
+      }
+    }
+    for (final String item : split(entries.getProperty(key + USES))) {
+      builder.uses(item);
+    }
+    for (final String item : split(entries.getProperty(key + PROVIDES))) {
+      builder.provides(getItem(item), getValues(item));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Format the item with its values.
+   *
+   * @param item the item
+   * @param values the values, can be null
+   *
+   * @return the formatted item
+   */
+  private static String format(final String item,
+      final List<String> values) {
+    return values == null || values.isEmpty()
+        ? item
+        : item + VALUE_SEPARATOR + String.join(VALUES_SEPARATOR, values);
+  }
+
+  /**
+   * Split the list of the items.
+   *
+   * @param items the list of the items, can be null
+   *
+   * @return the items
+   */
+  private static List<String> split(final String items) {
+    return StringUtils.isBlank(items)
+        ? List.of()
+        : Arrays.asList(StringUtils.split(items, ITEM_SEPARATOR));
+  }
+
+  /**
+   * Get the item without its values.
+   *
+   * @param item the formatted item
+   *
+   * @return the item
+   */
+  private static String getItem(final String item) {
+    return StringUtils.substringBefore(item, VALUE_SEPARATOR);
+  }
+
+  /**
+   * Get the values of the item.
+   *
+   * @param item the formatted item
+   *
+   * @return the values of the item
+   */
+  private static List<String> getValues(final String item) {
+    final String values = StringUtils.substringAfter(item, VALUE_SEPARATOR);
+    return StringUtils.isEmpty(values)
+        ? List.of()
+        : Arrays.asList(StringUtils.split(values, VALUES_SEPARATOR));
+  }
+
+  /**
+   * Indexed module descriptor.
+   */
+  public static class Entry {
+
+    /**
+     * Module descriptor.
+     */
+    private final JavaModuleDescriptor descriptor;
+
+    /**
+     * Source of the module name.
+     */
+    private final ModuleNameSource source;
+
+    /**
+     * Create the indexed module descriptor.
+     *
+     * @param descriptor the module descriptor, null if the file
+     *                   is not a module
+     * @param source the source of the module name
+     */
+    public Entry(final JavaModuleDescriptor descriptor,
+        final ModuleNameSource source) {
+      this.descriptor = descriptor;
+      this.source = source;
+    }
+
+    /**
+     * Get the module descriptor.
+     *
+     * @return the module descriptor or null if the file is not a module
+     */
+    public JavaModuleDescriptor getDescriptor() {
+      return descriptor;
+    }
+
+    /**
+     * Get the source of the module name.
+     *
+     * @return the source of the module name
+     */
+    public ModuleNameSource getSource() {
+      return source;
+    }
+
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fingerprint (SHA-256 digest) of the inputs of the tool.
+ *
+ * <p>
+ * The fingerprint is computed from the named values and the contents
+ * of the files and directories, so two fingerprints are equal only if
+ * all the inputs have the same values and contents.
+ * </p>
+ */
+public class Fingerprint {
+
+  /**
+   * Digest algorithm.
+   */
+  private static final String ALGORITHM = "SHA-256";
+
+  /**
+   * Size of the buffer used to read files.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Separator of the digested values.
+   */
+  private static final byte SEPARATOR = 0;
+
+  /**
+   * Marker of the missing files.
+   */
+  private static final String MISSING = "<missing>";
+
+  /**
+   * Digest of the inputs.
+   */
+  private final MessageDigest digest;
+
+  /**
+   * Digests of the already processed files.
+   */
+  private final Map<Path, String> fileDigests = new HashMap<>();
+
+  /**
+   * Create an empty fingerprint.
+   */
+  public Fingerprint() {
+    digest = newDigest();
+  }
+
+  /**
+   * Add the named value to the fingerprint.
+   *
+   * @param name the name of the value
+   * @param value the value, can be null
+   *
+   * @return this fingerprint
+   */
+  public Fingerprint add(final String name, final String value) {
+    update(name);
+    update(value == null ? "" : value);
+    return this;
+  }
+
+  /**
+   * Add the named list of values to the fingerprint.
+   *
+   * @param name the name of the values
+   * @param values the list of values, can be null
+   *
+   * @return this fingerprint
+   */
+  public Fingerprint add(final String name, final List<String> values) {
+    update(name);
+    update(values == null ? "" : Integer.toString(values.size()));
+    if (values != null) {
+      values.forEach(this::update);
+    }
+    return this;
+  }
+
+  /**
+   * Add the content of the file or the directory to the fingerprint.
+   * The content of the directory includes the relative paths and
+   * the contents of all nested files.
+   *
+   * @param name the name of the file
+   * @param file the file or the directory, can be null
+   *
+   * @return this fingerprint
+   *
+   * @throws IOException if any errors occurred while reading the file
+   */
+  public Fingerprint addFile(final String name, final File file)
+      throws IOException {
+    update(name);
+    update(file == null ? MISSING : getFileDigest(file.toPath()));
+    return this;
+  }
+
+  /**
+   * Get the fingerprint as the hexadecimal string.
+   * The fingerprint should not be changed after this method is called.
+   *
+   * @return the hexadecimal string representation of the fingerprint
+   */
+  public String toHex() {
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Convert bytes to the hexadecimal string.
+   *
+   * @param bytes the bytes
+   *
+   * @return the hexadecimal string
+   */
+  private static String toHex(final byte[] bytes) {
+    final StringBuilder result = new StringBuilder(bytes.length * 2);
+    for (final byte value : bytes) {
+      result.append(Character.forDigit((value >> 4) & 0xF, 16))
+          .append(Character.forDigit(value & 0xF, 16));
+    }
+    return result.toString();
+  }
+
+  /**
+   * Get the digest of the file or the directory.
+   *
+   * @param path the path of the file or the directory
+   *
+   * @return the hexadecimal string representation of the digest
+   *
+   * @throws IOException if any errors occurred while reading the file
+   */
+  public String getFileDigest(final Path path) throws IOException {
+    final Path key = path.toAbsolutePath().normalize();
+    String result = fileDigests.get(key);
+    if (result == null) {
+      if (Files.isDirectory(key)) {
+        result = digestDirectory(key);
+      } else if (Files.isRegularFile(key)) {
+        final MessageDigest fileDigest = newDigest();
+        digestFile(fileDigest, key);
+        result = toHex(fileDigest.digest());
+      } else {
+        result = MISSING;
+      }
+      fileDigests.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Digest the directory tree.
+   *
+   * @param dir the directory
+   *
+   * @return the hexadecimal string representation of the digest
+   *
+   * @throws IOException if any errors occurred while reading the files
+   */
+  private String digestDirectory(final Path dir) throws IOException {
+    final MessageDigest dirDigest = newDigest();
+    final List<Path> paths;
+    try (Stream<Path> stream = Files.walk(dir)) {
+      paths = stream
+          .filter(path -> !path.equals(dir))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+    for (final Path path : paths) {
+      dirDigest.update(dir.relativize(path).toString()
+          .replace(File.separatorChar, '/')
+          .getBytes(StandardCharsets.UTF_8));
+      dirDigest.update(SEPARATOR);
+      if (Files.isRegularFile(path)) {
+        digestFile(dirDigest, path);
+        dirDigest.update(SEPARATOR);
+      }
+    }
+    return toHex(dirDigest.digest());
+  }
+
+  /**
+   * Digest the content of the file.
+   *
+   * @param fileDigest the digest to update
+   * @param file the file
+   *
+   * @throws IOException if any errors occurred while reading the file
+   */
+  private static void digestFile(final MessageDigest fileDigest,
+      final Path file) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = Files.newInputStream(file)) {
+      int count = in.read(buffer);
+      while (count != -1) {
+        fileDigest.update(buffer, 0, count);
+        count = in.read(buffer);
+      }
+    }
+  }
+
+  /**
+   * Update the fingerprint with the string value.
+   *
+   * @param value the value
+   */
+  private void update(final String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update(SEPARATOR);
+  }
+
+  /**
+   * Create a new message digest.
+   *
+   * @return the created message digest
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException ex) {
+      // SHA-256 is required to be supported by every Java platform
+      throw new IllegalStateException(ex);
+    }
+  }
+
+}
@@ -0,0 +1,284 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Content-addressed cache of the runtime images.
+ *
+ * <p>
+ * Every entry is a directory named by the key of the image, i.e.
+ * the fingerprint of the tool options and the tool inputs. The entries are
+ * never modified after they are stored, so the images are materialized
+ * using hard links if it is possible. The last modified time of the entry
+ * is updated on every hit and the least recently used entries are evicted
+ * if the total size of the cache exceeds the maximum size.
+ * </p>
+ *
+ * <p>
+ * The cache also keeps the small text values named by the key,
+ * i.e. the decisions which are expensive to compute (the compression
+ * level selected by the sweep), they are not evicted.
+ * </p>
+ */
+public class ImageCache {
+
+  /**
+   * Suffix of the temporary entries.
+   */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /**
+   * Suffix of the value entries.
+   */
+  private static final String VALUE_SUFFIX = ".value";
+
+  /**
+   * Cache directory.
+   */
+  private final Path dir;
+
+  /**
+   * Maximum size of the cache in bytes.
+   */
+  private final long maxSize;
+
+  /**
+   * Create the cache stored in the specified directory.
+   *
+   * @param dir the cache directory
+   * @param maxSize the maximum size of the cache in bytes
+   */
+  public ImageCache(final Path dir, final long maxSize) {
+    this.dir = dir;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Materialize the cached image into the target directory.
+   *
+   * @param key the key of the image
+   * @param target the target directory, should not exist
+   *
+   * @return true if the image was found in the cache and materialized
+   *
+   * @throws IOException if any errors occurred while materializing the image
+   */
+  public boolean restore(final String key, final Path target)
+      throws IOException {
+    final Path entry = dir.resolve(key);
+    if (!Files.isDirectory(entry)) {
+      return false;
+    }
+    Files.setLastModifiedTime(entry, FileTime.fromMillis(
+        System.currentTimeMillis()));
+    try {
+      copyTree(entry, target, true);
+    } catch (IOException ex) {
+      FileUtils.deleteDirectory(target.toFile());
+      throw ex;
+    }
+    return true;
+  }
+
+  /**
+   * Store the image into the cache and evict the least recently used
+   * entries if the cache exceeds the maximum size.
+   *
+   * @param key the key of the image
+   * @param image the image directory
+   *
+   * @throws IOException if any errors occurred while storing the image
+   */
+  public void store(final String key, final Path image) throws IOException {
+    final Path entry = dir.resolve(key);
+    if (Files.isDirectory(entry)) {
+      return;
+    }
+    Files.createDirectories(dir);
+    final Path temp = Files.createTempDirectory(dir, key + TEMP_SUFFIX);
+    try {
+      copyTree(image, temp, false);
+      Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException | DirectoryNotEmptyException ex) {
+      // the same image has been stored concurrently
+    } finally {
+      if (Files.exists(temp)) {
+        FileUtils.deleteDirectory(temp.toFile());
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Get the value stored in the cache.
+   *
+   * @param key the key of the value
+   *
+   * @return the value or null if it is not found
+   *
+   * @throws IOException if any errors occurred while reading the value
+   */
+  public String getValue(final String key) throws IOException {
+    final Path entry = dir.resolve(key + VALUE_SUFFIX);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    return new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Store the value into the cache.
+   *
+   * @param key the key of the value
+   * @param value the value
+   *
+   * @throws IOException if any errors occurred while storing the value
+   */
+  public void putValue(final String key, final String value)
+      throws IOException {
+    Files.createDirectories(dir);
+    final Path temp = Files.createTempFile(dir, key + TEMP_SUFFIX, null);
+    try {
+      Files.write(temp, value.getBytes(StandardCharsets.UTF_8));
+      Files.move(temp, dir.resolve(key + VALUE_SUFFIX),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Evict the least recently used entries until the total size of the cache
+   * does not exceed the maximum size.
+   *
+   * @throws IOException if any errors occurred while evicting the entries
+   */
+  private void evict() throws IOException {
+    final List<Path> entries;
+    try (Stream<Path> stream = Files.list(dir)) {
+      entries = stream
+          .filter(Files::isDirectory)
+          .filter(path -> !path.getFileName().toString().contains(TEMP_SUFFIX))
+          .collect(Collectors.toList());
+    }
+    final List<Long> sizes = new ArrayList<>();
+    final List<FileTime> times = new ArrayList<>();
+    long totalSize = 0;
+    for (final Path entry : entries) {
+      final long size = getSize(entry);
+      sizes.add(size);
+      times.add(Files.getLastModifiedTime(entry));
+      totalSize += size;
+    }
+    final List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < entries.size(); i++) {
+      order.add(i);
+    }
+    order.sort(Comparator.comparing(times::get));
+    for (final int index : order) {
+      if (totalSize <= maxSize) {
+        break;
+      }
+      FileUtils.deleteDirectory(entries.get(index).toFile());
+      totalSize -= sizes.get(index);
+    }
+  }
+
+  /**
+   * Get the total size of the files in the directory.
+   *
+   * @param path the directory
+   *
+   * @return the total size in bytes
+   *
+   * @throws IOException if any errors occurred while reading the directory
+   */
+  private static long getSize(final Path path) throws IOException {
+    try (Stream<Path> stream = Files.walk(path)) {
+      return stream
+          .filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS))
+          .mapToLong(file -> file.toFile().length())
+          .sum();
+    }
+  }
+
+  /**
+   * Copy the directory tree. The symbolic links are copied as is.
+   *
+   * @param source the source directory
+   * @param target the target directory
+   * @param link try to create hard links instead of copying files
+   *
+   * @throws IOException if any errors occurred while copying
+   */
+  private static void copyTree(final Path source, final Path target,
+      final boolean link) throws IOException {
+    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+
+      private boolean linkFiles = link;
+
+      @Override
+      public FileVisitResult preVisitDirectory(final Path path,
+          final BasicFileAttributes attrs) throws IOException {
+        Files.createDirectories(target.resolve(source.relativize(path)));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(final Path path,
+          final BasicFileAttributes attrs) throws IOException {
+        final Path dest = target.resolve(source.relativize(path));
+        if (attrs.isSymbolicLink()) {
+          Files.createSymbolicLink(dest, Files.readSymbolicLink(path));
+          return FileVisitResult.CONTINUE;
+        }
+        if (linkFiles) {
+          try {
+            Files.createLink(dest, path);
+            return FileVisitResult.CONTINUE;
+          } catch (UnsupportedOperationException | IOException ex) {
+            // hard links are not supported, i.e. other file store
+            linkFiles = false;
+          }
+        }
+        Files.copy(path, dest, StandardCopyOption.COPY_ATTRIBUTES);
+        return FileVisitResult.CONTINUE;
+      }
+
+    });
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Publisher of the runtime image.
+ *
+ * <p>
+ * The image is created in the staging directory next to the output
+ * directory and then it is moved into the output directory with
+ * the atomic rename, so a failed or interrupted build never leaves
+ * a half-written image in the output directory. The previous image
+ * is renamed aside and deleted in the background.
+ * </p>
+ */
+public class ImagePublisher {
+
+  /**
+   * Suffix of the staging directory.
+   */
+  private static final String STAGING_SUFFIX = ".staging";
+
+  /**
+   * Suffix of the previous image directories.
+   */
+  private static final String OLD_SUFFIX = ".old-";
+
+  /**
+   * Name of the background thread deleting the previous images.
+   */
+  private static final String CLEANER_NAME = "jlink-image-cleaner";
+
+  /**
+   * Output directory.
+   */
+  private final Path output;
+
+  /**
+   * Staging directory.
+   */
+  private final Path staging;
+
+  /**
+   * Create the publisher for the output directory.
+   *
+   * @param output the output directory
+   */
+  public ImagePublisher(final Path output) {
+    this.output = output.toAbsolutePath().normalize();
+    this.staging = this.output.resolveSibling(getPrefix() + STAGING_SUFFIX);
+  }
+
+  /**
+   * Get the staging directory.
+   *
+   * @return the staging directory
+   */
+  public Path getStagingDir() {
+    return staging;
+  }
+
+  /**
+   * Prepare the staging directory. The staging directory left by
+   * the previous build is deleted and the previous images left by
+   * the interrupted builds are deleted in the background.
+   *
+   * @throws IOException if any errors occurred while deleting
+   *                     the staging directory
+   */
+  public void prepare() throws IOException {
+    final Path parent = output.getParent();
+    Files.createDirectories(parent);
+    if (Files.exists(staging, LinkOption.NOFOLLOW_LINKS)) {
+      FileUtils.forceDelete(staging.toFile());
+    }
+    final String oldPrefix = getPrefix() + OLD_SUFFIX;
+    final List<Path> stale;
+    try (Stream<Path> stream = Files.list(parent)) {
+      stale = stream
+          .filter(path -> path.getFileName().toString().startsWith(oldPrefix))
+          .collect(Collectors.toList());
+    }
+    deleteInBackground(stale);
+  }
+
+  /**
+   * Publish the image from the staging directory into the output directory.
+   * The previous image is deleted in the background.
+   *
+   * @throws IOException if any errors occurred while moving the image
+   */
+  public void publish() throws IOException {
+    Path old = null;
+    if (Files.exists(output, LinkOption.NOFOLLOW_LINKS)) {
+      old = output.resolveSibling(getPrefix() + OLD_SUFFIX
+          + System.currentTimeMillis());
+      Files.move(output, old, StandardCopyOption.ATOMIC_MOVE);
+    }
+    try {
+      Files.move(staging, output, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      if (old != null) {
+        // restore the previous image
+        Files.move(old, output, StandardCopyOption.ATOMIC_MOVE);
+      }
+      throw ex;
+    }
+    if (old != null) {
+      deleteInBackground(List.of(old));
+    }
+  }
+
+  /**
+   * Get the name prefix of the staging and the previous image directories.
+   *
+   * @return the name prefix
+   */
+  private String getPrefix() {
+    return "." + output.getFileName();
+  }
+
+  /**
+   * Delete the directories in the background daemon thread.
+   * The directories left undeleted when the JVM exits are deleted
+   * by the next build.
+   *
+   * @param dirs the directories to delete
+   */
+  private static void deleteInBackground(final List<Path> dirs) {
+    if (dirs.isEmpty()) {
+      return;
+    }
+    final Thread cleaner = new Thread(() -> {
+      for (final Path dir : dirs) {
+        try {
+          FileUtils.forceDelete(dir.toFile());
+        } catch (IOException ex) {
+          // will be deleted by the next build
+        }
+      }
+    }, CLEANER_NAME);
+    cleaner.setDaemon(true);
+    cleaner.start();
+  }
+
+}
@@ -0,0 +1,384 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.apache.commons.text.StringEscapeUtils;
+import ru.akman.maven.plugins.JsonWriter;
+
+/**
+ * Size breakdown of the runtime image.
+ *
+ * <p>
+ * The resources of the modules are read from the jimage file (lib/modules)
+ * through the jrt file system of the image, so both the uncompressed and
+ * the stored (compressed) sizes of the modules and their packages are
+ * reported. The legal notices are attributed to their modules, the native
+ * libraries and the top level directories are reported by the files.
+ * </p>
+ */
+public class ImageSizeReport {
+
+  /**
+   * The jimage file of the image relative to the image directory.
+   */
+  private static final String JIMAGE = "lib/modules";
+
+  /**
+   * The directory of the legal notices of the image.
+   */
+  private static final String LEGAL_DIR = "legal";
+
+  /**
+   * The name of the package of the resources in the root of the module.
+   */
+  private static final String ROOT_PACKAGE = "(root)";
+
+  /**
+   * Pattern of the native library file names.
+   */
+  private static final Pattern NATIVE_LIBRARY =
+      Pattern.compile(".*\\.(so|dll|dylib)$");
+
+  /**
+   * Total size of the image on disk.
+   */
+  private long total;
+
+  /**
+   * Sizes of the top level entries of the image, the jimage file
+   * is reported separately.
+   */
+  private final Map<String, Long> directories = new TreeMap<>();
+
+  /**
+   * Sizes of the native libraries by the image relative path.
+   */
+  private final Map<String, Long> nativeLibraries = new TreeMap<>();
+
+  /**
+   * Sizes of the modules by the module name.
+   */
+  private final Map<String, ModuleSize> modules = new TreeMap<>();
+
+  /**
+   * Analyze the image.
+   *
+   * @param image the image directory
+   *
+   * @return the size report of the image
+   *
+   * @throws IOException if the image can't be read
+   */
+  public static ImageSizeReport analyze(final Path image) throws IOException {
+    final ImageSizeReport report = new ImageSizeReport();
+    try (Stream<Path> files = Files.walk(image)) {
+      for (final Path file : (Iterable<Path>) files::iterator) {
+        if (!Files.isRegularFile(file)) {
+          continue;
+        }
+        final long size = Files.size(file);
+        final Path relative = image.relativize(file);
+        final String name = relative.toString().replace('\\', '/');
+        report.total += size;
+        report.directories.merge(name.equals(JIMAGE) ? JIMAGE
+            : relative.getName(0).toString(), size, Long::sum);
+        if (NATIVE_LIBRARY.matcher(name).matches()) {
+          report.nativeLibraries.put(name, size);
+        }
+        if (relative.getNameCount() > 2
+            && relative.getName(0).toString().equals(LEGAL_DIR)) {
+          report.getModule(relative.getName(1).toString()).legal += size;
+        }
+      }
+    }
+    try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"),
+        Map.of("java.home", image.toString()))) {
+      final Path root = jrt.getPath("/modules");
+      try (Stream<Path> modules = Files.list(root)) {
+        for (final Path module : (Iterable<Path>) modules::iterator) {
+          report.analyzeModule(module);
+        }
+      }
+    }
+    return report;
+  }
+
+  /**
+   * Analyze the resources of the module in the jrt file system.
+   *
+   * @param module the module directory of the jrt file system
+   *
+   * @throws IOException if the resources can't be read
+   */
+  private void analyzeModule(final Path module) throws IOException {
+    final ModuleSize moduleSize =
+        getModule(module.getFileName().toString().replace("/", ""));
+    try (Stream<Path> resources = Files.walk(module)) {
+      for (final Path resource : (Iterable<Path>) resources::iterator) {
+        if (!Files.isRegularFile(resource)) {
+          continue;
+        }
+        final long size = (Long) Files.getAttribute(resource, "jrt:size");
+        final long compressed =
+            (Long) Files.getAttribute(resource, "jrt:compressedSize");
+        final Path relative = module.relativize(resource);
+        final String packageName = relative.getParent() == null
+            ? ROOT_PACKAGE
+            : relative.getParent().toString().replace('/', '.');
+        final long[] packageSize = moduleSize.packages
+            .computeIfAbsent(packageName, key -> new long[3]);
+        packageSize[0] += size;
+        packageSize[1] += compressed == 0L ? size : compressed;
+        packageSize[2]++;
+        moduleSize.size += size;
+        moduleSize.stored += compressed == 0L ? size : compressed;
+      }
+    }
+  }
+
+  /**
+   * Get the size of the module creating it if needed.
+   *
+   * @param name the module name
+   *
+   * @return the size of the module
+   */
+  private ModuleSize getModule(final String name) {
+    return modules.computeIfAbsent(name, key -> new ModuleSize());
+  }
+
+  /**
+   * Get the total size of the image on disk.
+   *
+   * @return the total size in bytes
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Get the stored size of the module in the jimage file.
+   *
+   * @param name the module name
+   *
+   * @return the stored size in bytes or -1 if the module is not linked
+   */
+  public long getModuleSize(final String name) {
+    final ModuleSize moduleSize = modules.get(name);
+    return moduleSize == null ? -1L : moduleSize.stored;
+  }
+
+  /**
+   * Get the sizes of the top level entries of the image.
+   *
+   * @return the sizes in bytes by the image relative path, the jimage file
+   *         is reported separately
+   */
+  public Map<String, Long> getDirectories() {
+    return Collections.unmodifiableMap(directories);
+  }
+
+  /**
+   * Get the stored sizes of the packages of the module in the jimage file.
+   *
+   * @param name the module name
+   *
+   * @return the stored sizes in bytes by the package name, empty
+   *         if the module is not linked
+   */
+  public Map<String, Long> getPackageSizes(final String name) {
+    final Map<String, Long> result = new TreeMap<>();
+    final ModuleSize moduleSize = modules.get(name);
+    if (moduleSize != null) {
+      moduleSize.packages.forEach((pkg, size) -> result.put(pkg, size[1]));
+    }
+    return result;
+  }
+
+  /**
+   * Check the size budgets of the modules, the modules which are not
+   * linked are skipped.
+   *
+   * @param budgets the size budgets in bytes by the module name
+   *
+   * @return the descriptions of the modules exceeding their budgets
+   */
+  public List<String> getBudgetViolations(final Map<String, Long> budgets) {
+    final List<String> violations = new ArrayList<>();
+    new TreeMap<>(budgets).forEach((name, budget) -> {
+      final long size = getModuleSize(name);
+      if (size > budget) {
+        violations.add(MessageFormat.format("{0} ({1} > {2} bytes)",
+            name, Long.toString(size), Long.toString(budget)));
+      }
+    });
+    return violations;
+  }
+
+  /**
+   * Get the JSON report.
+   *
+   * @return the JSON document
+   */
+  public String toJson() {
+    final JsonWriter json = new JsonWriter().beginObject();
+    json.name("total").value(total);
+    json.name("directories").beginObject();
+    directories.forEach((name, size) -> json.name(name).value(size));
+    json.endObject();
+    json.name("nativeLibraries").beginObject();
+    nativeLibraries.forEach((name, size) -> json.name(name).value(size));
+    json.endObject();
+    json.name("modules").beginArray();
+    for (final Map.Entry<String, ModuleSize> module : modules.entrySet()) {
+      final ModuleSize moduleSize = module.getValue();
+      json.beginObject();
+      json.name("name").value(module.getKey());
+      json.name("size").value(moduleSize.size);
+      json.name("stored").value(moduleSize.stored);
+      json.name("legal").value(moduleSize.legal);
+      json.name("packages").beginArray();
+      for (final Map.Entry<String, long[]> pkg
+          : moduleSize.packages.entrySet()) {
+        json.beginObject();
+        json.name("name").value(pkg.getKey());
+        json.name("size").value(pkg.getValue()[0]);
+        json.name("stored").value(pkg.getValue()[1]);
+        json.name("resources").value(pkg.getValue()[2]);
+        json.endObject();
+      }
+      json.endArray();
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    return json.toString();
+  }
+
+  /**
+   * Get the HTML report.
+   *
+   * @param title the title of the report
+   *
+   * @return the HTML document
+   */
+  public String toHtml(final String title) {
+    final StringBuilder html = new StringBuilder();
+    html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n")
+        .append("<title>").append(escape(title)).append("</title>\n")
+        .append("<style>table{border-collapse:collapse}")
+        .append("td,th{border:1px solid #ccc;padding:2px 8px}")
+        .append("td.n{text-align:right}</style>\n")
+        .append("</head>\n<body>\n")
+        .append("<h1>").append(escape(title)).append("</h1>\n")
+        .append("<p>Total size: ").append(total).append(" bytes</p>\n");
+    html.append("<h2>Directories</h2>\n<table>\n")
+        .append("<tr><th>Directory</th><th>Size</th></tr>\n");
+    directories.forEach((name, size) -> row(html, name, size));
+    html.append("</table>\n<h2>Native libraries</h2>\n<table>\n")
+        .append("<tr><th>Library</th><th>Size</th></tr>\n");
+    nativeLibraries.forEach((name, size) -> row(html, name, size));
+    html.append("</table>\n<h2>Modules</h2>\n<table>\n")
+        .append("<tr><th>Module</th><th>Stored</th><th>Size</th>")
+        .append("<th>Legal</th></tr>\n");
+    modules.forEach((name, moduleSize) -> row(html, name, moduleSize.stored,
+        moduleSize.size, moduleSize.legal));
+    html.append("</table>\n<h2>Packages</h2>\n");
+    modules.forEach((name, moduleSize) -> {
+      html.append("<details>\n<summary>").append(escape(name))
+          .append(" (").append(moduleSize.stored).append(" bytes)")
+          .append("</summary>\n<table>\n")
+          .append("<tr><th>Package</th><th>Stored</th><th>Size</th>")
+          .append("<th>Resources</th></tr>\n");
+      moduleSize.packages.forEach((pkg, size) ->
+          row(html, pkg, size[1], size[0], size[2]));
+      html.append("</table>\n</details>\n");
+    });
+    html.append("</body>\n</html>\n");
+    return html.toString();
+  }
+
+  /**
+   * Append the row of the HTML table.
+   *
+   * @param html the HTML document
+   * @param name the name of the row
+   * @param values the numeric values of the row
+   */
+  private static void row(final StringBuilder html, final String name,
+      final long... values) {
+    html.append("<tr><td>").append(escape(name)).append("</td>");
+    for (final long value : values) {
+      html.append("<td class=\"n\">").append(value).append("</td>");
+    }
+    html.append("</tr>\n");
+  }
+
+  /**
+   * Escape the text for HTML.
+   *
+   * @param text the text
+   *
+   * @return the escaped text
+   */
+  private static String escape(final String text) {
+    return StringEscapeUtils.escapeHtml4(text);
+  }
+
+  /**
+   * Size of the module.
+   */
+  private static class ModuleSize {
+
+    /**
+     * Uncompressed size of the resources.
+     */
+    private long size;
+
+    /**
+     * Stored size of the resources in the jimage file.
+     */
+    private long stored;
+
+    /**
+     * Size of the legal notices.
+     */
+    private long legal;
+
+    /**
+     * Sizes of the packages: uncompressed size, stored size
+     * and the number of the resources.
+     */
+    private final Map<String, long[]> packages = new TreeMap<>();
+
+  }
+
+}
@@ -18,25 +18,49 @@ package ru.akman.maven.plugins.jlink;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.module.InvalidModuleDescriptorException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
 import java.text.MessageFormat;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.spi.ToolProvider;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
 import org.apache.commons.lang3.JavaVersion;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
 import org.apache.commons.text.StringSubstitutor;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -50,11 +74,14 @@ import org.codehaus.plexus.languages.java.jpms.ModuleNameSource;
 import org.codehaus.plexus.languages.java.jpms.ResolvePathsRequest;
 import org.codehaus.plexus.languages.java.jpms.ResolvePathsResult;
 import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.cli.Arg;
 import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.cli.Commandline;
 import ru.akman.maven.plugins.BaseToolMojo;
 import ru.akman.maven.plugins.CommandLineBuilder;
 import ru.akman.maven.plugins.CommandLineOption;
+import ru.akman.maven.plugins.PhaseMetrics;
 
 /**
  * The jlink goal lets you create a custom runtime image with
@@ -114,6 +141,129 @@ public class JlinkMojo extends BaseToolMojo {
    */
   private static final String OPTS_FILE = TOOL_NAME + ".opts";
 
+  /**
+   * Filename for file contains the fingerprint of the tool inputs.
+   */
+  private static final String FINGERPRINT_FILE = TOOL_NAME + ".fingerprint";
+
+  /**
+   * The name of the tool used to analyze the module dependencies.
+   */
+  private static final String JDEPS_NAME = "jdeps";
+
+  /**
+   * Filename for file contains the report of the computed modules.
+   */
+  private static final String MODULES_REPORT_FILE = TOOL_NAME + ".modules";
+
+  /**
+   * Filename for file contains the decision table of the compression sweep.
+   */
+  private static final String SWEEP_REPORT_FILE = TOOL_NAME + ".compression";
+
+  /**
+   * Filename (without extension) for files contain the size report
+   * of the image.
+   */
+  private static final String SIZE_REPORT_FILE = TOOL_NAME + ".size";
+
+  /**
+   * Filename for file contains the timing of the phases of the execution.
+   */
+  private static final String METRICS_FILE = TOOL_NAME + "-metrics.json";
+
+  /**
+   * The name of the flight recording of the plugin.
+   */
+  private static final String PLUGIN_RECORDING = TOOL_NAME + "-plugin.jfr";
+
+  /**
+   * The name of the flight recording of the forked tool.
+   */
+  private static final String TOOL_RECORDING = TOOL_NAME + "-tool.jfr";
+
+  /**
+   * The JFR settings used for the recordings.
+   */
+  private static final String RECORDING_SETTINGS = "profile";
+
+  /**
+   * Pattern of the argument files (@filename) of the tool options.
+   */
+  private static final Pattern ARGUMENT_FILE_PATTERN =
+      Pattern.compile("(?:^|[\\s=,])@([^\\s,]+)");
+
+  /**
+   * Filename for file contains the trace of the resolved lambda forms.
+   */
+  private static final String JLI_TRACE_FILE = TOOL_NAME + ".jli";
+
+  /**
+   * System property enabling the trace of the resolved lambda forms.
+   */
+  private static final String JLI_TRACE_PROPERTY =
+      "java.lang.invoke.MethodHandle.TRACE_RESOLVE";
+
+  /**
+   * Prefixes of the lines of the trace of the resolved lambda forms.
+   */
+  private static final List<String> JLI_TRACE_PREFIXES =
+      List.of("[LF_RESOLVE]", "[SPECIES_RESOLVE]");
+
+  /**
+   * Filename for file contains the class load order of the training run.
+   */
+  private static final String CLASS_ORDER_FILE = TOOL_NAME + ".classorder";
+
+  /**
+   * JVM option enabling the log of the loaded classes.
+   */
+  private static final String CLASS_LOAD_LOG = "-Xlog:class+load=info";
+
+  /**
+   * Pattern of the log line of the class loaded from the image.
+   */
+  private static final Pattern CLASS_LOAD_PATTERN = Pattern.compile(
+      "\\[class,load\\]\\s+([^\\s/]+)\\s+source:\\s+jrt:/");
+
+  /**
+   * Path of the AppCDS archive relative to the image directory.
+   */
+  private static final String APPCDS_ARCHIVE = "lib/app.jsa";
+
+  /**
+   * Path of the AOT cache relative to the image directory.
+   */
+  private static final String AOT_CACHE = "lib/app.aot";
+
+  /**
+   * Path of the AOT configuration relative to the image directory.
+   */
+  private static final String AOT_CONFIGURATION = "lib/app.aotconf";
+
+  /**
+   * The minimal feature version of the JDK supporting the ahead-of-time
+   * cache (-XX:AOTCache).
+   */
+  private static final int AOT_CACHE_VERSION = 24;
+
+  /**
+   * Filename of the default CDS archive.
+   */
+  private static final String CDS_ARCHIVE_NAME = "classes.jsa";
+
+  /**
+   * The minimal feature version of the JDK supporting the dynamic
+   * CDS archives (-XX:ArchiveClassesAtExit).
+   */
+  private static final int DYNAMIC_CDS_VERSION = 13;
+
+  /**
+   * The minimal feature version of the JDK supporting the automatic
+   * CDS archives (-XX:+AutoCreateSharedArchive).
+   */
+  private static final int AUTO_CDS_VERSION = 19;
+
   /**
    * Error message pattern for unability to resolve file path.
    */
@@ -140,6 +290,40 @@ public class JlinkMojo extends BaseToolMojo {
    */
   private JavaModuleDescriptor mainModuleDescriptor;
 
+  /**
+   * Resolved module path.
+   */
+  private String modulePath;
+
+  /**
+   * Compiled matchers of the dependencysets.
+   */
+  private final Map<DependencySet, DependencyMatcher> dependencyMatchers =
+      new IdentityHashMap<>();
+
+  /**
+   * Publisher of the image.
+   */
+  private ImagePublisher imagePublisher;
+
+  /**
+   * The argument of the compress option, its value is changed
+   * by the compression sweep.
+   */
+  private Arg compressArg;
+
+  /**
+   * JVM options referring to the files inside the image, which should be
+   * injected into the launcher scripts. The key is the option prefix and
+   * the value is the file path relative to the image directory.
+   */
+  private final Map<String, String> imageJvmOptions = new LinkedHashMap<>();
+
+  /**
+   * Number of the tool runs recorded by JFR.
+   */
+  private int toolRecordings;
+
   /**
    * JPMS location manager.
    */
@@ -152,6 +336,122 @@ public class JlinkMojo extends BaseToolMojo {
   @Parameter
   private File toolhome;
 
+  /**
+   * Specifies the file of the persistent cache of the resolved tools.
+   *
+   * <p>
+   * The cache is keyed by the real path of the tool executable and stores
+   * the size and the last modified time of the executable, the tool
+   * version and the corresponding java version, so the repeated builds
+   * and the other modules of the reactor don't need to run the tool
+   * to obtain its version.
+   * The entry is invalidated automatically if the JDK is upgraded in place.
+   * Set this parameter to an empty value to disable the cache.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "${user.home}/.m2/jlink-maven-plugin/toolcache.properties"
+  )
+  private File toolcache;
+
+  /**
+   * Always run the tool in a separate process.
+   *
+   * <p>
+   * By default the tool is executed inside the current JVM if the resolved
+   * tool home directory is the home directory of the running JDK. This
+   * avoids forking a new JVM for the tool. Otherwise, or if this parameter
+   * is set to true, or if the timeout parameter is set, the tool will be
+   * executed in a separate process.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean fork;
+
+  /**
+   * Read the module descriptors of the dependencies in parallel.
+   *
+   * <p>
+   * If this parameter is set to true, the module descriptors and
+   * the automatic module names of the dependencies are read concurrently
+   * inside the current JVM and the dependencies are split into the module
+   * path and the class path elements the same way as the plexus-java
+   * LocationManager does it. The multi-release jars are resolved for
+   * the version of the tool. If some module descriptor can't be read
+   * by the current JVM (i.e. it is compiled for the newer Java release),
+   * the LocationManager is used. By default the LocationManager is used.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean parallelresolution;
+
+  /**
+   * Specifies the file of the persistent index of the module descriptors.
+   *
+   * <p>
+   * The index is keyed by the path, the size and the last modified time
+   * of the jar file and stores the module descriptor of the jar file
+   * together with the Java release of the tool, so the unchanged jar files
+   * are not reopened by the next builds with the same toolchain.
+   * The index file can be shared by the concurrent builds, every build
+   * merges its entries into the file under the file lock.
+   * The index is used only if the parameter "parallelresolution" is set
+   * to true, which is not the default: the default resolution doesn't read
+   * or write the index.
+   * Set this parameter to an empty value to disable the index.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "${user.home}/.m2/jlink-maven-plugin/descriptors.properties"
+  )
+  private File descriptorindex;
+
+  /**
+   * Skip linking if the image is up to date.
+   *
+   * <p>
+   * If this parameter is set to true, the fingerprint of the tool options,
+   * the contents of the module path and the class path elements,
+   * the launcher configuration and templates and the tool version is
+   * stored in the project build directory. The next build skips linking
+   * and launcher processing if the fingerprint is not changed and
+   * the image still exists.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean incremental;
+
+  /**
+   * Specifies the directory of the shared cache of the runtime images.
+   *
+   * <p>
+   * The images are keyed by the fingerprint of the tool options (except
+   * the output directory), the contents of the module path and
+   * the class path elements and the tool version. If the image is found
+   * in the cache it is materialized into the output directory using hard
+   * links or a plain copy instead of running the tool. The cache is
+   * disabled if this parameter is not specified.
+   * </p>
+   */
+  @Parameter
+  private File imagecache;
+
+  /**
+   * Specifies the maximum size of the shared cache of the runtime images,
+   * i.e. 512M or 2G. The least recently used images are evicted if
+   * the cache exceeds this size.
+   */
+  @Parameter(
+      defaultValue = "2G"
+  )
+  private String imagecachesize;
+
   /**
    * Specifies the location in which modular dependencies will be copied.
    */
@@ -168,6 +468,47 @@ public class JlinkMojo extends BaseToolMojo {
   )
   private File libsdir;
 
+  /**
+   * Specifies the maximum number of the threads used to copy
+   * the dependencies into the mods and the libs directories.
+   */
+  @Parameter(
+      defaultValue = "4"
+  )
+  private int stagingthreads;
+
+  /**
+   * Compare the contents of the dependencies with the already copied files
+   * instead of the last modified time.
+   *
+   * <p>
+   * By default the dependency is copied into the mods or the libs directory
+   * only if its size or last modified time differs from the already copied
+   * file. If this parameter is set to true, the files of the same size are
+   * compared by the checksum of their contents.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean stagingchecksum;
+
+  /**
+   * Specifies how the dependencies are staged into the mods and the libs
+   * directories: { COPY | HARDLINK | SYMLINK | REFLINK }.
+   *
+   * <p>
+   * HARDLINK and SYMLINK create links to the dependencies instead of copying
+   * them, REFLINK creates copy-on-write clones of the dependencies if
+   * the file system supports it. If the link or the clone can't be created,
+   * the dependencies are copied.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "COPY"
+  )
+  private StagingMode stagingmode;
+
   /**
    * Specifies the module path. The path where the jlink tool discovers
    * observable modules: modular JAR files, JMOD files, exploded modules.
@@ -260,9 +601,34 @@ public class JlinkMojo extends BaseToolMojo {
   @Parameter
   private List<String> addmodules;
 
+  /**
+   * Compute the minimal set of the JDK modules required by the project
+   * classes and the dependencies and add it to the root modules.
+   *
+   * <p>
+   * The project output directory and the dependencies copied into
+   * the "modsdir" and the "libsdir" directories are analyzed by the jdeps
+   * tool of the same JDK as the jlink tool. The computed modules are added
+   * to the modules specified by the parameter "addmodules" together with
+   * the main module of the project. The report of the classes which pulled
+   * in every module is written into the project build directory
+   * (jlink.modules).
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean automodules;
+
   /**
    * Specifies the location of the generated runtime image.
    *
+   * <p>
+   * The image is created in the staging directory next to the output
+   * directory and then replaced atomically, the previous image is deleted
+   * in the background.
+   * </p>
+   *
    * <p>The jlink CLI is: <code>--output path</code></p>
    */
   @Parameter(
@@ -350,6 +716,37 @@ public class JlinkMojo extends BaseToolMojo {
   )
   private boolean bindservices;
 
+  /**
+   * Specifies the services and their allowed provider modules to link
+   * instead of linking every provider of every used service.
+   *
+   * <p>
+   * If this parameter is specified, the services used by the main module,
+   * the root modules and the modules they require (according to the module
+   * descriptors of the module path) are bound to the modules of the module
+   * path which provide them, and the services used by the bound providers
+   * are bound the same way. The providers of the service specified here
+   * are filtered by its allow-list, if no providers are specified for
+   * the service, then all providers are allowed. The services specified
+   * here are bound even if they are not used, the providers which are not
+   * on the module path (i.e. the JDK modules) have to be specified
+   * explicitly. The provider modules are added to the root modules.
+   * </p>
+   *
+   * <p><pre>
+   * &lt;servicebindings&gt;
+   *   &lt;servicebinding&gt;
+   *     &lt;service&gt;java.nio.file.spi.FileSystemProvider&lt;/service&gt;
+   *     &lt;providers&gt;
+   *       &lt;provider&gt;jdk.zipfs&lt;/provider&gt;
+   *     &lt;/providers&gt;
+   *   &lt;/servicebinding&gt;
+   * &lt;/servicebindings&gt;
+   * </pre></p>
+   */
+  @Parameter
+  private List<ServiceBinding> servicebindings;
+
   /**
    * Specifies the launcher command name for the module (and the main class).
    *
@@ -367,6 +764,86 @@ public class JlinkMojo extends BaseToolMojo {
   @Parameter
   private Launcher launcher;
 
+  /**
+   * Specifies the training command run by the linked image to create
+   * the archives of the image and to trace the image (see the parameters
+   * "appcds", "aotcache", "trainjliclasses" and "trainorderresources").
+   * The values which are not specified are taken from the launcher.
+   *
+   * <p><pre>
+   * &lt;training&gt;
+   *   &lt;mainmodule&gt;mainModule&lt;/mainmodule&gt;
+   *   &lt;mainclass&gt;mainClass&lt;/mainclass&gt;
+   *   &lt;jvmargs&gt;-Xmx512m&lt;/jvmargs&gt;
+   *   &lt;args&gt;--warmup&lt;/args&gt;
+   * &lt;/training&gt;
+   * </pre></p>
+   */
+  @Parameter
+  private Training training;
+
+  /**
+   * Create the AppCDS archive of the application classes by the training
+   * run of the linked image.
+   *
+   * <p>
+   * The archive is stored inside the image (lib/app.jsa) and the option
+   * -XX:SharedArchiveFile is injected into the "jvmArgs" variable of
+   * the launcher templates or, if the templates are not specified,
+   * into the JLINK_VM_OPTIONS variable of the launcher scripts generated
+   * by jlink. The option refers to the archive through the "DIR" variable
+   * of the launcher script (the directory of the script). The default CDS
+   * archive of the image is created if it is missing.
+   * At least JDK 13 is required.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean appcds;
+
+  /**
+   * Regenerate the default CDS archive of the linked image, so it matches
+   * the modules of the image.
+   *
+   * <p>
+   * The archive is created by running "java -Xshare:dump" inside the image
+   * and then it is verified by running "java -Xshare:on -version".
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean defaultcds;
+
+  /**
+   * Fail the build if the regenerated default CDS archive can't be loaded,
+   * otherwise only a warning is logged.
+   */
+  @Parameter(
+      defaultValue = "true"
+  )
+  private boolean defaultcdsstrict;
+
+  /**
+   * Create the ahead-of-time cache of the application by the training
+   * run of the linked image (JEP 483).
+   *
+   * <p>
+   * The training run records the AOT configuration (-XX:AOTMode=record),
+   * then the cache is created from it (-XX:AOTMode=create). The cache is
+   * stored inside the image (lib/app.aot) and the option -XX:AOTCache is
+   * injected into the launcher scripts the same way as for the parameter
+   * "appcds". The AOT cache supersedes the AppCDS
+   * archive. At least JDK 24 is required, the cache is skipped with
+   * a warning for older JDKs.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean aotcache;
+
   /**
    * Excludes header files.
    *
@@ -441,7 +918,9 @@ public class JlinkMojo extends BaseToolMojo {
 
   /**
    * Compresses all resources in the output image. Specify
-   * compression { NO_COMPRESSION | CONSTANT_STRING_SHARING | ZIP }.
+   * compression { NO_COMPRESSION | CONSTANT_STRING_SHARING | ZIP |
+   * ZIP_0 | ZIP_1 | ... | ZIP_9 }. The zip levels require JDK 21,
+   * they are converted to the nearest legacy level for older JDKs.
    * An optional pattern-list filter can be specified to list
    * the pattern of files to include.
    *
@@ -458,11 +937,44 @@ public class JlinkMojo extends BaseToolMojo {
    * </pre></p>
    *
    * <p>The jlink CLI is:
-   * <code>--compress={0|1|2}[:filter=pattern-list]</code></p>
+   * <code>--compress={0|1|2|zip-[0-9]}[:filter=pattern-list]</code></p>
    */
   @Parameter
   private Compress compress;
 
+  /**
+   * Selects the compression level by the sweep of the candidate levels.
+   * The image is linked at every candidate level (all zip levels for
+   * JDK 21 and later, the legacy levels otherwise), then the size of
+   * the image and the median startup time of the training command
+   * (see the parameter "training") are measured. The level which meets
+   * the size budget with the lowest startup time is selected, the smallest
+   * image is selected if no level meets the budget. The startup time is
+   * the time to the first line of the output matching the readiness marker
+   * or to the exit of the command if the marker is not specified.
+   * The filters of the parameter "compress" are applied to every level.
+   * The decision table is written into the project build directory
+   * (jlink.compression). The image linked at the selected level is used
+   * as is, it is not linked again. If the image cache is enabled
+   * (see the parameter "imagecache"), the selected level is stored
+   * in the cache and the next builds with the same inputs skip the sweep.
+   *
+   * <p><pre>
+   * &lt;compressionsweep&gt;
+   *   &lt;levels&gt;
+   *     &lt;level&gt;ZIP_1&lt;/level&gt;
+   *     &lt;level&gt;ZIP_6&lt;/level&gt;
+   *     &lt;level&gt;ZIP_9&lt;/level&gt;
+   *   &lt;/levels&gt;
+   *   &lt;sizebudget&gt;64M&lt;/sizebudget&gt;
+   *   &lt;runs&gt;5&lt;/runs&gt;
+   *   &lt;marker&gt;^Ready&lt;/marker&gt;
+   * &lt;/compressionsweep&gt;
+   * </pre></p>
+   */
+  @Parameter
+  private CompressionSweep compressionsweep;
+
   /**
    * Includes the list of locales where langtag is
    * a BCP 47 language tag. This option supports locale matching as
@@ -599,29 +1111,174 @@ public class JlinkMojo extends BaseToolMojo {
   private File generatejliclasses;
 
   /**
-   * Load release properties from the supplied option file.
-   * - adds: is to add properties to the release file.
-   * - dels: is to delete the list of keys in release file.
-   * - Any number of key=value pairs can be passed.
-   *
-   * <p><pre>
-   * &lt;releaseinfo&gt;
-   *   &lt;file&gt;file&lt;/file&gt;
-   *   &lt;adds&gt;
-   *     &lt;key1&gt;value1&lt;/key1&gt;
-   *     &lt;key2&gt;value2&lt;/key2&gt;
-   *   &lt;/adds&gt;
-   *   &lt;dells&gt;
-   *     &lt;key1 /&gt;
-   *     &lt;key2 /&gt;
-   *   &lt;/dells&gt;
-   * &lt;/releaseinfo&gt;
-   * </pre></p>
+   * Generate the lambda form trace file by the training run of the linked
+   * image and relink the image with it.
    *
-   * </p>The jlink CLI is:
-   * <code>--release-info=file|add:key1=value1:key2=value2:...|del:key-list
-   * </code></p>
-   */
+   * <p>
+   * The image is run with the system property
+   * java.lang.invoke.MethodHandle.TRACE_RESOLVE set to true, the resolved
+   * lambda forms and species are collected (together with the lines of
+   * the file specified by the parameter "generatejliclasses") into
+   * the project build directory (jlink.jli) and the image is linked again
+   * with the option --generate-jli-classes=@jlink.jli.
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean trainjliclasses;
+
+  /**
+   * Generate the class load order by the training run of the linked image
+   * and relink the image with the resources ordered by it.
+   *
+   * <p>
+   * The image is run with the option -Xlog:class+load (and -Xshare:off),
+   * the classes loaded from the image are collected in the load order into
+   * the project build directory (jlink.classorder) and the image is linked
+   * again with the option --order-resources=@jlink.classorder followed by
+   * the patterns specified by the parameter "orderresources". Every
+   * generated class load order is also recorded into the directory
+   * specified by the parameter "classorderhistory".
+   * </p>
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean trainorderresources;
+
+  /**
+   * Specifies the directory where the class load order of every training
+   * run is recorded, so the orders of the releases can be compared.
+   * The files are named by the project artifact id, the project version
+   * and the time of the run.
+   */
+  @Parameter(
+      defaultValue = "${project.build.directory}/jlink/classorder"
+  )
+  private File classorderhistory;
+
+  /**
+   * Write the size breakdown of the linked image into the project build
+   * directory as JSON (jlink.size.json) and HTML (jlink.size.html).
+   * The resources of the modules are read from the jimage file of
+   * the image (lib/modules) through the jrt file system of the image,
+   * the uncompressed and the stored sizes are reported for every module
+   * and every package. The legal notices are attributed to their modules,
+   * the native libraries and the top level directories of the image
+   * are reported by the files.
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean sizereport;
+
+  /**
+   * Specifies the size budgets of the modules, i.e. 24M or 512K.
+   * The build fails if the stored size of the module in the jimage file
+   * of the image exceeds its budget. The size breakdown of the image is
+   * written (see the parameter "sizereport") if any budget is specified.
+   *
+   * <p><pre>
+   * &lt;modulebudgets&gt;
+   *   &lt;java.base&gt;24M&lt;/java.base&gt;
+   *   &lt;org.example.app&gt;512K&lt;/org.example.app&gt;
+   * &lt;/modulebudgets&gt;
+   * </pre></p>
+   */
+  @Parameter
+  private Map<String, String> modulebudgets;
+
+  /**
+   * Write the timing of the phases of the execution into the project
+   * build directory (jlink-metrics.json). Every phase (tool resolution,
+   * version probe, dependency resolution, filtering, staging copy, option
+   * building, jlink run, training, launcher processing and cleanup) records
+   * the wall time, the CPU time of the thread which run the phase,
+   * the CPU time of the process and the number of the files and the bytes
+   * touched by the phase.
+   */
+  @Parameter(
+      defaultValue = "true"
+  )
+  private boolean metrics;
+
+  /**
+   * Specifies the file where the timing of the phases of the execution
+   * is written in the Prometheus text format, i.e. the directory of
+   * the textfile collector of the node exporter. The file is replaced
+   * atomically. The file is not written if this parameter is not specified.
+   */
+  @Parameter
+  private File metricsprometheus;
+
+  /**
+   * Record the execution of the goal with JDK Flight Recorder using
+   * the "profile" settings. The recording of the plugin JVM (it includes
+   * the tool running inside the current JVM) is written into the project
+   * build directory (jlink-plugin.jfr). If the tool is forked, it records
+   * itself into jlink-tool.jfr (jlink-tool-N.jfr for the subsequent runs
+   * of the tool). Every phase of the execution is marked with the event
+   * "ru.akman.maven.plugins.Phase", so the recordings line up with
+   * the timing of the phases.
+   */
+  @Parameter(
+      defaultValue = "false"
+  )
+  private boolean profile;
+
+  /**
+   * Specifies the file where the full output of the executed tools
+   * (jlink, jdeps and the training runs of the image) is written,
+   * i.e. ${project.build.directory}/jlink-output.log. The output is
+   * forwarded to the log line by line as it arrives (to the debug level or
+   * to the info level if the verbose parameter is set) and only its tail
+   * is kept in memory to report the errors. The file is not written
+   * if this parameter is not specified.
+   */
+  @Parameter
+  private File toollog;
+
+  /**
+   * Specifies the timeout in seconds of every execution of the tools
+   * (jlink, jdeps and the training runs of the image). On the timeout
+   * the thread dump of the forked tool is taken (by jcmd Thread.print
+   * or by kill -3 if jcmd is not available), the tool is killed together
+   * with all its descendant processes and the build fails. The tool
+   * running inside the current JVM can't be stopped, so if the timeout
+   * is set, the tools are always executed in a separate process
+   * (as if the fork parameter is set to true). The value 0 means
+   * no timeout.
+   */
+  @Parameter(
+      defaultValue = "0"
+  )
+  private int timeout;
+
+  /**
+   * Load release properties from the supplied option file.
+   * - adds: is to add properties to the release file.
+   * - dels: is to delete the list of keys in release file.
+   * - Any number of key=value pairs can be passed.
+   *
+   * <p><pre>
+   * &lt;releaseinfo&gt;
+   *   &lt;file&gt;file&lt;/file&gt;
+   *   &lt;adds&gt;
+   *     &lt;key1&gt;value1&lt;/key1&gt;
+   *     &lt;key2&gt;value2&lt;/key2&gt;
+   *   &lt;/adds&gt;
+   *   &lt;dells&gt;
+   *     &lt;key1 /&gt;
+   *     &lt;key2 /&gt;
+   *   &lt;/dells&gt;
+   * &lt;/releaseinfo&gt;
+   * </pre></p>
+   *
+   * </p>The jlink CLI is:
+   * <code>--release-info=file|add:key1=value1:key2=value2:...|del:key-list
+   * </code></p>
+   */
   @Parameter
   private ReleaseInfo releaseinfo;
 
@@ -709,15 +1366,72 @@ public class JlinkMojo extends BaseToolMojo {
         .map(d -> new File(StringUtils.stripToEmpty(d.getSystemPath())))
         .collect(Collectors.toList()));
 
+    // this is used to resolve main module descriptor
+    final File descriptorFile =
+        getOutputDir().toPath().resolve(DESCRIPTOR_NAME).toFile();
+    final boolean hasDescriptor = descriptorFile.exists()
+        && !descriptorFile.isDirectory();
+
+    // read module descriptors in parallel inside the current JVM
+    if (parallelresolution) {
+      final DescriptorIndex index = getDescriptorIndex();
+      ResolvePathsResult<File> result;
+      try {
+        result = new ModuleResolver(Runtime.getRuntime().availableProcessors(),
+            PluginUtils.getFeatureVersion(getToolVersion()), index)
+            .resolvePaths(paths, hasDescriptor ? descriptorFile : null);
+      } catch (InvalidModuleDescriptorException ex) {
+        // the main module descriptor can't be read by the current JVM
+        result = null;
+      } catch (IOException | RuntimeException ex) {
+        throw new MojoExecutionException(
+            "Error: Unable to resolve project dependencies", ex);
+      }
+      if (result == null || ModuleResolver.isUnsupported(result)) {
+        if (getLog().isWarnEnabled()) {
+          getLog().warn("Some module descriptors can't be read by"
+              + " the current JVM, the LocationManager is used");
+        }
+        return resolveDependencies(paths,
+            hasDescriptor ? descriptorFile : null);
+      }
+      if (index != null) {
+        try {
+          index.store();
+        } catch (IOException ex) {
+          if (getLog().isWarnEnabled()) {
+            getLog().warn(MessageFormat.format(
+                "Unable to store module descriptors index: [{0}]",
+                descriptorindex), ex);
+          }
+        }
+      }
+      return result;
+    }
+
+    return resolveDependencies(paths, hasDescriptor ? descriptorFile : null);
+
+  }
+
+  /**
+   * Resolve project dependencies by the LocationManager.
+   *
+   * @param paths the path elements
+   * @param descriptorFile the main module descriptor file, can be null
+   *
+   * @return map of the resolved project dependencies
+   *
+   * @throws MojoExecutionException if any errors occurred while resolving
+   *                                dependencies
+   */
+  private ResolvePathsResult<File> resolveDependencies(final List<File> paths,
+      final File descriptorFile) throws MojoExecutionException {
+
     // create request contains all information
     // required to analyze the project
     final ResolvePathsRequest<File> request =
         ResolvePathsRequest.ofFiles(paths);
-
-    // this is used to resolve main module descriptor
-    final File descriptorFile =
-        getOutputDir().toPath().resolve(DESCRIPTOR_NAME).toFile();
-    if (descriptorFile.exists() && !descriptorFile.isDirectory()) {
+    if (descriptorFile != null) {
       request.setMainModuleDescriptor(descriptorFile);
     }
 
@@ -729,13 +1443,36 @@ public class JlinkMojo extends BaseToolMojo {
     // resolve project dependencies
     try {
       return locationManager.resolvePaths(request);
-    } catch (IOException ex) {
+    } catch (IOException | RuntimeException ex) {
       throw new MojoExecutionException(
           "Error: Unable to resolve project dependencies", ex);
     }
 
   }
 
+  /**
+   * Get the persistent index of the module descriptors.
+   *
+   * @return the loaded index or null if the index is disabled
+   */
+  private DescriptorIndex getDescriptorIndex() {
+    if (descriptorindex == null
+        || StringUtils.isBlank(descriptorindex.getPath())) {
+      return null;
+    }
+    final DescriptorIndex index = new DescriptorIndex(descriptorindex.toPath());
+    try {
+      index.load();
+    } catch (IOException | IllegalArgumentException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to load module descriptors index: [{0}]",
+            descriptorindex), ex);
+      }
+    }
+    return index;
+  }
+
   /**
    * Fetch the resolved main module descriptor.
    *
@@ -1048,8 +1785,8 @@ public class JlinkMojo extends BaseToolMojo {
             }
           }
         } else {
-          isIncluded = matchesIncludes(depSet, file, descriptor)
-              && !matchesExcludes(depSet, file, descriptor);
+          isIncluded = getDependencyMatcher(depSet).matches(file,
+              descriptor == null ? "" : descriptor.name());
         }
       }
     }
@@ -1063,122 +1800,14 @@ public class JlinkMojo extends BaseToolMojo {
   }
 
   /**
-   * Checks whether the dependency defined by the file and
-   * the module descriptor matches the include patterns
-   * from the dependencyset.
-   *
-   * @param depSet the dependencyset
-   * @param file the file
-   * @param descriptor the module descriptor
-   *
-   * @return should the dependency be included
-   */
-  private boolean matchesIncludes(final DependencySet depSet, final File file,
-      final JavaModuleDescriptor descriptor) {
-
-    final String name = descriptor == null ? "" : descriptor.name();
-
-    final List<String> includes = depSet.getIncludes();
-    final List<String> includenames = depSet.getIncludeNames();
-
-    boolean result = true;
-
-    if (includenames == null || includenames.isEmpty()) {
-      if (includes == null || includes.isEmpty()) {
-        result = true;
-      } else {
-        result = pathMatches(includes, file.toPath());
-      }
-    } else {
-      if (includes == null || includes.isEmpty()) {
-        result = nameMatches(includenames, name);
-      } else {
-        result = pathMatches(includes, file.toPath())
-            || nameMatches(includenames, name);
-      }
-    }
-    return result;
-  }
-
-  /**
-   * Checks whether the dependency defined by the file and
-   * the module descriptor matches the exclude patterns
-   * from the dependencyset.
+   * Get the compiled matcher for the dependencyset.
    *
    * @param depSet the dependencyset
-   * @param file the file
-   * @param descriptor the module descriptor
-   *
-   * @return should the dependency be excluded
-   */
-  private boolean matchesExcludes(final DependencySet depSet, final File file,
-      final JavaModuleDescriptor descriptor) {
-
-    final String name = descriptor == null ? "" : descriptor.name();
-
-    final List<String> excludes = depSet.getExcludes();
-    final List<String> excludenames = depSet.getExcludeNames();
-
-    boolean result = false;
-
-    if (excludenames == null || excludenames.isEmpty()) {
-      if (excludes == null || excludes.isEmpty()) {
-        result = false;
-      } else {
-        result = pathMatches(excludes, file.toPath());
-      }
-    } else {
-      if (excludes == null || excludes.isEmpty()) {
-        result = nameMatches(excludenames, name);
-      } else {
-        result = pathMatches(excludes, file.toPath())
-            || nameMatches(excludenames, name);
-      }
-    }
-    return result;
-  }
-
-  /**
-   * Checks if the path matches at least one of the patterns.
-   * The pattern should be regex or glob, this is determined
-   * by the prefix specified in the pattern.
-   *
-   * @param patterns the list of patterns
-   * @param path the file path
-   *
-   * @return true if the path matches at least one of the patterns or
-   *              if no patterns are specified
-   */
-  private boolean pathMatches(final List<String> patterns, final Path path) {
-    for (final String pattern : patterns) {
-      final PathMatcher pathMatcher =
-          FileSystems.getDefault().getPathMatcher(pattern);
-      if (pathMatcher.matches(path)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  /**
-   * Checks if the name matches at least one of the patterns.
-   * The pattern should be regex only.
    *
-   * @param patterns the list of patterns
-   * @param name the name
-   *
-   * @return true if the name matches at least one of the patterns or
-   *              if no patterns are specified
+   * @return the compiled matcher
    */
-  private boolean nameMatches(final List<String> patterns, final String name) {
-    for (final String pattern : patterns) {
-      final Pattern regexPattern = Pattern.compile(pattern);
-      final Matcher nameMatcher = regexPattern.matcher(name);
-      if (nameMatcher.matches()) {
-        return true;
-      }
-    }
-    return false;
+  private DependencyMatcher getDependencyMatcher(final DependencySet depSet) {
+    return dependencyMatchers.computeIfAbsent(depSet, DependencyMatcher::new);
   }
 
   /**
@@ -1220,24 +1849,223 @@ public class JlinkMojo extends BaseToolMojo {
         path.append(StringUtils.stripToEmpty(dependencySets));
       }
       if (path.length() != 0) {
+        modulePath = path.toString();
         opt = cmdLine.createOpt();
         opt.createArg().setValue("--module-path");
-        opt.createArg().setValue(path.toString());
+        opt.createArg().setValue(modulePath);
       }
     }
-    // addmodules
-    if (includelocales != null && !includelocales.isEmpty()) {
-      if (addmodules == null) {
-        addmodules = new ArrayList<>();
+    // automodules
+    final List<String> modules = new ArrayList<>();
+    if (addmodules != null) {
+      modules.addAll(addmodules);
+    }
+    if (automodules) {
+      if (mainModuleDescriptor != null
+          && !modules.contains(mainModuleDescriptor.name())) {
+        modules.add(mainModuleDescriptor.name());
+      }
+      for (final String module : computeModules()) {
+        if (!modules.contains(module)) {
+          modules.add(module);
+        }
+      }
+    }
+    // servicebindings
+    if (servicebindings != null && !servicebindings.isEmpty()) {
+      if (bindservices && getLog().isWarnEnabled()) {
+        getLog().warn("All service providers will be bound because"
+            + " the parameter bindservices is set to true");
       }
-      addmodules.add("jdk.localedata");
+      for (final String module : getServiceProviders(modules)) {
+        if (!modules.contains(module)) {
+          modules.add(module);
+        }
+      }
+    }
+    // addmodules
+    if (includelocales != null && !includelocales.isEmpty()
+        && !modules.contains("jdk.localedata")) {
+      modules.add("jdk.localedata");
     }
-    if (addmodules != null && !addmodules.isEmpty()) {
+    if (!modules.isEmpty()) {
       opt = cmdLine.createOpt();
       opt.createArg().setValue("--add-modules");
       opt.createArg().setValue(
-          addmodules.stream().collect(Collectors.joining(",")));
+          modules.stream().collect(Collectors.joining(",")));
+    }
+  }
+
+  /**
+   * Get the provider modules of the services used by the root modules
+   * and their dependencies and of the services specified by
+   * the servicebindings parameter.
+   *
+   * @param roots the names of the root modules
+   *
+   * @return the list of the provider module names
+   */
+  private List<String> getServiceProviders(final List<String> roots) {
+    final List<JavaModuleDescriptor> descriptors = new ArrayList<>();
+    projectDependencies.getPathElements().values().stream()
+        .filter(Objects::nonNull)
+        .forEach(descriptors::add);
+    final List<String> rootModules = new ArrayList<>(roots);
+    if (mainModuleDescriptor != null) {
+      descriptors.add(mainModuleDescriptor);
+      rootModules.add(mainModuleDescriptor.name());
+    }
+    final Map<String, List<String>> allowed = new LinkedHashMap<>();
+    for (final ServiceBinding binding : servicebindings) {
+      final String service = binding == null
+          ? null
+          : StringUtils.stripToNull(binding.getService());
+      if (service == null) {
+        if (getLog().isWarnEnabled()) {
+          getLog().warn("Service binding without service name is ignored");
+        }
+        continue;
+      }
+      allowed.put(service, binding.getProviders() == null
+          ? List.of() : binding.getProviders());
+    }
+    final ServiceBinder binder = new ServiceBinder(descriptors, allowed);
+    if (getLog().isWarnEnabled()) {
+      allowed.forEach((service, providers) -> providers.stream()
+          .filter(provider -> binder.isNotProvider(provider, service))
+          .forEach(provider -> getLog().warn(MessageFormat.format(
+              "Module [{0}] does not provide service [{1}]", provider,
+              service))));
+    }
+    final List<String> result = new ArrayList<>();
+    for (final Map.Entry<String, List<String>> entry
+        : binder.bind(rootModules).entrySet()) {
+      if (getLog().isInfoEnabled()) {
+        getLog().info(MessageFormat.format("Service [{0}] bound to: {1}",
+            entry.getKey(), entry.getValue()));
+      }
+      entry.getValue().stream()
+          .filter(provider -> !result.contains(provider))
+          .forEach(result::add);
+    }
+    return result;
+  }
+
+  /**
+   * Compute the JDK modules required by the project classes and
+   * the dependencies using the jdeps tool and write the report.
+   *
+   * @return the set of the required JDK modules
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private Set<String> computeModules() throws MojoExecutionException {
+    final Commandline cmdLine = new Commandline();
+    final File jdeps = findSiblingToolExecutable(JDEPS_NAME);
+    if (jdeps != null) {
+      cmdLine.setExecutable(jdeps.toString());
+    }
+    final int release = PluginUtils.getFeatureVersion(getToolVersion());
+    cmdLine.createArg().setValue("--multi-release");
+    cmdLine.createArg().setValue(release == 0 ? "base"
+        : Integer.toString(release));
+    cmdLine.createArg().setValue("-verbose:class");
+    cmdLine.createArg().setValue("-filter:archive");
+    if (modulePath != null) {
+      cmdLine.createArg().setValue("--module-path");
+      cmdLine.createArg().setValue(modulePath);
+    }
+    final List<String> targets = new ArrayList<>();
+    if (getOutputDir().isDirectory()) {
+      targets.add(getOutputDir().toString());
+    }
+    for (final File dir : List.of(modsdir, libsdir)) {
+      final File[] files = dir.listFiles(File::isFile);
+      if (files != null) {
+        Stream.of(files)
+            .map(File::toString)
+            .sorted()
+            .forEach(targets::add);
+      }
+    }
+    if (targets.isEmpty()) {
+      return Set.of();
+    }
+    targets.forEach(target -> cmdLine.createArg().setValue(target));
+
+    // Execute command line inside the current JVM if the tool belongs
+    // to the running JDK, otherwise fork a new process
+    final ToolProvider toolProvider = fork
+        ? null
+        : findToolProvider(JDEPS_NAME); // from BaseToolMojo
+    if (toolProvider == null && jdeps == null) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Executable for [{0}] not found", JDEPS_NAME));
+    }
+    final CommandLineUtils.StringStreamConsumer out =
+        new CommandLineUtils.StringStreamConsumer();
+    int exitCode = 0;
+    try {
+      exitCode = toolProvider == null
+          ? execCmdLine(cmdLine, out, null) // from BaseToolMojo
+          : execToolProvider(toolProvider, cmdLine, out,
+              null); // from BaseToolMojo
+    } catch (CommandLineException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to execute [{0}] tool", JDEPS_NAME), ex);
+    }
+    if (exitCode != 0) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Tool execution failed [{0}] with exit code: {1}",
+          JDEPS_NAME, exitCode));
+    }
+
+    final ModuleDependencies dependencies =
+        ModuleDependencies.parse(out.getOutput(), targets);
+    final Path reportPath = getBuildDir().toPath().resolve(
+        MODULES_REPORT_FILE);
+    try {
+      Files.write(reportPath, dependencies.getReport(), getCharset());
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write modules report to file: [{0}]",
+          reportPath), ex);
+    }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format("Computed modules: {0}",
+          dependencies.getModules()));
+    }
+    return dependencies.getModules();
+  }
+
+  /**
+   * Get the compress option of the compression level
+   * with the filters of the compress parameter.
+   *
+   * @param compression the compression level
+   *
+   * @return the compress option
+   */
+  private String getCompressOption(final Compression compression) {
+    final int version = PluginUtils.getFeatureVersion(getToolVersion());
+    if (compression.isZipLevel() && version < Compression.ZIP_LEVELS_VERSION
+        && getLog().isWarnEnabled()) {
+      getLog().warn(MessageFormat.format(
+          "Compression level {0} requires at least JDK {1},"
+          + " level {2} is used", compression.getLevelName(),
+          Integer.toString(Compression.ZIP_LEVELS_VERSION),
+          compression.getOption(version)));
     }
+    final StringBuilder option = new StringBuilder("--compress=");
+    option.append(compression.getOption(version));
+    final List<String> filters = compress == null
+        ? null
+        : compress.getFilters();
+    if (filters != null) {
+      option.append(filters.stream()
+          .collect(Collectors.joining(",", ":filter=", "")));
+    }
+    return option.toString();
   }
 
   /**
@@ -1254,12 +2082,13 @@ public class JlinkMojo extends BaseToolMojo {
     opt = cmdLine.createOpt();
     opt.createArg().setValue("--output");
     try {
-      opt.createArg().setValue(output.getCanonicalPath());
+      opt.createArg().setValue(
+          imagePublisher.getStagingDir().toFile().getCanonicalPath());
     } catch (IOException ex) {
       throw new MojoExecutionException(MessageFormat.format(
           ERROR_RESOLVE,
           "--output",
-          output.toString()), ex);
+          imagePublisher.getStagingDir().toString()), ex);
     }
     // saveopts
     if (saveopts != null) {
@@ -1391,7 +2220,11 @@ public class JlinkMojo extends BaseToolMojo {
           + excludejmodsection.toString().toLowerCase(Locale.ROOT));
     }
     // generatejliclasses
-    if (generatejliclasses != null) {
+    if (trainjliclasses) {
+      opt = cmdLine.createOpt();
+      opt.createArg().setValue("--generate-jli-classes=@"
+          + getBuildDir().toPath().resolve(JLI_TRACE_FILE).toAbsolutePath());
+    } else if (generatejliclasses != null) {
       opt = cmdLine.createOpt();
       try {
         opt.createArg().setValue("--generate-jli-classes=@"
@@ -1432,24 +2265,28 @@ public class JlinkMojo extends BaseToolMojo {
       }
     }
     // compress
-    if (compress != null) {
-      final Compression compression = compress.getCompression();
-      final List<String> filters = compress.getFilters();
-      if (compression != null) {
-        final StringBuilder option = new StringBuilder("--compress=");
-        option.append(compression.getValue());
-        if (filters != null) {
-          option.append(filters.stream()
-              .collect(Collectors.joining(",", ":filter=", "")));
-        }
-        opt = cmdLine.createOpt();
-        opt.createArg().setValue(option.toString());
-      }
+    final Compression compression = compress == null
+        ? null
+        : compress.getCompression();
+    if (compression != null || compressionsweep != null) {
+      opt = cmdLine.createOpt();
+      compressArg = opt.createArg();
+      compressArg.setValue(getCompressOption(compression == null
+          ? Compression.NO_COMPRESSION
+          : compression));
     }
     // orderresources
-    if (orderresources != null && !orderresources.isEmpty()) {
+    final List<String> orderPatterns = new ArrayList<>();
+    if (trainorderresources) {
+      orderPatterns.add("@" + getBuildDir().toPath().resolve(CLASS_ORDER_FILE)
+          .toAbsolutePath());
+    }
+    if (orderresources != null) {
+      orderPatterns.addAll(orderresources);
+    }
+    if (!orderPatterns.isEmpty()) {
       opt = cmdLine.createOpt();
-      opt.createArg().setValue(orderresources.stream()
+      opt.createArg().setValue(orderPatterns.stream()
           .collect(Collectors.joining(",", "--order-resources=", "")));
     }
     // excluderesources
@@ -1499,45 +2336,55 @@ public class JlinkMojo extends BaseToolMojo {
 
   /**
    * Copy files (only files, not directories) to the specified directory.
+   * Only the changed files are copied and the orphaned files are removed
+   * from the directory.
    *
    * @param files the list of files
    * @param dir the destination directory
    *
+   * @return the result of the staging
+   *
    * @throws MojoExecutionException if any errors occurred while copying a file
    */
-  private void copyFiles(final List<File> files, final File dir)
-      throws MojoExecutionException {
+  private DependencyStager.Result copyFiles(final List<File> files,
+      final File dir) throws MojoExecutionException {
     if (getLog().isDebugEnabled()) {
       getLog().debug(MessageFormat.format("Copy files to: [{0}]", dir));
     }
-    for (final File file : files) {
-      try {
-        if (file.exists()) {
-          if (file.isDirectory()) {
-            if (getLog().isDebugEnabled()) {
-              getLog().debug(MessageFormat.format("Skiped directory: [{0}]",
-                  file));
-            }
-          } else {
-            FileUtils.copyFileToDirectory(file, dir);
-            if (getLog().isDebugEnabled()) {
-              getLog().debug(MessageFormat.format("Copied file: [{0}]", file));
-            }
-          }
-        }
-      } catch (IOException | IllegalArgumentException ex) {
-        throw new MojoExecutionException(MessageFormat.format(
-            "Error: Unable to copy file: [{0}]", file), ex);
-      }
+    final DependencyStager stager = new DependencyStager(stagingthreads,
+        stagingchecksum, stagingmode);
+    final DependencyStager.Result result;
+    try {
+      result = stager.stage(files, dir.toPath());
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to copy files to: [{0}]", dir), ex);
+    }
+    if (stagingmode != null && !stagingmode.equals(stager.getMode())
+        && getLog().isWarnEnabled()) {
+      getLog().warn(MessageFormat.format(
+          "Staging mode [{0}] is not supported for [{1}], falling back to {2}",
+          stagingmode, dir, stager.getMode()));
+    }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Staged files to [{0}]: {1} copied ({2} bytes), {3} linked,"
+          + " {4} up to date, {5} removed", dir, result.getCopied(),
+          result.getBytes(), result.getLinked(), result.getSkipped(),
+          result.getRemoved()));
     }
+    return result;
   }
 
   /**
    * Process launcher scripts.
    *
+   * @param image the image directory
+   *
    * @throws MojoExecutionException if any errors occurred
    */
-  private void processLauncherScripts() throws MojoExecutionException {
+  private void processLauncherScripts(final Path image)
+      throws MojoExecutionException {
     if (launcher == null) {
       return;
     }
@@ -1547,8 +2394,8 @@ public class JlinkMojo extends BaseToolMojo {
       return;
     }
 
-    final Path nixScript = output.toPath().resolve("bin/" + scriptName);
-    final Path winScript = output.toPath().resolve("bin/" + scriptName
+    final Path nixScript = image.resolve("bin/" + scriptName);
+    final Path winScript = image.resolve("bin/" + scriptName
         + ".bat");
 
     if (stripnativecommands) {
@@ -1620,49 +2467,73 @@ public class JlinkMojo extends BaseToolMojo {
     final File nixTemplate = launcher.getNixTemplate();
     if (nixTemplate != null && Files.exists(nixTemplate.toPath())
         && !Files.isDirectory(nixTemplate.toPath())) {
+      data.put("jvmArgs", getLauncherJvmArgs(jvmArgs, false));
       createLauncherScript(nixScript, nixTemplate.toPath(), data);
+    } else if (Files.isRegularFile(nixScript)) {
+      injectLauncherVmOptions(nixScript, false);
     }
 
     final File winTemplate = launcher.getWinTemplate();
     if (winTemplate != null && Files.exists(winTemplate.toPath())
         && !Files.isDirectory(winTemplate.toPath())) {
+      data.put("jvmArgs", getLauncherJvmArgs(jvmArgs, true));
       createLauncherScript(winScript, winTemplate.toPath(), data);
+    } else if (Files.isRegularFile(winScript)) {
+      injectLauncherVmOptions(winScript, true);
     }
 
   }
 
   /**
-   * Create launcher script.
+   * Inject the JVM options referring to the files inside the image into
+   * the launcher script generated by the tool. The options are appended
+   * to the JLINK_VM_OPTIONS variable right after the "DIR" variable
+   * of the script is defined.
    *
-   * @param script the launcher script file path
-   * @param template the launcher template file path
-   * @param data the hash map contains variable names and values to substitute
+   * @param script the launcher script generated by the tool
+   * @param windows is the launcher script for windows
    *
-   * @throws MojoExecutionException if any errors occurred while processing
-   *                                launcher script files
+   * @throws MojoExecutionException if the script can't be updated
    */
-  private void createLauncherScript(final Path script, final Path template,
-      final Map<String, String> data) throws MojoExecutionException {
-    if (getLog().isDebugEnabled()) {
-      getLog().debug(System.lineSeparator()
-          + MessageFormat.format("Fixing launcher script: [{0}]", script)
-          + System.lineSeparator()
-          + MessageFormat.format("with template: [{0}]", template));
+  private void injectLauncherVmOptions(final Path script,
+      final boolean windows) throws MojoExecutionException {
+    if (imageJvmOptions.isEmpty()) {
+      return;
     }
-    final StringSubstitutor engine = new StringSubstitutor(data)
-        .setEnableUndefinedVariableException(true)
-        .setPreserveEscapes(true)
-        .setEscapeChar('\\');
+    final List<String> lines;
     try {
-      Files.write(script,
-          Files.lines(template, getCharset())
-              .map(line -> engine.replace(line).replace("\\$", "$"))
-              .collect(Collectors.toList()),
-          getCharset());
-    } catch (IllegalArgumentException ex) {
+      lines = new ArrayList<>(Files.readAllLines(script, getCharset()));
+    } catch (IOException ex) {
       throw new MojoExecutionException(MessageFormat.format(
-          "Error: Variable not found in the launcher template file: [{0}]",
-          template), ex);
+          "Error: Unable to read the launcher script: [{0}]", script), ex);
+    }
+    final String optionsPrefix = windows
+        ? "set JLINK_VM_OPTIONS="
+        : "JLINK_VM_OPTIONS=";
+    final String dirPrefix = windows ? "set DIR=" : "DIR=";
+    final boolean hasOptions = lines.stream()
+        .anyMatch(line -> line.trim().startsWith(optionsPrefix));
+    int index = -1;
+    for (int i = 0; i < lines.size(); i++) {
+      if (lines.get(i).trim().startsWith(dirPrefix)) {
+        index = i;
+        break;
+      }
+    }
+    if (!hasOptions || index < 0) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to inject the JVM options {0} into the launcher"
+          + " script: [{1}], the JLINK_VM_OPTIONS variable is not found,"
+          + " specify the launcher templates", imageJvmOptions.keySet(),
+          script));
+    }
+    lines.add(index + 1, windows
+        ? "set JLINK_VM_OPTIONS=%JLINK_VM_OPTIONS% "
+            + getLauncherJvmArgs("", true)
+        : "JLINK_VM_OPTIONS=\"$JLINK_VM_OPTIONS "
+            + getScriptVmOptions() + "\"");
+    try {
+      writeLauncherScript(script, lines);
     } catch (IOException ex) {
       throw new MojoExecutionException(MessageFormat.format(
           "Error: Unable to write to the launcher script file: [{0}]",
@@ -1671,137 +2542,1668 @@ public class JlinkMojo extends BaseToolMojo {
   }
 
   /**
-   * Execute goal.
+   * Get the value of the JLINK_VM_OPTIONS variable of the launcher script
+   * for linux/unix with the JVM options referring to the files inside
+   * the image. The variable is expanded unquoted by the script, so the
+   * files are not quoted.
    *
-   * @throws MojoExecutionException if any errors occurred
+   * @return the JVM options
    */
-  @Override
-  public void execute() throws MojoExecutionException {
+  private String getScriptVmOptions() {
+    return imageJvmOptions.entrySet().stream()
+        .map(entry -> entry.getKey() + (entry.getValue() == null
+            ? "" : "$DIR/../" + entry.getValue()))
+        .collect(Collectors.joining(" "));
+  }
 
-    // Init
-    init(TOOL_NAME, toolhome, TOOL_HOME_BIN); // from BaseToolMojo
+  /**
+   * Get the JVM arguments of the launcher script with the injected
+   * JVM options referring to the files inside the image. The files are
+   * resolved against the "DIR" variable of the launcher script.
+   *
+   * @param jvmArgs the JVM arguments specified for the launcher
+   * @param windows is the launcher script for windows
+   *
+   * @return the JVM arguments of the launcher script
+   */
+  private String getLauncherJvmArgs(final String jvmArgs,
+      final boolean windows) {
+    final StringBuilder result = new StringBuilder(jvmArgs);
+    for (final Map.Entry<String, String> entry : imageJvmOptions.entrySet()) {
+      if (result.length() != 0) {
+        result.append(' ');
+      }
+      result.append(entry.getKey());
+      if (entry.getValue() != null) {
+        result.append(windows
+            ? "\"%DIR%..\\" + entry.getValue().replace('/', '\\') + "\""
+            : "\"$DIR/../" + entry.getValue() + "\"");
+      }
+    }
+    return result.toString();
+  }
 
-    // Check version
-    toolJavaVersion = getToolJavaVersion();
-    if (toolJavaVersion == null
-        || !toolJavaVersion.atLeast(JavaVersion.JAVA_9)) {
-      throw new MojoExecutionException(MessageFormat.format(
-          "Error: At least {0} is required to use [{1}]", JavaVersion.JAVA_9,
-          TOOL_NAME));
+  /**
+   * Get the java launcher of the image.
+   *
+   * @param image the image directory
+   *
+   * @return the java launcher executable
+   */
+  private static Path getImageJava(final Path image) {
+    return image.resolve("bin").resolve(
+        SystemUtils.IS_OS_WINDOWS ? "java.exe" : "java");
+  }
+
+  /**
+   * Get the arguments of the java launcher of the image which run
+   * the training command: the JVM arguments, the main module (and
+   * the main class) and the command arguments. The values which are not
+   * specified by the training parameter are taken from the launcher.
+   *
+   * @return the arguments of the training command
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private List<String> getTrainingArguments() throws MojoExecutionException {
+    final String moduleName = StringUtils.firstNonBlank(
+        training == null ? null : training.getMainModule(),
+        launcher == null ? null : launcher.getMainModule());
+    if (moduleName == null) {
+      throw new MojoExecutionException(
+          "Error: The main module of the training command is not specified");
+    }
+    final String mainClassName = StringUtils.firstNonBlank(
+        training == null ? null : training.getMainClass(),
+        launcher == null ? null : launcher.getMainClass());
+    final String jvmArgs = StringUtils.firstNonBlank(
+        training == null ? null : training.getJvmArgs(),
+        launcher == null ? null : launcher.getJvmArgs());
+    final String args = StringUtils.firstNonBlank(
+        training == null ? null : training.getArgs(),
+        launcher == null ? null : launcher.getArgs());
+    final List<String> result = new ArrayList<>();
+    try {
+      if (jvmArgs != null) {
+        result.addAll(List.of(CommandLineUtils.translateCommandline(jvmArgs)));
+      }
+      result.add("-m");
+      result.add(mainClassName == null
+          ? moduleName.trim()
+          : moduleName.trim() + "/" + mainClassName.trim());
+      if (args != null) {
+        result.addAll(List.of(CommandLineUtils.translateCommandline(args)));
+      }
+    } catch (Exception ex) {
+      throw new MojoExecutionException(
+          "Error: Unable to parse the arguments of the training command", ex);
     }
+    return result;
+  }
 
-    // Create mods directory
+  /**
+   * Run the java launcher of the image.
+   *
+   * @param image the image directory
+   * @param options the JVM options
+   * @param train run the training command after the JVM options
+   *
+   * @return the exit code
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private int runImage(final Path image, final List<String> options,
+      final boolean train) throws MojoExecutionException {
+    return runImage(image, options, train, null);
+  }
+
+  /**
+   * Run the java launcher of the image with defined standard output.
+   *
+   * @param image the image directory
+   * @param options the JVM options
+   * @param train run the training command after the JVM options
+   * @param out standard output, can be null
+   *
+   * @return the exit code
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private int runImage(final Path image, final List<String> options,
+      final boolean train, final CommandLineUtils.StringStreamConsumer out)
+      throws MojoExecutionException {
+    final Commandline cmdLine = new Commandline();
+    cmdLine.setExecutable(getImageJava(image).toString());
+    cmdLine.setWorkingDirectory(getBaseDir());
+    options.forEach(option -> cmdLine.createArg().setValue(option));
+    if (train) {
+      getTrainingArguments().forEach(arg -> cmdLine.createArg().setValue(arg));
+    }
     try {
-      FileUtils.forceMkdir(modsdir);
-    } catch (IOException | IllegalArgumentException ex) {
+      return execCmdLine(cmdLine, out, null); // from BaseToolMojo
+    } catch (CommandLineException ex) {
       throw new MojoExecutionException(MessageFormat.format(
-          "Error: Unable to create mods directory: [{0}]", modsdir), ex);
+          "Error: Unable to run the image: [{0}]", image), ex);
     }
+  }
 
-    // Create libs directory
+  /**
+   * Get the lines of the lambda form trace file specified by
+   * the generatejliclasses parameter.
+   *
+   * @return the lines of the file or an empty list if it is not specified
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private List<String> getJliClassesLines() throws MojoExecutionException {
+    if (generatejliclasses == null) {
+      return List.of();
+    }
     try {
-      FileUtils.forceMkdir(libsdir);
-    } catch (IOException | IllegalArgumentException ex) {
+      return Files.readAllLines(generatejliclasses.toPath(), getCharset());
+    } catch (IOException ex) {
       throw new MojoExecutionException(MessageFormat.format(
-          "Error: Unable to create libs directory: [{0}]", libsdir), ex);
+          "Error: Unable to read lambda form trace file: [{0}]",
+          generatejliclasses), ex);
     }
+  }
 
-    // Delete image output directory if it exists
-    if (getLog().isDebugEnabled()) {
-      getLog().debug(MessageFormat.format("Output directory: [{0}]", output));
+  /**
+   * Write the training files used by the first link: the lambda form trace
+   * file contains the lines of the file specified by the generatejliclasses
+   * parameter and the class load order file is empty.
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void prepareTrainingFiles() throws MojoExecutionException {
+    final Path buildPath = getBuildDir().toPath();
+    if (trainjliclasses) {
+      writeTrainingFile(buildPath.resolve(JLI_TRACE_FILE),
+          getJliClassesLines());
     }
-    if (output.exists() && output.isDirectory()) {
-      try {
-        FileUtils.deleteDirectory(output);
-      } catch (IOException ex) {
-        throw new MojoExecutionException(MessageFormat.format(
-            "Error: Unable to delete image output directory: [{0}]", output),
-            ex);
-      }
+    if (trainorderresources) {
+      writeTrainingFile(buildPath.resolve(CLASS_ORDER_FILE), List.of());
     }
+  }
 
-    // Resolve and fetch project dependencies
-    projectDependencies = resolveDependencies();
-    mainModuleDescriptor = fetchMainModuleDescriptor();
-    List<File> classpathElements = fetchClasspathElements();
-    List<File> modulepathElements = fetchModulepathElements();
-    Map<File, String> pathExceptions = fetchPathExceptions();
-    if (!pathExceptions.isEmpty() && getLog().isWarnEnabled()) {
-      getLog().warn("Found path exceptions: " + pathExceptions.size()
-          + System.lineSeparator()
-          + pathExceptions.entrySet().stream()
-              .map(entry -> entry.getKey().toString()
-                  + System.lineSeparator()
-                  + entry.getValue())
-              .collect(Collectors.joining(System.lineSeparator())));
+  /**
+   * Write the lines into the training file.
+   *
+   * @param path the training file
+   * @param lines the lines
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void writeTrainingFile(final Path path,
+      final Collection<String> lines) throws MojoExecutionException {
+    try {
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      Files.write(path, lines, getCharset());
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write training file: [{0}]", path), ex);
     }
+  }
 
-    // copy dependencies
-    copyFiles(modulepathElements, modsdir);
-    copyFiles(classpathElements, libsdir);
-
-    // Build command line and populate the list of the command options
-    final CommandLineBuilder cmdLineBuilder = new CommandLineBuilder();
-    cmdLineBuilder.setExecutable(getToolExecutable().toString());
-    processOptions(cmdLineBuilder);
-    processModules(cmdLineBuilder);
-    final List<String> optsLines = new ArrayList<>();
-    optsLines.add("# " + TOOL_NAME);
-    optsLines.addAll(cmdLineBuilder.buildOptionList());
-    if (getLog().isDebugEnabled()) {
-      getLog().debug(optsLines.stream()
-          .collect(Collectors.joining(System.lineSeparator(),
-              System.lineSeparator(), "")));
+  /**
+   * Trace the lambda forms resolved by the training run of the image and
+   * (or) record the class load order of the training run, then relink
+   * the image with the collected files.
+   *
+   * @param cmdLineBuilder the command line builder
+   * @param optsLines the list of the tool options
+   * @param image the image directory
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void trainImage(final CommandLineBuilder cmdLineBuilder,
+      final List<String> optsLines, final Path image)
+      throws MojoExecutionException {
+    final long start = System.nanoTime();
+    final List<String> options = new ArrayList<>();
+    if (trainjliclasses) {
+      options.add("-D" + JLI_TRACE_PROPERTY + "=true");
+    }
+    if (trainorderresources) {
+      // the classes loaded from the CDS archive have no module source
+      options.add("-Xshare:off");
+      options.add(CLASS_LOAD_LOG);
+    }
+    final CommandLineUtils.StringStreamConsumer out =
+        new CommandLineUtils.StringStreamConsumer();
+    final int exitCode = runImage(image, options, true, out);
+    if (exitCode != 0) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to train the image, exit code: {0}", exitCode));
+    }
+    final List<String> output = List.of(out.getOutput().split("\\R"));
+    boolean relink = false;
+    if (trainjliclasses) {
+      relink |= traceJliClasses(output);
+    }
+    if (trainorderresources) {
+      relink |= recordClassOrder(output);
+    }
+    if (!relink) {
+      if (getLog().isInfoEnabled()) {
+        getLog().info("Nothing is traced, the image is not relinked");
+      }
+      return;
     }
-
-    // Save the list of command options to the file
-    // will be used in the tool command line
-    final Path cmdOptsPath = getBuildDir().toPath().resolve(OPTS_FILE);
     try {
-      Files.write(cmdOptsPath, optsLines, getCharset());
+      FileUtils.forceDelete(image.toFile());
     } catch (IOException ex) {
       throw new MojoExecutionException(MessageFormat.format(
-          "Error: Unable to write command options to file: [{0}]",
-          cmdOptsPath), ex);
+          "Error: Unable to delete image staging directory: [{0}]", image),
+          ex);
     }
+    link(cmdLineBuilder, optsLines);
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Image trained and relinked in {0} ms",
+          Long.toString((System.nanoTime() - start) / 1_000_000L)));
+    }
+  }
 
-    // Prepare command line with command options
-    // specified in the file created early
-    final Commandline cmdLine = new Commandline();
-    cmdLine.setExecutable(getToolExecutable().toString());
-    cmdLine.createArg().setValue("@" + cmdOptsPath.toString());
+  /**
+   * Collect the lambda forms traced by the training run into
+   * the lambda form trace file.
+   *
+   * @param output the lines of the output of the training run
+   *
+   * @return true if the new lambda forms are traced
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private boolean traceJliClasses(final List<String> output)
+      throws MojoExecutionException {
+    final Set<String> lines = new TreeSet<>(getJliClassesLines());
+    final int size = lines.size();
+    output.stream()
+        .map(String::trim)
+        .filter(line -> JLI_TRACE_PREFIXES.stream().anyMatch(line::startsWith))
+        .forEach(lines::add);
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format("Traced lambda forms: {0}",
+          Integer.toString(lines.size() - size)));
+    }
+    if (lines.size() == size) {
+      return false;
+    }
+    writeTrainingFile(getBuildDir().toPath().resolve(JLI_TRACE_FILE), lines);
+    return true;
+  }
 
-    // Execute command line
-    int exitCode = 0;
-    try {
-      exitCode = execCmdLine(cmdLine); // from BaseToolMojo
-    } catch (CommandLineException ex) {
-      throw new MojoExecutionException(MessageFormat.format(
-          "Error: Unable to execute [{0}] tool", TOOL_NAME), ex);
+  /**
+   * Collect the classes loaded from the image by the training run
+   * in the load order into the class load order file and record it
+   * into the history directory.
+   *
+   * @param output the lines of the output of the training run
+   *
+   * @return true if the loaded classes are recorded
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private boolean recordClassOrder(final List<String> output)
+      throws MojoExecutionException {
+    final Set<String> classes = new LinkedHashSet<>();
+    for (final String line : output) {
+      final Matcher matcher = CLASS_LOAD_PATTERN.matcher(line);
+      if (matcher.find()) {
+        classes.add(matcher.group(1).replace('.', '/'));
+      }
     }
-    if (exitCode != 0) {
-      if (getLog().isErrorEnabled()) {
-        getLog().error(System.lineSeparator()
-            + "Command options was: "
-            + System.lineSeparator()
-            + optsLines.stream()
-                .collect(Collectors.joining(System.lineSeparator())));
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format("Recorded loaded classes: {0}",
+          Integer.toString(classes.size())));
+    }
+    if (classes.isEmpty()) {
+      return false;
+    }
+    writeTrainingFile(getBuildDir().toPath().resolve(CLASS_ORDER_FILE),
+        classes);
+    if (classorderhistory != null
+        && !StringUtils.isBlank(classorderhistory.getPath())) {
+      final String name = getProject().getArtifactId() + "-"
+          + getProject().getVersion() + "-"
+          + DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.ROOT)
+              .format(LocalDateTime.now())
+          + ".classorder";
+      writeTrainingFile(classorderhistory.toPath().resolve(name), classes);
+    }
+    return true;
+  }
+
+  /**
+   * Get the directory of the JVM inside the image.
+   *
+   * @param image the image directory
+   *
+   * @return the directory of the JVM or null if it not found
+   */
+  private static Path getJvmDir(final Path image) {
+    for (final String dir : List.of("lib", "bin")) {
+      for (final String vmName : List.of("server", "client", "minimal")) {
+        final Path jvmDir = image.resolve(dir).resolve(vmName);
+        if (Files.isDirectory(jvmDir)) {
+          return jvmDir;
+        }
       }
+    }
+    return null;
+  }
+
+  /**
+   * Create the default CDS archive of the image.
+   *
+   * @param image the image directory
+   * @param force regenerate the archive even if it exists
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void createDefaultCdsArchive(final Path image, final boolean force)
+      throws MojoExecutionException {
+    final Path jvmDir = getJvmDir(image);
+    if (!force && jvmDir != null
+        && Files.isRegularFile(jvmDir.resolve(CDS_ARCHIVE_NAME))) {
+      return;
+    }
+    final long start = System.nanoTime();
+    final int exitCode = runImage(image, List.of("-Xshare:dump"), false);
+    if (exitCode != 0) {
       throw new MojoExecutionException(MessageFormat.format(
-          "Error: Tool execution failed [{0}] with exit code: {1}", TOOL_NAME,
+          "Error: Unable to create the default CDS archive, exit code: {0}",
           exitCode));
     }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Default CDS archive created in {0} ms",
+          Long.toString((System.nanoTime() - start) / 1_000_000L)));
+    }
+  }
 
-    // Process launcher scripts
-    processLauncherScripts();
-
-    // Delete temporary file
-    try {
-      FileUtils.forceDelete(cmdOptsPath.toFile());
-    } catch (IOException ex) {
-      throw new MojoExecutionException(MessageFormat.format(
-          "Error: Unable to delete temporary file: [{0}]", cmdOptsPath), ex);
+  /**
+   * Verify that the default CDS archive of the image can be loaded.
+   *
+   * @param image the image directory
+   *
+   * @throws MojoExecutionException if the archive can't be loaded and
+   *                                the verification is strict
+   */
+  private void verifyDefaultCdsArchive(final Path image)
+      throws MojoExecutionException {
+    final long start = System.nanoTime();
+    final int exitCode = runImage(image, List.of("-Xshare:on", "-version"),
+        false);
+    if (exitCode != 0) {
+      final String message = MessageFormat.format(
+          "The default CDS archive can''t be loaded by the image, exit code: {0}",
+          exitCode);
+      if (defaultcdsstrict) {
+        throw new MojoExecutionException("Error: " + message);
+      }
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(message);
+      }
+      return;
+    }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Default CDS archive verified in {0} ms",
+          Long.toString((System.nanoTime() - start) / 1_000_000L)));
+    }
+  }
+
+  /**
+   * Create the AppCDS archive of the image by the training run.
+   *
+   * @param image the image directory
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void createAppCdsArchive(final Path image)
+      throws MojoExecutionException {
+    final int version = PluginUtils.getFeatureVersion(getToolVersion());
+    if (version < DYNAMIC_CDS_VERSION) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "AppCDS archive is not created, at least JDK {0} is required",
+            DYNAMIC_CDS_VERSION));
+      }
+      return;
+    }
+    final long start = System.nanoTime();
+    createDefaultCdsArchive(image, false);
+    final Path archive = image.resolve(APPCDS_ARCHIVE);
+    final List<String> options = new ArrayList<>();
+    if (version >= AUTO_CDS_VERSION) {
+      options.add("-XX:+AutoCreateSharedArchive");
+      options.add("-XX:SharedArchiveFile=" + archive);
+    } else {
+      options.add("-XX:ArchiveClassesAtExit=" + archive);
+    }
+    final int exitCode = runImage(image, options, true);
+    if (exitCode != 0 || !Files.isRegularFile(archive)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to create AppCDS archive, exit code: {0}",
+          exitCode));
+    }
+    imageJvmOptions.put("-XX:SharedArchiveFile=", APPCDS_ARCHIVE);
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "AppCDS archive created in {0} ms: [{1}]",
+          Long.toString((System.nanoTime() - start) / 1_000_000L),
+          APPCDS_ARCHIVE));
+    }
+  }
+
+  /**
+   * Create the AOT cache of the image by the training run.
+   *
+   * @param image the image directory
+   *
+   * @return true if the AOT cache is created
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private boolean createAotCache(final Path image)
+      throws MojoExecutionException {
+    if (PluginUtils.getFeatureVersion(getToolVersion()) < AOT_CACHE_VERSION) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "AOT cache is not created, at least JDK {0} is required",
+            AOT_CACHE_VERSION));
+      }
+      return false;
+    }
+    final long start = System.nanoTime();
+    final Path configuration = image.resolve(AOT_CONFIGURATION);
+    final Path cache = image.resolve(AOT_CACHE);
+    int exitCode = runImage(image, List.of(
+        "-XX:AOTMode=record",
+        "-XX:AOTConfiguration=" + configuration), true);
+    if (exitCode != 0 || !Files.isRegularFile(configuration)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to record AOT configuration, exit code: {0}",
+          exitCode));
+    }
+    exitCode = runImage(image, List.of(
+        "-XX:AOTMode=create",
+        "-XX:AOTConfiguration=" + configuration,
+        "-XX:AOTCache=" + cache), true);
+    try {
+      Files.deleteIfExists(configuration);
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to delete temporary file: [{0}]", configuration), ex);
+    }
+    if (exitCode != 0 || !Files.isRegularFile(cache)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to create AOT cache, exit code: {0}", exitCode));
+    }
+    imageJvmOptions.put("-XX:AOTCache=", AOT_CACHE);
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "AOT cache created in {0} ms: [{1}]",
+          Long.toString((System.nanoTime() - start) / 1_000_000L),
+          AOT_CACHE));
+    }
+    return true;
+  }
+
+  /**
+   * Create launcher script.
+   *
+   * @param script the launcher script file path
+   * @param template the launcher template file path
+   * @param data the hash map contains variable names and values to substitute
+   *
+   * @throws MojoExecutionException if any errors occurred while processing
+   *                                launcher script files
+   */
+  private void createLauncherScript(final Path script, final Path template,
+      final Map<String, String> data) throws MojoExecutionException {
+    if (getLog().isDebugEnabled()) {
+      getLog().debug(System.lineSeparator()
+          + MessageFormat.format("Fixing launcher script: [{0}]", script)
+          + System.lineSeparator()
+          + MessageFormat.format("with template: [{0}]", template));
+    }
+    try {
+      writeLauncherScript(script,
+          fillLauncherTemplate(Files.lines(template, getCharset()), data));
+    } catch (IllegalArgumentException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Variable not found in the launcher template file: [{0}]",
+          template), ex);
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write to the launcher script file: [{0}]",
+          script), ex);
+    }
+  }
+
+  /**
+   * Write the lines into the launcher script keeping its permissions.
+   *
+   * @param script the launcher script file path
+   * @param lines the lines of the launcher script
+   *
+   * @throws IOException if any errors occurred while writing the script
+   */
+  private void writeLauncherScript(final Path script,
+      final List<String> lines) throws IOException {
+    // the script can be a hard link to the file of the cached image,
+    // so it is replaced instead of being overwritten in place
+    Set<PosixFilePermission> permissions = null;
+    if (Files.exists(script) && FileSystems.getDefault()
+        .supportedFileAttributeViews().contains("posix")) {
+      permissions = Files.getPosixFilePermissions(script);
+    }
+    Files.deleteIfExists(script);
+    Files.write(script, lines, getCharset());
+    if (permissions != null) {
+      Files.setPosixFilePermissions(script, permissions);
+    }
+  }
+
+  /**
+   * Substitute the variables in the lines of the launcher template.
+   *
+   * @param lines the lines of the launcher template
+   * @param data the hash map contains variable names and values to substitute
+   *
+   * @return the lines of the launcher script
+   *
+   * @throws IllegalArgumentException if the variable is not found
+   */
+  static List<String> fillLauncherTemplate(final Stream<String> lines,
+      final Map<String, String> data) {
+    final StringSubstitutor engine = new StringSubstitutor(data)
+        .setEnableUndefinedVariableException(true)
+        .setPreserveEscapes(true)
+        .setEscapeChar('\\');
+    return lines
+        .map(line -> engine.replace(line).replace("\\$", "$"))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Compute the key of the image, i.e. the fingerprint of the tool options
+   * (except the output directory) and the tool inputs. The paths
+   * of the options are made relative to the project base directory,
+   * the local repository and the tool home directory, and the contents
+   * of the argument files are digested, so the same image is shared by
+   * the different checkouts of the project.
+   *
+   * @param options the list of the tool options
+   *
+   * @return the key of the image
+   *
+   * @throws MojoExecutionException if any errors occurred while reading
+   *                                the tool inputs
+   */
+  private String computeImageKey(final List<String> options)
+      throws MojoExecutionException {
+    final Fingerprint fingerprint = new Fingerprint();
+    fingerprint
+        .add("executable", getToolExecutable().toString())
+        .add("version", getToolVersion())
+        .add("options", normalizeKeyOptions(options));
+    try {
+      for (final File file : getArgumentFiles(options)) {
+        fingerprint.addFile("argfile", file);
+      }
+      for (final File file : projectDependencies.getPathElements().keySet()) {
+        fingerprint.addFile("dependency", file);
+      }
+      if (modulePath != null) {
+        for (final String element : modulePath.split(File.pathSeparator)) {
+          if (!StringUtils.isBlank(element)) {
+            fingerprint.addFile("modulepath", new File(element));
+          }
+        }
+      }
+      if (generatejliclasses != null) {
+        fingerprint.addFile("generatejliclasses", generatejliclasses);
+      }
+      if (releaseinfo != null && releaseinfo.getFile() != null) {
+        fingerprint.addFile("releaseinfo", releaseinfo.getFile());
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException(
+          "Error: Unable to compute fingerprint of the tool inputs", ex);
+    }
+    return fingerprint.toHex();
+  }
+
+  /**
+   * Remove the output directory from the tool options and replace
+   * the absolute paths of the project base directory, the local repository
+   * and the tool home directory with the placeholders.
+   *
+   * @param options the list of the tool options
+   *
+   * @return the list of the normalized tool options
+   */
+  private List<String> normalizeKeyOptions(final List<String> options) {
+    final Map<String, String> roots = new TreeMap<>(
+        Comparator.comparingInt(String::length).reversed()
+            .thenComparing(Comparator.naturalOrder()));
+    roots.put(getBaseDir().getAbsolutePath(), "${basedir}");
+    if (getSession() != null && getSession().getLocalRepository() != null) {
+      roots.put(new File(getSession().getLocalRepository().getBasedir())
+          .getAbsolutePath(), "${localrepo}");
+    }
+    if (getToolHomeDirectory() != null) {
+      roots.put(getToolHomeDirectory().getAbsolutePath(), "${toolhome}");
+    }
+    return options.stream()
+        .filter(option -> !option.startsWith("--output "))
+        .map(option -> {
+          String result = option;
+          for (final Map.Entry<String, String> root : roots.entrySet()) {
+            result = result.replace(root.getKey() + File.separator,
+                root.getValue() + "/");
+          }
+          return result;
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Get the argument files (@filename) of the tool options except
+   * the training files, the contents of the training files are defined
+   * by the training parameters.
+   *
+   * @param options the list of the tool options
+   *
+   * @return the list of the argument files
+   */
+  private List<File> getArgumentFiles(final List<String> options) {
+    final Set<File> trainingFiles = Set.of(
+        getBuildDir().toPath().resolve(JLI_TRACE_FILE).toAbsolutePath()
+            .toFile(),
+        getBuildDir().toPath().resolve(CLASS_ORDER_FILE).toAbsolutePath()
+            .toFile());
+    final List<File> files = new ArrayList<>();
+    for (final String option : options) {
+      final Matcher matcher = ARGUMENT_FILE_PATTERN.matcher(option);
+      while (matcher.find()) {
+        final File file = new File(matcher.group(1)).getAbsoluteFile();
+        if (!trainingFiles.contains(file)) {
+          files.add(file);
+        }
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Compute the fingerprint of the image, i.e. the key of the image,
+   * the output directory and the launcher configuration.
+   *
+   * @param imageKey the key of the image
+   *
+   * @return the fingerprint of the image
+   *
+   * @throws MojoExecutionException if any errors occurred while reading
+   *                                the launcher templates
+   */
+  private String computeFingerprint(final String imageKey)
+      throws MojoExecutionException {
+    final Fingerprint fingerprint = new Fingerprint();
+    fingerprint
+        .add("image", imageKey)
+        .add("output", output.getAbsolutePath());
+    if (launcher != null) {
+      try {
+        fingerprint
+            .add("command", launcher.getCommand())
+            .add("mainmodule", launcher.getMainModule())
+            .add("mainclass", launcher.getMainClass())
+            .add("args", launcher.getArgs())
+            .add("jvmargs", launcher.getJvmArgs())
+            .addFile("nixtemplate", launcher.getNixTemplate())
+            .addFile("wintemplate", launcher.getWinTemplate());
+      } catch (IOException ex) {
+        throw new MojoExecutionException(
+            "Error: Unable to compute fingerprint of the launcher templates",
+            ex);
+      }
+    }
+    fingerprint
+        .add("appcds", Boolean.toString(appcds))
+        .add("defaultcds", Boolean.toString(defaultcds))
+        .add("defaultcdsstrict", Boolean.toString(defaultcdsstrict))
+        .add("aotcache", Boolean.toString(aotcache))
+        .add("trainjliclasses", Boolean.toString(trainjliclasses))
+        .add("trainorderresources", Boolean.toString(trainorderresources));
+    fingerprint
+        .add("sizereport", Boolean.toString(sizereport))
+        .add("modulebudgets", Objects.toString(modulebudgets == null
+            ? null : new TreeMap<>(modulebudgets)));
+    if (compressionsweep != null) {
+      fingerprint
+          .add("compressionsweep.levels",
+              Objects.toString(compressionsweep.getLevels()))
+          .add("compressionsweep.sizebudget", compressionsweep.getSizeBudget())
+          .add("compressionsweep.runs",
+              Integer.toString(compressionsweep.getRuns()))
+          .add("compressionsweep.marker", compressionsweep.getMarker());
+    }
+    if (training != null) {
+      fingerprint
+          .add("training.mainmodule", training.getMainModule())
+          .add("training.mainclass", training.getMainClass())
+          .add("training.args", training.getArgs())
+          .add("training.jvmargs", training.getJvmArgs());
+    }
+    return fingerprint.toHex();
+  }
+
+  /**
+   * Compute the key of the compression level selected by the sweep,
+   * i.e. the key of the image linked before the sweep, the configuration
+   * of the sweep and the training command.
+   *
+   * @param imageKey the key of the image linked before the sweep
+   *
+   * @return the key of the compression level
+   *
+   * @throws MojoExecutionException if any errors occurred while building
+   *                                the training command
+   */
+  private String computeSweepKey(final String imageKey)
+      throws MojoExecutionException {
+    return new Fingerprint()
+        .add("image", imageKey)
+        .add("compressionsweep.levels",
+            Objects.toString(compressionsweep.getLevels()))
+        .add("compressionsweep.sizebudget", compressionsweep.getSizeBudget())
+        .add("compressionsweep.runs",
+            Integer.toString(compressionsweep.getRuns()))
+        .add("compressionsweep.marker", compressionsweep.getMarker())
+        .add("training", getTrainingArguments())
+        .toHex();
+  }
+
+  /**
+   * Get the compression level selected by the previous sweep
+   * from the cache.
+   *
+   * @param imageCache the image cache, can be null
+   * @param sweepKey the key of the compression level
+   *
+   * @return the compression level or null if it is not found
+   */
+  private Compression getCachedCompression(final ImageCache imageCache,
+      final String sweepKey) {
+    if (imageCache == null) {
+      return null;
+    }
+    try {
+      final String level = imageCache.getValue(sweepKey);
+      return level == null ? null : Compression.valueOf(level.trim());
+    } catch (IOException | IllegalArgumentException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to restore compression level from cache: [{0}]",
+            imagecache), ex);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Get the shared cache of the runtime images.
+   *
+   * @return the image cache or null if the cache is disabled
+   *
+   * @throws MojoExecutionException if the maximum size of the cache
+   *                                is invalid
+   */
+  private ImageCache getImageCache() throws MojoExecutionException {
+    if (imagecache == null || StringUtils.isBlank(imagecache.getPath())) {
+      return null;
+    }
+    try {
+      return new ImageCache(imagecache.toPath(),
+          PluginUtils.parseSize(imagecachesize));
+    } catch (NumberFormatException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Invalid size of the image cache: [{0}]", imagecachesize),
+          ex);
+    }
+  }
+
+  /**
+   * Read the stored fingerprint of the tool inputs.
+   *
+   * @param fingerprintPath the fingerprint file path
+   *
+   * @return the stored fingerprint or null if it is not available
+   */
+  private String readFingerprint(final Path fingerprintPath) {
+    if (Files.isRegularFile(fingerprintPath)) {
+      try {
+        return StringUtils.strip(
+            new String(Files.readAllBytes(fingerprintPath), getCharset()));
+      } catch (IOException ex) {
+        if (getLog().isWarnEnabled()) {
+          getLog().warn(MessageFormat.format(
+              "Unable to read fingerprint file: [{0}]", fingerprintPath));
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check whether the image output directory contains the image.
+   *
+   * @return true if the image exists
+   */
+  private boolean isImageIntact() {
+    final Path image = output.toPath();
+    return Files.isRegularFile(image.resolve("release"))
+        && Files.isRegularFile(image.resolve("lib").resolve("modules"));
+  }
+
+  /**
+   * Link the image at every candidate level of the compression sweep,
+   * measure the size and the startup time of the images and select
+   * the level which meets the size budget with the lowest startup time.
+   * The compress option of the command line is set to the selected level,
+   * the image linked at the selected level is left in the image directory
+   * and the decision table is written into the build directory.
+   *
+   * @param cmdLineBuilder the command line builder
+   * @param image the image directory
+   *
+   * @return the selected compression level
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private Compression sweepCompression(
+      final CommandLineBuilder cmdLineBuilder, final Path image)
+      throws MojoExecutionException {
+    final long start = System.nanoTime();
+    final int version = PluginUtils.getFeatureVersion(getToolVersion());
+    List<Compression> levels = compressionsweep.getLevels();
+    if (levels == null || levels.isEmpty()) {
+      levels = Stream.of(Compression.values())
+          .filter(level -> level.isZipLevel()
+              == (version >= Compression.ZIP_LEVELS_VERSION))
+          .collect(Collectors.toList());
+    }
+    long sizeBudget = 0L;
+    if (!StringUtils.isBlank(compressionsweep.getSizeBudget())) {
+      try {
+        sizeBudget = PluginUtils.parseSize(compressionsweep.getSizeBudget());
+      } catch (NumberFormatException ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Invalid size budget of the compression sweep: [{0}]",
+            compressionsweep.getSizeBudget()), ex);
+      }
+    }
+    Pattern marker = null;
+    if (!StringUtils.isEmpty(compressionsweep.getMarker())) {
+      try {
+        marker = Pattern.compile(compressionsweep.getMarker());
+      } catch (PatternSyntaxException ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Invalid readiness marker: [{0}]",
+            compressionsweep.getMarker()), ex);
+      }
+    }
+    final List<String> command = new ArrayList<>();
+    command.add(getImageJava(image).toString());
+    command.addAll(getTrainingArguments());
+    final StartupBenchmark benchmark = new StartupBenchmark(command,
+        getBaseDir(), marker, TimeUnit.MINUTES.toMillis(1L),
+        Charset.defaultCharset());
+    final long budget = sizeBudget;
+    final Map<Compression, long[]> results = new LinkedHashMap<>();
+    // the images which can be selected are kept next to the image
+    // directory, so the selected image is not linked again
+    final Map<Compression, Path> candidates = new LinkedHashMap<>();
+    Compression selected;
+    try {
+      for (final Compression level : levels) {
+        compressArg.setValue(getCompressOption(level));
+        try {
+          imagePublisher.prepare();
+          deleteSweepCandidate(image, level);
+        } catch (IOException ex) {
+          throw new MojoExecutionException(MessageFormat.format(
+              "Error: Unable to delete image staging directory: [{0}]",
+              image), ex);
+        }
+        final List<String> optsLines = new ArrayList<>();
+        optsLines.add("# " + TOOL_NAME);
+        optsLines.addAll(cmdLineBuilder.buildOptionList());
+        link(cmdLineBuilder, optsLines);
+        final List<Long> startups = new ArrayList<>();
+        try {
+          // the first run populates the file system cache
+          benchmark.run();
+          for (int i = 0; i < Math.max(1, compressionsweep.getRuns()); i++) {
+            startups.add(benchmark.run().getStartup());
+          }
+        } catch (IOException ex) {
+          throw new MojoExecutionException(MessageFormat.format(
+              "Error: Unable to run the image linked at compression level {0}",
+              level.getLevelName()), ex);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new MojoExecutionException(
+              "Error: The compression sweep was interrupted", ex);
+        }
+        long size = 0L;
+        try {
+          size = PluginUtils.getDirectorySize(image);
+        } catch (IOException ex) {
+          throw new MojoExecutionException(MessageFormat.format(
+              "Error: Unable to compute the size of the image: [{0}]", image),
+              ex);
+        }
+        final long startup = StartupBenchmark.percentile(startups, 50.0);
+        results.put(level, new long[] {size, startup});
+        if (getLog().isInfoEnabled()) {
+          getLog().info(MessageFormat.format(
+              "Compression level {0}: size {1} bytes, startup {2} ms",
+              level.getLevelName(), Long.toString(size),
+              Long.toString(startup / 1_000_000L)));
+        }
+        // keep only the fastest image within the budget
+        // and the smallest image
+        final Compression fastest =
+            CompressionSweep.selectFastestLevel(results, budget);
+        final Compression smallest =
+            CompressionSweep.selectSmallestLevel(results);
+        try {
+          if (level == fastest || level == smallest) {
+            final Path candidate = getSweepCandidate(image, level);
+            Files.move(image, candidate, StandardCopyOption.ATOMIC_MOVE);
+            candidates.put(level, candidate);
+          }
+          for (final Compression retained
+              : new ArrayList<>(candidates.keySet())) {
+            if (retained != fastest && retained != smallest) {
+              FileUtils.deleteDirectory(candidates.remove(retained).toFile());
+            }
+          }
+        } catch (IOException ex) {
+          throw new MojoExecutionException(MessageFormat.format(
+              "Error: Unable to keep the image linked at compression level"
+              + " {0}", level.getLevelName()), ex);
+        }
+      }
+      // the level which meets the budget with the lowest startup time
+      // or the level of the smallest image
+      selected = CompressionSweep.selectFastestLevel(results, budget);
+      if (selected == null) {
+        selected = CompressionSweep.selectSmallestLevel(results);
+        if (getLog().isWarnEnabled()) {
+          getLog().warn(MessageFormat.format(
+              "No compression level meets the size budget {0} bytes,"
+              + " the smallest image is selected",
+              Long.toString(budget)));
+        }
+      }
+      try {
+        imagePublisher.prepare();
+        Files.move(candidates.remove(selected), image,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Unable to move the image linked at compression level {0}"
+            + " into image staging directory: [{1}]", selected.getLevelName(),
+            image), ex);
+      }
+    } finally {
+      for (final Path candidate : candidates.values()) {
+        try {
+          FileUtils.deleteDirectory(candidate.toFile());
+        } catch (IOException ex) {
+          if (getLog().isWarnEnabled()) {
+            getLog().warn(MessageFormat.format(
+                "Unable to delete the image of the compression sweep: [{0}]",
+                candidate), ex);
+          }
+        }
+      }
+    }
+    compressArg.setValue(getCompressOption(selected));
+    final List<String> table = new ArrayList<>();
+    table.add(String.format(Locale.ROOT,
+        "# Compression sweep: size budget %d bytes, selected level %s",
+        budget, selected.getLevelName()));
+    table.add(String.format(Locale.ROOT, "%-8s %14s %12s %8s %8s",
+        "level", "size(bytes)", "startup(ms)", "budget", "selected"));
+    for (final Map.Entry<Compression, long[]> entry : results.entrySet()) {
+      table.add(String.format(Locale.ROOT, "%-8s %14d %12.1f %8s %8s",
+          entry.getKey().getLevelName(), entry.getValue()[0],
+          entry.getValue()[1] / 1_000_000.0,
+          budget <= 0L || entry.getValue()[0] <= budget ? "yes" : "no",
+          entry.getKey() == selected ? "*" : "").stripTrailing());
+    }
+    final Path reportPath = getBuildDir().toPath().resolve(SWEEP_REPORT_FILE);
+    try {
+      Files.write(reportPath, table, getCharset());
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write compression sweep report: [{0}]",
+          reportPath), ex);
+    }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Compression level {0} selected by the sweep in {1} ms: [{2}]",
+          selected.getLevelName(),
+          Long.toString((System.nanoTime() - start) / 1_000_000L),
+          reportPath));
+    }
+    return selected;
+  }
+
+  /**
+   * Get the directory of the image linked by the compression sweep.
+   *
+   * @param image the image directory
+   * @param level the compression level
+   *
+   * @return the directory next to the image directory
+   */
+  private static Path getSweepCandidate(final Path image,
+      final Compression level) {
+    return image.resolveSibling(image.getFileName() + "-" + level.name());
+  }
+
+  /**
+   * Delete the directory of the image linked by the compression sweep
+   * which is left by the interrupted build.
+   *
+   * @param image the image directory
+   * @param level the compression level
+   *
+   * @throws IOException if any errors occurred while deleting
+   */
+  private static void deleteSweepCandidate(final Path image,
+      final Compression level) throws IOException {
+    final Path candidate = getSweepCandidate(image, level);
+    if (Files.exists(candidate)) {
+      FileUtils.deleteDirectory(candidate.toFile());
+    }
+  }
+
+  /**
+   * Write the size breakdown of the image and check the size budgets
+   * of the modules.
+   *
+   * @param image the image directory
+   *
+   * @throws MojoExecutionException if any errors occurred or any module
+   *                                exceeds its budget
+   */
+  private void reportImageSize(final Path image)
+      throws MojoExecutionException {
+    final ImageSizeReport report;
+    try {
+      report = ImageSizeReport.analyze(image);
+    } catch (IOException | RuntimeException | LinkageError ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to analyze the size of the image: [{0}]", image),
+          ex);
+    }
+    final Path buildPath = getBuildDir().toPath();
+    final Path jsonPath = buildPath.resolve(SIZE_REPORT_FILE + ".json");
+    final Path htmlPath = buildPath.resolve(SIZE_REPORT_FILE + ".html");
+    try {
+      Files.write(jsonPath, (report.toJson() + System.lineSeparator())
+          .getBytes(getCharset()));
+      Files.write(htmlPath, report.toHtml(MessageFormat.format(
+          "Size of the image {0}:{1}", getProject().getArtifactId(),
+          getProject().getVersion())).getBytes(getCharset()));
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write the size report: [{0}]", jsonPath), ex);
+    }
+    if (getLog().isInfoEnabled()) {
+      getLog().info(MessageFormat.format(
+          "Image size {0} bytes, size report: [{1}]",
+          Long.toString(report.getTotal()), htmlPath));
+    }
+    if (modulebudgets == null || modulebudgets.isEmpty()) {
+      return;
+    }
+    final Map<String, Long> budgets = new TreeMap<>();
+    for (final Map.Entry<String, String> entry
+        : new TreeMap<>(modulebudgets).entrySet()) {
+      try {
+        budgets.put(entry.getKey(), PluginUtils.parseSize(
+            StringUtils.defaultString(entry.getValue())));
+      } catch (NumberFormatException ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Invalid size budget of the module {0}: [{1}]",
+            entry.getKey(), entry.getValue()), ex);
+      }
+      if (report.getModuleSize(entry.getKey()) < 0L
+          && getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "The module with the size budget is not linked: {0}",
+            entry.getKey()));
+      }
+    }
+    final List<String> violations = report.getBudgetViolations(budgets);
+    if (!violations.isEmpty()) {
+      throw new MojoExecutionException(
+          "Error: Modules exceed their size budgets: "
+          + String.join(", ", violations));
+    }
+  }
+
+  /**
+   * Link the image by running the tool.
+   *
+   * @param cmdLineBuilder the command line builder
+   * @param optsLines the list of the tool options
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  void link(final CommandLineBuilder cmdLineBuilder,
+      final List<String> optsLines) throws MojoExecutionException {
+
+    // Execute command line inside the current JVM if the tool belongs
+    // to the running JDK, otherwise fork a new process
+    final ToolProvider toolProvider = fork
+        ? null
+        : findToolProvider(TOOL_NAME); // from BaseToolMojo
+
+    // The forked tool records itself, the JVM options are accepted
+    // only by the launcher, so they are not the part of the command line
+    final List<String> fileLines = new ArrayList<>(optsLines);
+    if (profile && toolProvider == null) {
+      toolRecordings++;
+      final Path recording = getBuildDir().toPath().resolve(
+          toolRecordings == 1
+              ? TOOL_RECORDING
+              : TOOL_RECORDING.replace(".jfr", "-" + toolRecordings + ".jfr"));
+      fileLines.add("-J-XX:StartFlightRecording=settings=" + RECORDING_SETTINGS
+          + ",filename=" + recording);
+    }
+
+    // Save the list of command options to the file
+    // will be used in the tool command line
+    final Path cmdOptsPath = getBuildDir().toPath().resolve(OPTS_FILE);
+    try {
+      Files.write(cmdOptsPath, fileLines, getCharset());
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to write command options to file: [{0}]",
+          cmdOptsPath), ex);
+    }
+
+    // Prepare command line with command options
+    // specified in the file created early
+    final Commandline cmdLine = new Commandline();
+    cmdLine.setExecutable(getToolExecutable().toString());
+    cmdLine.createArg().setValue("@" + cmdOptsPath.toString());
+
+    int exitCode = 0;
+    try {
+      exitCode = toolProvider == null
+          ? execCmdLine(cmdLine, null, null, verbose) // from BaseToolMojo
+          : execToolProvider(toolProvider, cmdLineBuilder.buildCommandLine(),
+              null, null, verbose); // from BaseToolMojo
+    } catch (CommandLineException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to execute [{0}] tool", TOOL_NAME), ex);
+    }
+    if (exitCode != 0) {
+      if (getLog().isErrorEnabled()) {
+        getLog().error(System.lineSeparator()
+            + "Command options was: "
+            + System.lineSeparator()
+            + optsLines.stream()
+                .collect(Collectors.joining(System.lineSeparator())));
+      }
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Tool execution failed [{0}] with exit code: {1}", TOOL_NAME,
+          exitCode));
+    }
+
+    // Delete temporary file
+    try {
+      FileUtils.forceDelete(cmdOptsPath.toFile());
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to delete temporary file: [{0}]", cmdOptsPath), ex);
+    }
+
+  }
+
+  /**
+   * Write the timing of the phases of the execution into the build
+   * directory (JSON) and into the Prometheus text file if it is specified.
+   * The errors are logged as warnings, so they don't hide the errors
+   * of the execution.
+   */
+  private void writeMetrics() {
+    if (!metrics || getBuildDir() == null) {
+      return;
+    }
+    final PhaseMetrics phaseMetrics = getMetrics(); // from BaseToolMojo
+    // the phase interrupted by the error is finished here
+    phaseMetrics.getPhases().forEach(PhaseMetrics.Phase::close);
+    final Map<String, String> properties = new LinkedHashMap<>();
+    properties.put("project", getProject().getGroupId() + ":"
+        + getProject().getArtifactId() + ":" + getProject().getVersion());
+    properties.put("toolVersion", getToolVersion());
+    final Path jsonPath = getBuildDir().toPath().resolve(METRICS_FILE);
+    try {
+      Files.createDirectories(jsonPath.getParent());
+      Files.write(jsonPath, (phaseMetrics.toJson(properties)
+          + System.lineSeparator()).getBytes(getCharset()));
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to write metrics file: [{0}]", jsonPath), ex);
+      }
+    }
+    if (metricsprometheus == null) {
+      return;
+    }
+    final Map<String, String> labels = new LinkedHashMap<>();
+    labels.put("group", getProject().getGroupId());
+    labels.put("artifact", getProject().getArtifactId());
+    final Path promPath = metricsprometheus.toPath().toAbsolutePath();
+    // the file is replaced atomically, so the scraper never reads
+    // the partially written file
+    final Path tmpPath = promPath.resolveSibling(
+        promPath.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(promPath.getParent());
+      Files.write(tmpPath, phaseMetrics.toPrometheus(TOOL_NAME, labels)
+          .getBytes(StandardCharsets.UTF_8));
+      try {
+        Files.move(tmpPath, promPath, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tmpPath, promPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to write Prometheus metrics file: [{0}]", promPath), ex);
+      }
+    }
+  }
+
+  /**
+   * Execute goal.
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    final Recording recording = profile ? startRecording() : null;
+    try {
+      executePhases();
+    } finally {
+      writeMetrics();
+      if (recording != null) {
+        stopRecording(recording);
+      }
+    }
+  }
+
+  /**
+   * Start the flight recording of the plugin JVM.
+   *
+   * @return the started recording or null if JFR is not available
+   */
+  private Recording startRecording() {
+    if (!FlightRecorder.isAvailable()) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn("JFR is not available, the profiling is skipped");
+      }
+      return null;
+    }
+    try {
+      final Recording recording = new Recording(
+          Configuration.getConfiguration(RECORDING_SETTINGS));
+      recording.setName(PLUGIN_RECORDING);
+      recording.setToDisk(true);
+      recording.start();
+      return recording;
+    } catch (IOException | ParseException | IllegalStateException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn("Unable to start JFR recording", ex);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Stop the flight recording of the plugin JVM and dump it into
+   * the project build directory. The errors are logged as warnings,
+   * so they don't hide the errors of the execution.
+   *
+   * @param recording the recording
+   */
+  private void stopRecording(final Recording recording) {
+    final Path recordingPath = Paths.get(getProject().getBuild()
+        .getDirectory()).resolve(PLUGIN_RECORDING);
+    try {
+      recording.stop();
+      Files.createDirectories(recordingPath.getParent());
+      recording.dump(recordingPath);
+      if (getLog().isInfoEnabled()) {
+        getLog().info(MessageFormat.format(
+            "JFR recording: [{0}]", recordingPath));
+      }
+    } catch (IOException | IllegalStateException ex) {
+      if (getLog().isWarnEnabled()) {
+        getLog().warn(MessageFormat.format(
+            "Unable to write JFR recording: [{0}]", recordingPath), ex);
+      }
+    } finally {
+      recording.close();
+    }
+  }
+
+  /**
+   * Execute the phases of the goal.
+   *
+   * @throws MojoExecutionException if any errors occurred
+   */
+  private void executePhases() throws MojoExecutionException {
+
+    // Init
+    setToolLog(toollog); // from BaseToolMojo
+    setToolTimeout(timeout); // from BaseToolMojo
+    init(TOOL_NAME, toolhome, TOOL_HOME_BIN, toolcache); // from BaseToolMojo
+
+    // Check version
+    toolJavaVersion = getToolJavaVersion();
+    if (toolJavaVersion == null
+        || !toolJavaVersion.atLeast(JavaVersion.JAVA_9)) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: At least {0} is required to use [{1}]", JavaVersion.JAVA_9,
+          TOOL_NAME));
+    }
+
+    // Create mods directory
+    try {
+      FileUtils.forceMkdir(modsdir);
+    } catch (IOException | IllegalArgumentException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to create mods directory: [{0}]", modsdir), ex);
+    }
+
+    // Create libs directory
+    try {
+      FileUtils.forceMkdir(libsdir);
+    } catch (IOException | IllegalArgumentException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to create libs directory: [{0}]", libsdir), ex);
+    }
+
+    // Resolve and fetch project dependencies
+    PhaseMetrics.Phase phase = getMetrics().start("dependency-resolution");
+    projectDependencies = resolveDependencies();
+    mainModuleDescriptor = fetchMainModuleDescriptor();
+    phase.addFiles(projectDependencies.getPathElements().size()).close();
+
+    // Filter the dependencies
+    phase = getMetrics().start("filtering");
+    List<File> classpathElements = fetchClasspathElements();
+    List<File> modulepathElements = fetchModulepathElements();
+    Map<File, String> pathExceptions = fetchPathExceptions();
+    if (!pathExceptions.isEmpty() && getLog().isWarnEnabled()) {
+      getLog().warn("Found path exceptions: " + pathExceptions.size()
+          + System.lineSeparator()
+          + pathExceptions.entrySet().stream()
+              .map(entry -> entry.getKey().toString()
+                  + System.lineSeparator()
+                  + entry.getValue())
+              .collect(Collectors.joining(System.lineSeparator())));
+    }
+
+    phase.addFiles(classpathElements.size() + modulepathElements.size())
+        .close();
+
+    // copy dependencies
+    phase = getMetrics().start("staging-copy");
+    for (final DependencyStager.Result result : List.of(
+        copyFiles(modulepathElements, modsdir),
+        copyFiles(classpathElements, libsdir))) {
+      phase.addFiles(result.getCopied() + result.getLinked())
+          .addBytes(result.getBytes());
+    }
+    phase.close();
+
+    // Build command line and populate the list of the command options,
+    // the image will be created in the staging directory
+    phase = getMetrics().start("option-building");
+    imagePublisher = new ImagePublisher(output.toPath());
+    final CommandLineBuilder cmdLineBuilder = new CommandLineBuilder();
+    cmdLineBuilder.setExecutable(getToolExecutable().toString());
+    processOptions(cmdLineBuilder);
+    processModules(cmdLineBuilder);
+    final List<String> optsLines = new ArrayList<>();
+    optsLines.add("# " + TOOL_NAME);
+    optsLines.addAll(cmdLineBuilder.buildOptionList());
+    if (getLog().isDebugEnabled()) {
+      getLog().debug(optsLines.stream()
+          .collect(Collectors.joining(System.lineSeparator(),
+              System.lineSeparator(), "")));
+    }
+
+    // Compute the key of the image
+    final ImageCache imageCache = getImageCache();
+    String imageKey = null;
+    if (incremental || imageCache != null) {
+      imageKey = computeImageKey(cmdLineBuilder.buildOptionList());
+      if (getLog().isDebugEnabled()) {
+        getLog().debug(MessageFormat.format("Image key: [{0}]", imageKey));
+      }
+    }
+
+    // Skip linking if the image is up to date
+    final Path fingerprintPath = getBuildDir().toPath().resolve(
+        FINGERPRINT_FILE);
+    String fingerprint = null;
+    if (incremental) {
+      fingerprint = computeFingerprint(imageKey);
+      if (getLog().isDebugEnabled()) {
+        getLog().debug(MessageFormat.format("Fingerprint: [{0}]",
+            fingerprint));
+      }
+      if (fingerprint.equals(readFingerprint(fingerprintPath))
+          && isImageIntact()) {
+        if (getLog().isInfoEnabled()) {
+          getLog().info(MessageFormat.format("Image is up to date: [{0}]",
+              output));
+        }
+        phase.close();
+        return;
+      }
+    }
+    try {
+      Files.deleteIfExists(fingerprintPath);
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to delete fingerprint file: [{0}]", fingerprintPath),
+          ex);
+    }
+
+    phase.addFiles(optsLines.size()).close();
+
+    // Prepare image staging directory
+    phase = getMetrics().start("jlink-run");
+    final Path stagingDir = imagePublisher.getStagingDir();
+    if (getLog().isDebugEnabled()) {
+      getLog().debug(MessageFormat.format("Output directory: [{0}]", output)
+          + System.lineSeparator()
+          + MessageFormat.format("Staging directory: [{0}]", stagingDir));
+    }
+    try {
+      imagePublisher.prepare();
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to delete image staging directory: [{0}]",
+          stagingDir), ex);
+    }
+
+    // Prepare the training files for the first link
+    prepareTrainingFiles();
+
+    // Select the compression level by the sweep, the image linked
+    // at the selected level is left in the staging directory,
+    // the level selected by the previous sweep is taken from the cache
+    boolean swept = false;
+    if (compressionsweep != null) {
+      final String sweepKey = imageCache == null
+          ? null
+          : computeSweepKey(imageKey);
+      final Compression cached = getCachedCompression(imageCache, sweepKey);
+      if (cached == null) {
+        final Compression selected =
+            sweepCompression(cmdLineBuilder, stagingDir);
+        swept = true;
+        if (imageCache != null) {
+          try {
+            imageCache.putValue(sweepKey, selected.name());
+          } catch (IOException ex) {
+            if (getLog().isWarnEnabled()) {
+              getLog().warn(MessageFormat.format(
+                  "Unable to store compression level to cache: [{0}]",
+                  imagecache), ex);
+            }
+          }
+        }
+      } else {
+        compressArg.setValue(getCompressOption(cached));
+        if (getLog().isInfoEnabled()) {
+          getLog().info(MessageFormat.format(
+              "Compression level {0} selected by the previous sweep"
+              + " is restored from cache", cached.getLevelName()));
+        }
+      }
+      optsLines.clear();
+      optsLines.add("# " + TOOL_NAME);
+      optsLines.addAll(cmdLineBuilder.buildOptionList());
+      if (imageKey != null) {
+        imageKey = computeImageKey(cmdLineBuilder.buildOptionList());
+      }
+    }
+
+    // Materialize the image from the cache or link it
+    boolean restored = false;
+    if (imageCache != null && !swept) {
+      try {
+        restored = imageCache.restore(imageKey, stagingDir);
+      } catch (IOException ex) {
+        if (getLog().isWarnEnabled()) {
+          getLog().warn(MessageFormat.format(
+              "Unable to restore image from cache: [{0}]", imagecache), ex);
+        }
+      }
+    }
+    if (restored) {
+      if (getLog().isInfoEnabled()) {
+        getLog().info(MessageFormat.format(
+            "Image restored from cache: [{0}]", imageKey));
+      }
+    } else {
+      if (!swept) {
+        link(cmdLineBuilder, optsLines);
+      }
+      if (imageCache != null) {
+        try {
+          imageCache.store(imageKey, stagingDir);
+        } catch (IOException ex) {
+          if (getLog().isWarnEnabled()) {
+            getLog().warn(MessageFormat.format(
+                "Unable to store image to cache: [{0}]", imagecache), ex);
+          }
+        }
+      }
+    }
+
+    try {
+      phase.addBytes(PluginUtils.getDirectorySize(stagingDir));
+    } catch (IOException ex) {
+      if (getLog().isDebugEnabled()) {
+        getLog().debug(MessageFormat.format(
+            "Unable to compute the size of the image: [{0}]", stagingDir));
+      }
+    }
+    phase.close();
+
+    // Relink the image with the files collected by the training run
+    phase = getMetrics().start("training");
+    if (trainjliclasses || trainorderresources) {
+      trainImage(cmdLineBuilder, optsLines, stagingDir);
+    }
+
+    // Regenerate the default CDS archive of the image
+    if (defaultcds) {
+      createDefaultCdsArchive(stagingDir, true);
+      verifyDefaultCdsArchive(stagingDir);
+    }
+
+    // Train the image, the launcher scripts refer to the created archives
+    final boolean aotCacheCreated = aotcache && createAotCache(stagingDir);
+    if (appcds) {
+      if (aotCacheCreated) {
+        if (getLog().isWarnEnabled()) {
+          getLog().warn(
+              "AppCDS archive is not created, it is superseded by AOT cache");
+        }
+      } else {
+        createAppCdsArchive(stagingDir);
+      }
+    }
+
+    phase.close();
+
+    // Process launcher scripts
+    phase = getMetrics().start("launcher-processing");
+    processLauncherScripts(stagingDir);
+    phase.close();
+
+    // Replace the image in the output directory,
+    // the previous image will be deleted in the background
+    phase = getMetrics().start("cleanup");
+    try {
+      imagePublisher.publish();
+    } catch (IOException ex) {
+      throw new MojoExecutionException(MessageFormat.format(
+          "Error: Unable to move image to output directory: [{0}]", output),
+          ex);
+    }
+
+    // Report the size of the image and check the size budgets,
+    // the fingerprint is not saved if any module exceeds its budget
+    if (sizereport || modulebudgets != null && !modulebudgets.isEmpty()) {
+      reportImageSize(output.toPath());
+    }
+
+    // Save the fingerprint of the tool inputs
+    if (fingerprint != null) {
+      try {
+        Files.write(fingerprintPath, fingerprint.getBytes(getCharset()));
+      } catch (IOException ex) {
+        throw new MojoExecutionException(MessageFormat.format(
+            "Error: Unable to write fingerprint to file: [{0}]",
+            fingerprintPath), ex);
+      }
     }
+    phase.close();
 
   }
 
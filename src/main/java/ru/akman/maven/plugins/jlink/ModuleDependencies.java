@@ -0,0 +1,194 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Module dependencies of the analyzed archives.
+ *
+ * <p>
+ * The dependencies are parsed from the output of the jdeps tool running
+ * with the option "-verbose:class". The output consists of the archive
+ * headers, the summary lines (archive -&gt; module) and the class lines
+ * (origin class -&gt; target class and its module). The modules referenced
+ * by the analyzed archives, which are not the analyzed archives themselves,
+ * are the modules which should be added to the runtime image.
+ * </p>
+ *
+ * <p>
+ * The non-modular archives have no headers, jdeps refers to them
+ * by their file names, so the file names of the analyzed targets and
+ * the names of the jar and class files are never treated as modules.
+ * </p>
+ */
+public class ModuleDependencies {
+
+  /**
+   * Separator of the origin and the target.
+   */
+  private static final String ARROW = " -> ";
+
+  /**
+   * Pattern of the valid module name.
+   */
+  private static final Pattern MODULE_NAME =
+      Pattern.compile("[\\p{javaJavaIdentifierPart}.]+");
+
+  /**
+   * Indent of the report lines.
+   */
+  private static final String INDENT = "  ";
+
+  /**
+   * Extensions of the archive file names.
+   */
+  private static final List<String> ARCHIVE_EXTENSIONS =
+      List.of(".jar", ".class");
+
+  /**
+   * Names of the analyzed archives.
+   */
+  private final Set<String> archives = new HashSet<>();
+
+  /**
+   * Referenced modules and the archives which reference them.
+   */
+  private final Map<String, Set<String>> modules = new TreeMap<>();
+
+  /**
+   * Referenced modules and the class dependencies which reference them.
+   */
+  private final Map<String, Set<String>> classes = new TreeMap<>();
+
+  /**
+   * Parse the output of the jdeps tool.
+   *
+   * @param output the output of the jdeps tool
+   * @param targets the paths of the analyzed files and directories
+   *
+   * @return the module dependencies
+   */
+  public static ModuleDependencies parse(final String output,
+      final Collection<String> targets) {
+    final ModuleDependencies dependencies = new ModuleDependencies();
+    for (final String target : targets) {
+      final Path fileName = Paths.get(target).getFileName();
+      if (fileName != null) {
+        dependencies.archives.add(fileName.toString());
+      }
+    }
+    for (final String line : output.split("\\R")) {
+      if (StringUtils.isBlank(line)) {
+        continue;
+      }
+      final boolean indented = Character.isWhitespace(line.charAt(0));
+      final int arrow = line.indexOf(ARROW);
+      if (arrow < 0) {
+        // archive header, its location and its requires
+        if (!indented) {
+          dependencies.archives.add(line.trim());
+        }
+      } else if (indented) {
+        // origin class -> target class module
+        final String origin = line.substring(0, arrow).trim();
+        final String target = line.substring(arrow + ARROW.length()).trim();
+        final String targetClass = StringUtils.substringBefore(target, " ");
+        final String module = StringUtils.substringAfter(target, " ").trim();
+        dependencies.classes.computeIfAbsent(module, key -> new TreeSet<>())
+            .add(origin + ARROW + targetClass);
+      } else {
+        // archive -> module
+        final String archive = line.substring(0, arrow).trim();
+        final String module = line.substring(arrow + ARROW.length()).trim();
+        dependencies.modules.computeIfAbsent(module, key -> new TreeSet<>())
+            .add(archive);
+      }
+    }
+    return dependencies;
+  }
+
+  /**
+   * Get the referenced modules excluding the analyzed archives,
+   * the jar and class files and the missing dependencies.
+   *
+   * @return the sorted set of the module names
+   */
+  public Set<String> getModules() {
+    final Set<String> result = new TreeSet<>();
+    for (final String module : modules.keySet()) {
+      if (!archives.contains(module) && !isArchiveFile(module)
+          && MODULE_NAME.matcher(module).matches()) {
+        result.add(module);
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * Checks whether the name is the name of the jar or the class file.
+   *
+   * @param name the name
+   *
+   * @return true if the name is the name of the jar or the class file
+   */
+  private static boolean isArchiveFile(final String name) {
+    for (final String extension : ARCHIVE_EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the report of the referenced modules: for every module
+   * the archives and the classes which pulled it in.
+   *
+   * @return the lines of the report
+   */
+  public List<String> getReport() {
+    final List<String> report = new ArrayList<>();
+    final Set<String> result = getModules();
+    report.add("# Modules: " + String.join(",", result));
+    for (final String module : result) {
+      report.add("");
+      report.add(module);
+      for (final String archive : modules.get(module)) {
+        report.add(INDENT + "required by " + archive);
+      }
+      for (final String dependency : classes.getOrDefault(module,
+          Collections.emptySet())) {
+        report.add(INDENT + INDENT + dependency);
+      }
+    }
+    return report;
+  }
+
+}
@@ -0,0 +1,616 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.FindException;
+import java.lang.module.InvalidModuleDescriptorException;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor.JavaRequires.JavaModifier;
+import org.codehaus.plexus.languages.java.jpms.ModuleNameSource;
+import org.codehaus.plexus.languages.java.jpms.ResolvePathsResult;
+
+/**
+ * Resolver of the module path and the class path elements.
+ *
+ * <p>
+ * The module descriptors and the automatic module names of all path
+ * elements are read in parallel inside the current JVM, then the path
+ * elements are split into the module path and the class path elements
+ * the same way as the plexus-java LocationManager does it: the modules
+ * required by the main module are placed on the module path, the rest
+ * are placed on the class path.
+ * </p>
+ *
+ * <p>
+ * The module descriptors are parsed by the current JVM, so the descriptors
+ * compiled for the newer Java release than the current JVM supports
+ * can't be read. Such path elements are reported by
+ * {@link #isUnsupported(ResolvePathsResult)} and the path elements should
+ * be resolved by the LocationManager.
+ * </p>
+ */
+public class ModuleResolver {
+
+  /**
+   * Filename of a module descriptor.
+   */
+  private static final String DESCRIPTOR_NAME = "module-info.class";
+
+  /**
+   * Filename of a manifest.
+   */
+  private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+  /**
+   * Prefix of the versioned entries of the multi-release jar.
+   */
+  private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+  /**
+   * Manifest attribute of the automatic module name.
+   */
+  private static final String AUTOMATIC_MODULE_NAME = "Automatic-Module-Name";
+
+  /**
+   * Manifest attribute of the multi-release jar.
+   */
+  private static final String MULTI_RELEASE = "Multi-Release";
+
+  /**
+   * Extension of the jar files.
+   */
+  private static final String JAR_EXTENSION = ".jar";
+
+  /**
+   * Lowest Java version supporting modules.
+   */
+  private static final int MIN_VERSION = 9;
+
+  /**
+   * Parallelism level.
+   */
+  private final int parallelism;
+
+  /**
+   * Java release used to select the versioned entries of
+   * the multi-release jars.
+   */
+  private final int release;
+
+  /**
+   * Index of the module descriptors of the jar files.
+   */
+  private final DescriptorIndex index;
+
+  /**
+   * Create the resolver.
+   *
+   * @param parallelism the parallelism level
+   * @param release the Java release of the tool used to select
+   *                the versioned entries of the multi-release jars,
+   *                the release of the current JVM is used if it is
+   *                less than 9
+   * @param index the index of the module descriptors of the jar files,
+   *              can be null
+   */
+  public ModuleResolver(final int parallelism, final int release,
+      final DescriptorIndex index) {
+    this.parallelism = Math.max(1, parallelism);
+    this.release = release < MIN_VERSION
+        ? Runtime.version().feature() : release;
+    this.index = index;
+  }
+
+  /**
+   * Check if the resolved path elements contain the module descriptors
+   * which can't be read by the current JVM, i.e. the descriptors compiled
+   * for the newer Java release.
+   *
+   * @param result the resolved path elements
+   *
+   * @return true if some module descriptors are not supported
+   */
+  public static boolean isUnsupported(final ResolvePathsResult<File> result) {
+    return result.getPathExceptions().values().stream()
+        .anyMatch(ex -> ex instanceof InvalidModuleDescriptorException);
+  }
+
+  /**
+   * Resolve the path elements.
+   *
+   * @param paths the path elements
+   * @param mainModuleDescriptor the main module descriptor file, can be null
+   *
+   * @return the resolved path elements
+   *
+   * @throws IOException if any errors occurred while reading
+   *                     the main module descriptor
+   * @throws InvalidModuleDescriptorException if the main module descriptor
+   *                                          is invalid or not supported
+   *                                          by the current JVM
+   */
+  public ResolvePathsResult<File> resolvePaths(final List<File> paths,
+      final File mainModuleDescriptor) throws IOException {
+    final Result result = new Result();
+    JavaModuleDescriptor mainDescriptor = null;
+    if (mainModuleDescriptor != null) {
+      try (InputStream in = Files.newInputStream(
+          mainModuleDescriptor.toPath())) {
+        mainDescriptor = convert(ModuleDescriptor.read(in));
+      }
+    }
+    result.mainModuleDescriptor = mainDescriptor;
+    classify(result, paths, readDescriptors(paths));
+    return result;
+  }
+
+  /**
+   * Read the module descriptors of the path elements in parallel.
+   *
+   * @param paths the path elements
+   *
+   * @return the list of the module descriptors in the same order
+   *         as the path elements
+   */
+  private List<Descriptor> readDescriptors(final List<File> paths) {
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      final List<ForkJoinTask<Descriptor>> tasks = new ArrayList<>();
+      for (final File path : paths) {
+        tasks.add(pool.submit(() -> readDescriptor(path.toPath())));
+      }
+      final List<Descriptor> descriptors = new ArrayList<>();
+      for (final ForkJoinTask<Descriptor> task : tasks) {
+        descriptors.add(task.join());
+      }
+      return descriptors;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Read the module descriptor of the path element. The module descriptors
+   * of the jar files are read from the index if it is possible.
+   *
+   * @param path the path element
+   *
+   * @return the module descriptor
+   */
+  private Descriptor readDescriptor(final Path path) {
+    final boolean indexed = index != null && Files.isRegularFile(path)
+        && path.getFileName().toString().endsWith(JAR_EXTENSION);
+    if (indexed) {
+      try {
+        final DescriptorIndex.Entry entry = index.get(path, release);
+        if (entry != null) {
+          return new Descriptor(entry.getDescriptor(), entry.getSource());
+        }
+      } catch (IOException ex) {
+        // read the module descriptor from the jar file
+      }
+    }
+    final Descriptor descriptor = parseDescriptor(path);
+    if (indexed && descriptor.getError() == null) {
+      try {
+        index.put(path, release, descriptor.getDescriptor(),
+            descriptor.getSource());
+      } catch (IOException ex) {
+        // the module descriptor will not be indexed
+      }
+    }
+    return descriptor;
+  }
+
+  /**
+   * Parse the module descriptor of the path element.
+   *
+   * @param path the path element
+   *
+   * @return the module descriptor
+   */
+  private Descriptor parseDescriptor(final Path path) {
+    try {
+      if (Files.isRegularFile(path)
+          && !path.getFileName().toString().endsWith(JAR_EXTENSION)) {
+        throw new IllegalArgumentException("'" + path
+            + "' not allowed on the path, only outputDirectories and jars"
+            + " are accepted");
+      }
+      if (Files.isRegularFile(path)
+          || Files.exists(path.resolve(DESCRIPTOR_NAME))) {
+        final JavaModuleDescriptor descriptor = readModuleInfo(path);
+        if (descriptor != null) {
+          return new Descriptor(descriptor,
+              ModuleNameSource.MODULEDESCRIPTOR);
+        }
+      }
+      String name = readManifestModuleName(path);
+      if (name != null) {
+        return new Descriptor(
+            JavaModuleDescriptor.newAutomaticModule(name).build(),
+            ModuleNameSource.MANIFEST);
+      }
+      name = readFileModuleName(path);
+      if (name != null) {
+        return new Descriptor(
+            JavaModuleDescriptor.newAutomaticModule(name).build(),
+            ModuleNameSource.FILENAME);
+      }
+      return new Descriptor(null, null);
+    } catch (IOException | RuntimeException ex) {
+      return new Descriptor(ex);
+    }
+  }
+
+  /**
+   * Split the path elements into the module path and the class path
+   * elements.
+   *
+   * @param result the result to populate
+   * @param paths the path elements
+   * @param descriptors the module descriptors of the path elements
+   */
+  private static void classify(final Result result, final List<File> paths,
+      final List<Descriptor> descriptors) {
+    final Map<File, JavaModuleDescriptor> pathElements = new LinkedHashMap<>();
+    final Map<String, JavaModuleDescriptor> availableModules = new HashMap<>();
+    final Map<String, ModuleNameSource> moduleNameSources = new HashMap<>();
+    final Map<File, JavaModuleDescriptor> filenameModules =
+        new LinkedHashMap<>();
+    for (int i = 0; i < paths.size(); i++) {
+      final File path = paths.get(i);
+      final Descriptor descriptor = descriptors.get(i);
+      if (descriptor.getError() != null) {
+        result.getPathExceptions().put(path, descriptor.getError());
+        pathElements.put(path, null);
+        continue;
+      }
+      final JavaModuleDescriptor module = descriptor.getDescriptor();
+      if (ModuleNameSource.FILENAME.equals(descriptor.getSource())) {
+        // the names derived from the filenames are resolved last
+        filenameModules.put(path, module);
+        pathElements.put(path, null);
+        continue;
+      }
+      if (module != null && moduleNameSources.putIfAbsent(module.name(),
+          descriptor.getSource()) == null) {
+        availableModules.put(module.name(), module);
+      }
+      pathElements.put(path, module);
+    }
+    for (final Map.Entry<File, JavaModuleDescriptor> entry
+        : filenameModules.entrySet()) {
+      final JavaModuleDescriptor module = entry.getValue();
+      moduleNameSources.put(module.name(), ModuleNameSource.FILENAME);
+      availableModules.put(module.name(), module);
+      pathElements.put(entry.getKey(), module);
+    }
+    result.pathElements = pathElements;
+    final Set<String> requiredModules = new HashSet<>();
+    if (result.mainModuleDescriptor != null) {
+      requiredModules.add(result.mainModuleDescriptor.name());
+      selectRequires(result.mainModuleDescriptor, availableModules,
+          requiredModules, true, true);
+    }
+    final Set<String> collectedModules = new HashSet<>();
+    for (final Map.Entry<File, JavaModuleDescriptor> entry
+        : pathElements.entrySet()) {
+      final JavaModuleDescriptor module = entry.getValue();
+      if (module != null && requiredModules.contains(module.name())) {
+        if (collectedModules.add(module.name())) {
+          result.getModulepathElements().put(entry.getKey(),
+              moduleNameSources.get(module.name()));
+        } else {
+          result.getPathExceptions().put(entry.getKey(),
+              new IllegalStateException("Module '" + module.name()
+                  + "' is already on the module path!"));
+        }
+      } else {
+        result.getClasspathElements().add(entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * Select the modules required by the module.
+   *
+   * @param module the module
+   * @param availableModules the available modules
+   * @param requiredModules the selected modules
+   * @param isRootModule is the module the main module
+   * @param includeAsTransitive include the static modules
+   */
+  private static void selectRequires(final JavaModuleDescriptor module,
+      final Map<String, JavaModuleDescriptor> availableModules,
+      final Set<String> requiredModules, final boolean isRootModule,
+      final boolean includeAsTransitive) {
+    for (final JavaModuleDescriptor.JavaRequires requires
+        : module.requires()) {
+      if (!isRootModule && !includeAsTransitive
+          && requires.modifiers().contains(JavaModifier.STATIC)
+          && !requires.modifiers().contains(JavaModifier.TRANSITIVE)) {
+        continue;
+      }
+      final JavaModuleDescriptor requiredModule =
+          availableModules.get(requires.name());
+      if (requiredModule != null && requiredModules.add(requires.name())) {
+        selectRequires(requiredModule, availableModules, requiredModules,
+            false, false);
+      }
+    }
+  }
+
+  /**
+   * Read the module descriptor from the jar or the directory.
+   *
+   * @param path the jar or the directory
+   *
+   * @return the module descriptor or null if it is missing
+   *
+   * @throws IOException if any errors occurred while reading
+   */
+  private JavaModuleDescriptor readModuleInfo(final Path path)
+      throws IOException {
+    if (Files.isDirectory(path)) {
+      try (InputStream in = Files.newInputStream(
+          path.resolve(DESCRIPTOR_NAME))) {
+        return convert(ModuleDescriptor.read(in));
+      }
+    }
+    try (JarFile jarFile = new JarFile(path.toFile())) {
+      JarEntry entry = jarFile.getJarEntry(DESCRIPTOR_NAME);
+      if (entry == null) {
+        final Manifest manifest = jarFile.getManifest();
+        if (manifest != null && "true".equalsIgnoreCase(
+            manifest.getMainAttributes().getValue(MULTI_RELEASE))) {
+          for (int version = release;
+              entry == null && version >= MIN_VERSION; version--) {
+            entry = jarFile.getJarEntry(VERSIONS_PREFIX + version + "/"
+                + DESCRIPTOR_NAME);
+          }
+        }
+      }
+      if (entry == null) {
+        return null;
+      }
+      try (InputStream in = jarFile.getInputStream(entry)) {
+        return convert(ModuleDescriptor.read(in));
+      }
+    }
+  }
+
+  /**
+   * Read the automatic module name from the manifest.
+   *
+   * @param path the jar or the directory
+   *
+   * @return the automatic module name or null if it is missing
+   *
+   * @throws IOException if any errors occurred while reading
+   */
+  private static String readManifestModuleName(final Path path)
+      throws IOException {
+    Manifest manifest = null;
+    if (Files.isRegularFile(path)) {
+      try (JarFile jarFile = new JarFile(path.toFile())) {
+        manifest = jarFile.getManifest();
+      }
+    } else if (Files.exists(path.resolve(MANIFEST_NAME))) {
+      try (InputStream in = Files.newInputStream(
+          path.resolve(MANIFEST_NAME))) {
+        manifest = new Manifest(in);
+      }
+    }
+    if (manifest == null) {
+      return null;
+    }
+    final Attributes attributes = manifest.getMainAttributes();
+    return attributes.getValue(AUTOMATIC_MODULE_NAME);
+  }
+
+  /**
+   * Derive the automatic module name from the filename.
+   *
+   * @param path the jar or the directory
+   *
+   * @return the automatic module name or null if it can't be derived
+   */
+  private static String readFileModuleName(final Path path) {
+    try {
+      final Optional<ModuleReference> reference =
+          ModuleFinder.of(path).findAll().stream().findFirst();
+      return reference.isPresent() ? reference.get().descriptor().name() : null;
+    } catch (FindException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Convert the module descriptor.
+   *
+   * @param descriptor the module descriptor
+   *
+   * @return the converted module descriptor
+   */
+  private static JavaModuleDescriptor convert(
+      final ModuleDescriptor descriptor) {
+    if (descriptor.isAutomatic()) {
+      return JavaModuleDescriptor.newAutomaticModule(descriptor.name())
+          .build();
+    }
+    final JavaModuleDescriptor.Builder builder =
+        JavaModuleDescriptor.newModule(descriptor.name());
+    for (final ModuleDescriptor.Requires requires : descriptor.requires()) {
+      final Set<JavaModifier> modifiers = new LinkedHashSet<>();
+      if (requires.modifiers().contains(
+          ModuleDescriptor.Requires.Modifier.STATIC)) {
+        modifiers.add(JavaModifier.STATIC);
+      }
+      if (requires.modifiers().contains(
+          ModuleDescriptor.Requires.Modifier.TRANSITIVE)) {
+        modifiers.add(JavaModifier.TRANSITIVE);
+      }
+      if (modifiers.isEmpty()) {
+        builder.requires(requires.name());
+      } else {
+        builder.requires(modifiers, requires.name());
+      }
+    }
+    for (final ModuleDescriptor.Exports exports : descriptor.exports()) {
+      if (exports.isQualified()) {
+        builder.exports(exports.source(), new HashSet<>(exports.targets()));
+      } else {
+        builder.exports(exports.source());
+      }
+    }
+    for (final String uses : descriptor.uses()) {
+      builder.uses(uses);
+    }
+    for (final ModuleDescriptor.Provides provides : descriptor.provides()) {
+      builder.provides(provides.service(), provides.providers());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Module descriptor of the path element.
+   */
+  private static class Descriptor {
+
+    /**
+     * Module descriptor.
+     */
+    private final JavaModuleDescriptor descriptor;
+
+    /**
+     * Source of the module name.
+     */
+    private final ModuleNameSource source;
+
+    /**
+     * Error occurred while reading the module descriptor.
+     */
+    private final Exception error;
+
+    /**
+     * Create the module descriptor.
+     *
+     * @param descriptor the module descriptor, null if the path element
+     *                   is not a module
+     * @param source the source of the module name
+     */
+    private Descriptor(final JavaModuleDescriptor descriptor,
+        final ModuleNameSource source) {
+      this.descriptor = descriptor;
+      this.source = source;
+      this.error = null;
+    }
+
+    /**
+     * Create the module descriptor of the path element
+     * which can't be read.
+     *
+     * @param error the error occurred while reading the module descriptor
+     */
+    private Descriptor(final Exception error) {
+      this.descriptor = null;
+      this.source = null;
+      this.error = error;
+    }
+
+    /**
+     * Get the module descriptor.
+     *
+     * @return the module descriptor or null if the path element
+     *         is not a module
+     */
+    JavaModuleDescriptor getDescriptor() {
+      return descriptor;
+    }
+
+    /**
+     * Get the source of the module name.
+     *
+     * @return the source of the module name
+     */
+    ModuleNameSource getSource() {
+      return source;
+    }
+
+    /**
+     * Get the error occurred while reading the module descriptor.
+     *
+     * @return the error or null
+     */
+    Exception getError() {
+      return error;
+    }
+
+  }
+
+  /**
+   * Resolved path elements.
+   */
+  private static class Result extends ResolvePathsResult<File> {
+
+    /**
+     * Main module descriptor.
+     */
+    private JavaModuleDescriptor mainModuleDescriptor;
+
+    /**
+     * Path elements with their module descriptors.
+     */
+    private Map<File, JavaModuleDescriptor> pathElements;
+
+    @Override
+    public JavaModuleDescriptor getMainModuleDescriptor() {
+      return mainModuleDescriptor;
+    }
+
+    @Override
+    public Map<File, JavaModuleDescriptor> getPathElements() {
+      return pathElements;
+    }
+
+  }
+
+}
@@ -18,10 +18,15 @@ package ru.akman.maven.plugins.jlink;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.shared.model.fileset.FileSet;
 import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
@@ -52,6 +57,72 @@ public final class PluginUtils {
         : getThrowableCause(throwable.getCause());
   }
 
+  /**
+   * Parse the size with an optional unit suffix: K, M, G or T
+   * (case insensitive), i.e. "512M" or "2G".
+   *
+   * @param size the size
+   *
+   * @return the size in bytes
+   *
+   * @throws NumberFormatException if the size can't be parsed
+   */
+  public static long parseSize(final String size) {
+    final String value = size.trim().toUpperCase(Locale.ROOT);
+    if (value.isEmpty()) {
+      throw new NumberFormatException("Empty size");
+    }
+    final int unit = "KMGT".indexOf(value.charAt(value.length() - 1));
+    if (unit == -1) {
+      return Long.parseLong(value);
+    }
+    return Long.parseLong(value.substring(0, value.length() - 1).trim())
+        << (10 * (unit + 1));
+  }
+
+  /**
+   * Get the feature (major) version from the version string,
+   * i.e. 17 for "17.0.9", 21 for "21-ea" or "21+35" and 9 for "9".
+   * The leading digits are used if the version string is not valid
+   * for {@link Runtime.Version}.
+   *
+   * @param version the version string, can be null
+   *
+   * @return the feature version or 0 if it can't be determined
+   */
+  public static int getFeatureVersion(final String version) {
+    final String value = StringUtils.stripToEmpty(version);
+    try {
+      return Runtime.Version.parse(value).feature();
+    } catch (IllegalArgumentException ex) {
+      // not a valid version string, use the leading digits
+    }
+    final String feature = StringUtils.substringBefore(value, ".");
+    int end = 0;
+    while (end < feature.length() && Character.isDigit(feature.charAt(end))) {
+      end++;
+    }
+    return end == 0 ? 0 : Integer.parseInt(feature.substring(0, end));
+  }
+
+  /**
+   * Get the total size of the regular files of the directory.
+   *
+   * @param dir the directory
+   *
+   * @return the size in bytes
+   *
+   * @throws IOException if error occurred while walking the directory
+   */
+  public static long getDirectorySize(final Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files
+          .filter(Files::isRegularFile)
+          .mapToLong(file -> file.toFile().length())
+          .sum();
+    }
+  }
+
   /**
    * Fix base directory of the fileset by resolving it
    * relative to the specified base directory.
@@ -0,0 +1,157 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
+
+/**
+ * Binder of the services used by the modules to the provider modules.
+ *
+ * <p>
+ * Starting from the root modules, the binder walks the modules they
+ * require and collects the services these modules use. Every used service
+ * is bound to the known modules which provide it, and the bound providers
+ * are walked the same way, so the services used by the providers are bound
+ * too. The allow-list of the service filters its providers, the allowed
+ * providers which are not known modules (e.g. the JDK modules) are bound
+ * as is. The services with the allow-lists are bound even if they are not
+ * used by the walked modules.
+ * </p>
+ */
+public class ServiceBinder {
+
+  /**
+   * Known module descriptors by the module names.
+   */
+  private final Map<String, JavaModuleDescriptor> descriptors =
+      new TreeMap<>();
+
+  /**
+   * Allow-lists of the provider modules by the service names,
+   * the empty allow-list allows every provider.
+   */
+  private final Map<String, List<String>> allowed;
+
+  /**
+   * Create the binder.
+   *
+   * @param descriptors the known module descriptors
+   * @param allowed the allow-lists of the provider modules by the service
+   *                names, the empty allow-list allows every provider
+   */
+  public ServiceBinder(final Collection<JavaModuleDescriptor> descriptors,
+      final Map<String, List<String>> allowed) {
+    descriptors.forEach(descriptor ->
+        this.descriptors.put(descriptor.name(), descriptor));
+    this.allowed = allowed;
+  }
+
+  /**
+   * Bind the services used by the root modules and their dependencies.
+   *
+   * @param roots the names of the root modules
+   *
+   * @return the provider module names by the service names
+   *         in the binding order
+   */
+  public Map<String, List<String>> bind(final Collection<String> roots) {
+    final Map<String, List<String>> result = new LinkedHashMap<>();
+    final Deque<String> queue = new ArrayDeque<>(roots);
+    for (final String service : allowed.keySet()) {
+      queue.addAll(bindService(service, result));
+    }
+    final Set<String> visited = new HashSet<>();
+    while (!queue.isEmpty()) {
+      final String name = queue.poll();
+      final JavaModuleDescriptor descriptor = descriptors.get(name);
+      if (!visited.add(name) || descriptor == null) {
+        continue;
+      }
+      descriptor.requires().forEach(requires -> queue.add(requires.name()));
+      for (final String service : descriptor.uses()) {
+        if (!result.containsKey(service)) {
+          queue.addAll(bindService(service, result));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether the module is known and doesn't provide the service.
+   *
+   * @param module the module name
+   * @param service the service name
+   *
+   * @return true if the known module doesn't provide the service
+   */
+  public boolean isNotProvider(final String module, final String service) {
+    final JavaModuleDescriptor descriptor = descriptors.get(module);
+    return descriptor != null && !provides(descriptor, service);
+  }
+
+  /**
+   * Bind the service to its allowed providers.
+   *
+   * @param service the service name
+   * @param result the provider module names by the service names
+   *
+   * @return the bound provider module names
+   */
+  private List<String> bindService(final String service,
+      final Map<String, List<String>> result) {
+    final List<String> allowList = allowed.getOrDefault(service, List.of());
+    final List<String> providers = new ArrayList<>();
+    if (allowList.isEmpty()) {
+      descriptors.values().stream()
+          .filter(descriptor -> provides(descriptor, service))
+          .map(JavaModuleDescriptor::name)
+          .forEach(providers::add);
+    } else {
+      allowList.stream()
+          .filter(provider -> !isNotProvider(provider, service))
+          .forEach(providers::add);
+    }
+    result.put(service, providers);
+    return providers;
+  }
+
+  /**
+   * Checks whether the module provides the service.
+   *
+   * @param descriptor the module descriptor
+   * @param service the service name
+   *
+   * @return true if the module provides the service
+   */
+  private static boolean provides(final JavaModuleDescriptor descriptor,
+      final String service) {
+    return descriptor.provides().stream()
+        .anyMatch(provides -> service.equals(provides.service()));
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.util.List;
+
+/**
+ * Binding of the service to the allowed provider modules.
+ */
+public class ServiceBinding {
+
+  /**
+   * Service name (fully qualified name of the service interface).
+   */
+  private String service;
+
+  /**
+   * List of allowed provider modules (module names).
+   */
+  private List<String> providers;
+
+  /**
+   * Get service name.
+   *
+   * @return the fully qualified name of the service interface
+   */
+  public String getService() {
+    return this.service;
+  }
+
+  /**
+   * Set service name.
+   *
+   * @param service the fully qualified name of the service interface
+   */
+  public void setService(final String service) {
+    this.service = service;
+  }
+
+  /**
+   * Get list of allowed provider modules.
+   *
+   * @return the list of allowed provider module names
+   */
+  public List<String> getProviders() {
+    return this.providers;
+  }
+
+  /**
+   * Set list of allowed provider modules.
+   *
+   * @param providers allowed provider module names list
+   */
+  public void setProviders(final List<String> providers) {
+    this.providers = providers;
+  }
+
+}
@@ -0,0 +1,299 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Startup benchmark of the command.
+ *
+ * <p>
+ * The command is started and the time to the readiness marker printed on
+ * the standard output (or to the exit of the command if the marker is not
+ * specified) is measured. The peak resident set size of the command and
+ * its descendants is sampled from /proc (Linux only). The command and its
+ * descendants are destroyed once the marker is found.
+ * </p>
+ */
+public class StartupBenchmark {
+
+  /**
+   * Interval of the sampling of the resident set size in milliseconds.
+   */
+  private static final long SAMPLING_INTERVAL = 5L;
+
+  /**
+   * Time to wait for the destroyed command in seconds.
+   */
+  private static final long DESTROY_TIMEOUT = 5L;
+
+  /**
+   * Name of the field of the peak resident set size in /proc/pid/status.
+   */
+  private static final String PEAK_RSS_FIELD = "VmHWM:";
+
+  /**
+   * Command to run.
+   */
+  private final List<String> command;
+
+  /**
+   * Working directory of the command.
+   */
+  private final File workDir;
+
+  /**
+   * Readiness marker or null.
+   */
+  private final Pattern marker;
+
+  /**
+   * Timeout of the run in milliseconds.
+   */
+  private final long timeout;
+
+  /**
+   * Charset of the output of the command.
+   */
+  private final Charset charset;
+
+  /**
+   * Create the benchmark of the command.
+   *
+   * @param command the command to run
+   * @param workDir the working directory of the command
+   * @param marker the readiness marker, null to measure the time to exit
+   * @param timeout the timeout of the run in milliseconds
+   * @param charset the charset of the output of the command
+   */
+  public StartupBenchmark(final List<String> command, final File workDir,
+      final Pattern marker, final long timeout, final Charset charset) {
+    this.command = List.copyOf(command);
+    this.workDir = workDir;
+    this.marker = marker;
+    this.timeout = timeout;
+    this.charset = charset;
+  }
+
+  /**
+   * Run the command once.
+   *
+   * @return the measured sample
+   *
+   * @throws IOException if the command can't be started, it exited without
+   *                     printing the marker or the run timed out
+   * @throws InterruptedException if the run was interrupted
+   */
+  public Sample run() throws IOException, InterruptedException {
+    final long start = System.nanoTime();
+    final Process process = new ProcessBuilder(command)
+        .directory(workDir)
+        .redirectError(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    final long[] peakRss = {-1L};
+    final Thread sampler = new Thread(() -> {
+      while (process.isAlive()) {
+        peakRss[0] = Math.max(peakRss[0], getPeakRss(process.toHandle()));
+        try {
+          Thread.sleep(SAMPLING_INTERVAL);
+        } catch (InterruptedException ex) {
+          return;
+        }
+      }
+    }, "jlink-benchmark-sampler");
+    sampler.setDaemon(true);
+    sampler.start();
+    final CompletableFuture<Long> ready = new CompletableFuture<>();
+    final Thread reader = new Thread(() -> {
+      try (BufferedReader in = new BufferedReader(
+          new InputStreamReader(process.getInputStream(), charset))) {
+        String line;
+        while ((line = in.readLine()) != null) {
+          if (marker != null && !ready.isDone()
+              && marker.matcher(line).find()) {
+            ready.complete(System.nanoTime());
+          }
+        }
+      } catch (IOException ex) {
+        // the output is closed by the destroyed command
+      }
+      ready.completeExceptionally(new IOException(
+          "Command exited without printing the readiness marker"));
+    }, "jlink-benchmark-reader");
+    reader.setDaemon(true);
+    reader.start();
+    try {
+      final long end;
+      if (marker == null) {
+        if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+          throw new IOException("Command timed out");
+        }
+        end = System.nanoTime();
+      } else {
+        try {
+          end = ready.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          throw new IOException("Command timed out", ex);
+        } catch (ExecutionException ex) {
+          throw new IOException(ex.getCause().getMessage(), ex.getCause());
+        }
+      }
+      // the last sample of the running command
+      peakRss[0] = Math.max(peakRss[0], getPeakRss(process.toHandle()));
+      return new Sample(end - start, peakRss[0]);
+    } finally {
+      sampler.interrupt();
+      destroy(process);
+    }
+  }
+
+  /**
+   * Destroy the process and its descendants.
+   *
+   * @param process the process
+   *
+   * @throws InterruptedException if the waiting was interrupted
+   */
+  private static void destroy(final Process process)
+      throws InterruptedException {
+    process.descendants().forEach(ProcessHandle::destroy);
+    process.destroy();
+    if (!process.waitFor(DESTROY_TIMEOUT, TimeUnit.SECONDS)) {
+      process.descendants().forEach(ProcessHandle::destroyForcibly);
+      process.destroyForcibly();
+    }
+  }
+
+  /**
+   * Get the peak resident set size of the process and its descendants.
+   *
+   * @param handle the process handle
+   *
+   * @return the peak resident set size in kilobytes or -1 if it's unknown
+   */
+  private static long getPeakRss(final ProcessHandle handle) {
+    long result = readPeakRss(handle.pid());
+    for (final ProcessHandle descendant
+        : (Iterable<ProcessHandle>) handle.descendants()::iterator) {
+      result = Math.max(result, readPeakRss(descendant.pid()));
+    }
+    return result;
+  }
+
+  /**
+   * Read the peak resident set size of the process from /proc.
+   *
+   * @param pid the process id
+   *
+   * @return the peak resident set size in kilobytes or -1 if it's unknown
+   */
+  private static long readPeakRss(final long pid) {
+    final Path status = Paths.get("/proc", Long.toString(pid), "status");
+    try {
+      for (final String line : Files.readAllLines(status)) {
+        if (line.startsWith(PEAK_RSS_FIELD)) {
+          return Long.parseLong(line.substring(PEAK_RSS_FIELD.length())
+              .replace("kB", "").trim());
+        }
+      }
+    } catch (IOException | NumberFormatException ex) {
+      // not available
+    }
+    return -1L;
+  }
+
+  /**
+   * Get the percentile of the values (nearest rank method).
+   *
+   * @param values the values
+   * @param percentile the percentile (0 - 100)
+   *
+   * @return the percentile of the values or 0 if there are no values
+   */
+  public static long percentile(final List<Long> values,
+      final double percentile) {
+    if (values.isEmpty()) {
+      return 0L;
+    }
+    final List<Long> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    final int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+    return sorted.get(Math.min(sorted.size(), Math.max(1, rank)) - 1);
+  }
+
+  /**
+   * Measured sample of the run.
+   */
+  public static class Sample {
+
+    /**
+     * Startup time in nanoseconds.
+     */
+    private final long startup;
+
+    /**
+     * Peak resident set size in kilobytes, -1 if it's unknown.
+     */
+    private final long peakRss;
+
+    /**
+     * Create the sample.
+     *
+     * @param startup the startup time in nanoseconds
+     * @param peakRss the peak resident set size in kilobytes
+     */
+    public Sample(final long startup, final long peakRss) {
+      this.startup = startup;
+      this.peakRss = peakRss;
+    }
+
+    /**
+     * Get the startup time.
+     *
+     * @return the startup time in nanoseconds
+     */
+    public long getStartup() {
+      return startup;
+    }
+
+    /**
+     * Get the peak resident set size.
+     *
+     * @return the peak resident set size in kilobytes, -1 if it's unknown
+     */
+    public long getPeakRss() {
+      return peakRss;
+    }
+
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+/**
+ * Training command run by the linked image.
+ *
+ * <p>
+ * The values which are not specified are taken from the launcher.
+ * </p>
+ */
+public class Training {
+
+  /**
+   * Main module name.
+   */
+  private String mainmodule;
+
+  /**
+   * Main class name.
+   */
+  private String mainclass;
+
+  /**
+   * Java runtime arguments.
+   */
+  private String jvmargs;
+
+  /**
+   * Command arguments.
+   */
+  private String args;
+
+  /**
+   * Get main module name.
+   *
+   * @return the main module name
+   */
+  public String getMainModule() {
+    return this.mainmodule;
+  }
+
+  /**
+   * Set main module name.
+   *
+   * @param mainmodule the name of main module
+   */
+  public void setMainModule(final String mainmodule) {
+    this.mainmodule = mainmodule;
+  }
+
+  /**
+   * Get main class name.
+   *
+   * @return the main class name
+   */
+  public String getMainClass() {
+    return this.mainclass;
+  }
+
+  /**
+   * Set main class name.
+   *
+   * @param mainclass the name of main class
+   */
+  public void setMainClass(final String mainclass) {
+    this.mainclass = mainclass;
+  }
+
+  /**
+   * Get Java runtime arguments.
+   *
+   * @return the Java runtime arguments
+   */
+  public String getJvmArgs() {
+    return this.jvmargs;
+  }
+
+  /**
+   * Set Java runtime arguments.
+   *
+   * @param jvmargs Java runtime arguments
+   */
+  public void setJvmArgs(final String jvmargs) {
+    this.jvmargs = jvmargs;
+  }
+
+  /**
+   * Get command arguments.
+   *
+   * @return the command arguments
+   */
+  public String getArgs() {
+    return this.args;
+  }
+
+  /**
+   * Set command arguments.
+   *
+   * @param args the command arguments
+   */
+  public void setArgs(final String args) {
+    this.args = args;
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PhaseMetrics Test Class.
+ *
+ * <p>
+ * The phase "inner" is started and finished inside the phase "outer".
+ * </p>
+ */
+public class PhaseMetricsTest {
+
+  /**
+   * Time spent inside the inner phase in milliseconds.
+   */
+  private static final long SLEEP_MILLIS = 20L;
+
+  /**
+   * The name of the phase which needs escaping.
+   */
+  private static final String ODD_NAME = "a\"b\\c\nd";
+
+  /**
+   * The metrics.
+   */
+  private PhaseMetrics metrics;
+
+  /**
+   * The outer phase.
+   */
+  private PhaseMetrics.Phase outer;
+
+  /**
+   * The inner phase.
+   */
+  private PhaseMetrics.Phase inner;
+
+  /**
+   * Record the nested phases.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    metrics = new PhaseMetrics();
+    try (PhaseMetrics.Phase phase = metrics.start("outer")) {
+      outer = phase;
+      try (PhaseMetrics.Phase nested = metrics.start("inner")) {
+        inner = nested;
+        Thread.sleep(SLEEP_MILLIS);
+        nested.addFiles(2L).addBytes(100L).addFiles(1L);
+      }
+    }
+  }
+
+  /**
+   * The nested phases are recorded in the order of their start
+   * and the outer phase covers the inner one.
+   */
+  @Test
+  public void testNestedPhases() {
+    assertEquals("phases", List.of(outer, inner), metrics.getPhases());
+    assertTrue("offset", inner.getOffset() >= outer.getOffset());
+    assertTrue("inner wall",
+        inner.getWall() >= SLEEP_MILLIS * 1_000_000L);
+    assertTrue("outer wall", outer.getWall() >= inner.getWall());
+    assertTrue("elapsed", metrics.getElapsed() >= outer.getWall());
+    assertEquals("files", 3L, inner.getFiles());
+    assertEquals("bytes", 100L, inner.getBytes());
+    assertEquals("outer files", 0L, outer.getFiles());
+  }
+
+  /**
+   * The closed phase is not finished again.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testCloseTwice() throws Exception {
+    final long wall = inner.getWall();
+    Thread.sleep(SLEEP_MILLIS);
+    inner.close();
+    assertEquals("wall", wall, inner.getWall());
+  }
+
+  /**
+   * The JSON document lists the properties and the phases
+   * in the order of their start.
+   */
+  @Test
+  public void testJson() {
+    final Map<String, String> properties = new LinkedHashMap<>();
+    properties.put("project", "group:artifact:1.0");
+    properties.put("toolVersion", null);
+    final List<String> lines = lines(metrics.toJson(properties));
+    assertEquals("start", "{", lines.get(0));
+    assertEquals("project", "  \"project\": \"group:artifact:1.0\",",
+        lines.get(1));
+    assertEquals("toolVersion", "  \"toolVersion\": null,", lines.get(2));
+    assertTrue("wallMillis", lines.get(3).matches(
+        "  \"wallMillis\": \\d+\\.\\d+,"));
+    assertEquals("phases", "  \"phases\": [", lines.get(4));
+    assertEquals("outer", "      \"name\": \"outer\",", lines.get(6));
+    final int index = lines.indexOf("      \"name\": \"inner\",");
+    assertTrue("inner", index > 6);
+    assertTrue("startMillis", lines.get(index + 1).matches(
+        "      \"startMillis\": \\d+\\.\\d+,"));
+    assertEquals("files", "      \"files\": 3,", lines.get(index + 5));
+    assertEquals("bytes", "      \"bytes\": 100", lines.get(index + 6));
+    assertEquals("end", "}", lines.get(lines.size() - 1));
+  }
+
+  /**
+   * The JSON strings are escaped.
+   */
+  @Test
+  public void testJsonEscaping() {
+    metrics.start(ODD_NAME).close();
+    assertTrue("name", lines(metrics.toJson(Map.of("key", "\t")))
+        .containsAll(List.of("  \"key\": \"\\t\",",
+            "      \"name\": \"a\\\"b\\\\c\\nd\",")));
+  }
+
+  /**
+   * Every gauge has the help, the type and a sample for every phase
+   * with the common labels.
+   */
+  @Test
+  public void testPrometheus() {
+    final Map<String, String> labels = new LinkedHashMap<>();
+    labels.put("group", "g");
+    labels.put("artifact", "a");
+    final List<String> lines = lines(metrics.toPrometheus("jlink", labels));
+    for (final String gauge : List.of("phase_wall_seconds",
+        "phase_cpu_seconds", "phase_process_cpu_seconds", "phase_files",
+        "phase_bytes", "wall_seconds")) {
+      final String name = "jlink_" + gauge;
+      final int index = lines.indexOf("# TYPE " + name + " gauge");
+      assertTrue(name, index > 0);
+      assertTrue(name + " help",
+          lines.get(index - 1).startsWith("# HELP " + name + " "));
+    }
+    assertTrue("wall", lines.contains(
+        "jlink_phase_wall_seconds{group=\"g\",artifact=\"a\",phase=\"outer\"}"
+        + " " + String.format(Locale.ROOT, "%.6f", outer.getWall() / 1e9)));
+    assertTrue("files", lines.contains(
+        "jlink_phase_files{group=\"g\",artifact=\"a\",phase=\"inner\"} 3"));
+    assertTrue("bytes", lines.contains(
+        "jlink_phase_bytes{group=\"g\",artifact=\"a\",phase=\"outer\"} 0"));
+    assertEquals("samples", 2L, lines.stream()
+        .filter(line -> line.startsWith("jlink_phase_cpu_seconds{")).count());
+    assertTrue("total", lines.get(lines.size() - 1).matches(
+        "jlink_wall_seconds\\{group=\"g\",artifact=\"a\"\\} \\d+\\.\\d{6}"));
+  }
+
+  /**
+   * The label values are escaped, the sample without the labels
+   * has the empty braces.
+   */
+  @Test
+  public void testPrometheusEscaping() {
+    metrics.start(ODD_NAME).close();
+    final List<String> lines = lines(metrics.toPrometheus("jlink",
+        Map.of("group", "g\"1\\")));
+    assertTrue("phase", lines.contains("jlink_phase_files{group=\"g\\\"1\\\\\","
+        + "phase=\"a\\\"b\\\\c\\nd\"} 0"));
+    final List<String> empty = lines(metrics.toPrometheus("jlink", Map.of()));
+    assertTrue("phase only", empty.contains(
+        "jlink_phase_files{phase=\"outer\"} 0"));
+    assertTrue("empty", empty.get(empty.size() - 1)
+        .startsWith("jlink_wall_seconds{} "));
+  }
+
+  /**
+   * Split the text to the lines.
+   *
+   * @param text the text
+   *
+   * @return the lines
+   */
+  private static List<String> lines(final String text) {
+    return Arrays.stream(text.split("\\R")).collect(Collectors.toList());
+  }
+
+}
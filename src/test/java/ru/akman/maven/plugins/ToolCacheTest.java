@@ -0,0 +1,132 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import org.apache.commons.lang3.JavaVersion;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ToolCache Test Class.
+ */
+public class ToolCacheTest {
+
+  /**
+   * Last modified time of the tool executable.
+   */
+  private static final long MTIME = 1_600_000_000_000L;
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The tool executable.
+   */
+  private Path executable;
+
+  /**
+   * The cache file.
+   */
+  private Path file;
+
+  /**
+   * Create the tool executable and the cache entry for it.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    executable = folder.newFile("jlink").toPath();
+    Files.write(executable, "#!/bin/sh".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(executable, FileTime.fromMillis(MTIME));
+    file = folder.getRoot().toPath().resolve("cache")
+        .resolve("toolcache.properties");
+    new ToolCache(file).put(executable,
+        new ToolCache.ToolInfo("17.0.9", JavaVersion.JAVA_17));
+  }
+
+  /**
+   * The cache entry is restored by the next build.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testEntryIsStored() throws Exception {
+    final ToolCache cache = new ToolCache(file);
+    cache.load();
+    final ToolCache.ToolInfo info = cache.get(executable);
+    assertNotNull("info", info);
+    assertEquals("version", "17.0.9", info.getVersion());
+    assertEquals("java version", JavaVersion.JAVA_17, info.getJavaVersion());
+  }
+
+  /**
+   * The cache entry is invalidated if the size of the tool is changed.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testEntryIsInvalidatedBySize() throws Exception {
+    Files.write(executable, "\nexit 0".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+    Files.setLastModifiedTime(executable, FileTime.fromMillis(MTIME));
+    final ToolCache cache = new ToolCache(file);
+    cache.load();
+    assertNull("info", cache.get(executable));
+  }
+
+  /**
+   * The cache entry is invalidated if the last modified time of the tool
+   * is changed.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testEntryIsInvalidatedByMtime() throws Exception {
+    Files.setLastModifiedTime(executable, FileTime.fromMillis(MTIME + 1_000L));
+    final ToolCache cache = new ToolCache(file);
+    cache.load();
+    assertNull("info", cache.get(executable));
+  }
+
+  /**
+   * The missing cache file is an empty cache.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMissingFile() throws Exception {
+    final ToolCache cache = new ToolCache(file.resolveSibling("missing"));
+    cache.load();
+    assertNull("info", cache.get(executable));
+  }
+
+}
@@ -0,0 +1,218 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+/**
+ * ToolOutput Test Class.
+ */
+public class ToolOutputTest {
+
+  /**
+   * The lines are forwarded to the info level in the verbose mode
+   * and to the debug level otherwise.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testLog() throws Exception {
+    final RecordingLog verboseLog = new RecordingLog();
+    new ToolOutput(verboseLog, true, null, null).consumeLine("line");
+    assertEquals("info", List.of("line"), verboseLog.info);
+    assertEquals("debug", List.of(), verboseLog.debug);
+    final RecordingLog quietLog = new RecordingLog();
+    new ToolOutput(quietLog, false, null, null).consumeLine("line");
+    assertEquals("info", List.of(), quietLog.info);
+    assertEquals("debug", List.of("line"), quietLog.debug);
+  }
+
+  /**
+   * The short output is kept entirely.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testShortTail() throws Exception {
+    final ToolOutput output = consume(3, null, null);
+    assertEquals("lines", 3L, output.getLines());
+    assertEquals("tail", String.join(System.lineSeparator(),
+        "line 0", "line 1", "line 2"), output.getTail());
+  }
+
+  /**
+   * Only the last lines of the long output are kept.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testBoundedTail() throws Exception {
+    final int count = ToolOutput.TAIL_LINES + 50;
+    final ToolOutput output = consume(count, null, null);
+    assertEquals("lines", (long) count, output.getLines());
+    final String[] tail = output.getTail().split(System.lineSeparator());
+    assertEquals("tail size", ToolOutput.TAIL_LINES + 1, tail.length);
+    assertEquals("omitted", "... 50 lines omitted", tail[0]);
+    assertEquals("first", "line 50", tail[1]);
+    assertEquals("last", "line " + (count - 1), tail[tail.length - 1]);
+  }
+
+  /**
+   * The full output is written into the tee and passed to the delegate.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testTeeAndDelegate() throws Exception {
+    final int count = ToolOutput.TAIL_LINES * 2;
+    final StringWriter tee = new StringWriter();
+    final List<String> delegated = new ArrayList<>();
+    consume(count, tee, delegated);
+    final String[] written = tee.toString().split(System.lineSeparator());
+    assertEquals("tee", count, written.length);
+    assertEquals("delegate", count, delegated.size());
+    for (int i = 0; i < count; i++) {
+      assertEquals("tee", "line " + i, written[i]);
+      assertEquals("delegate", "line " + i, delegated.get(i));
+    }
+  }
+
+  /**
+   * The failed tee is reported once and doesn't break the output.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testFailedTee() throws Exception {
+    final RecordingLog log = new RecordingLog();
+    final Writer tee = new Writer() {
+      @Override
+      public void write(final char[] cbuf, final int off, final int len)
+          throws IOException {
+        throw new IOException("disk full");
+      }
+
+      @Override
+      public void flush() {
+        // nothing to flush
+      }
+
+      @Override
+      public void close() {
+        // nothing to close
+      }
+    };
+    final ToolOutput output = new ToolOutput(log, false, null, tee);
+    output.consumeLine("first");
+    output.consumeLine("second");
+    assertEquals("warnings", 1, log.warn.size());
+    assertEquals("lines", 2L, output.getLines());
+  }
+
+  /**
+   * The writer splits the characters into the lines and consumes
+   * the incomplete last line when it is closed.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testWriter() throws Exception {
+    final List<String> delegated = new ArrayList<>();
+    final ToolOutput output =
+        new ToolOutput(new RecordingLog(), false, delegated::add, null);
+    try (Writer writer = output.asWriter()) {
+      writer.write("first\r\nsec");
+      writer.flush();
+      assertEquals("incomplete", List.of("first"), delegated);
+      writer.write("ond\n\nlast");
+    }
+    assertEquals("lines", List.of("first", "second", "", "last"), delegated);
+    assertEquals("count", 4L, output.getLines());
+  }
+
+  /**
+   * Consume the numbered lines.
+   *
+   * @param count the number of the lines
+   * @param tee the writer of the full output, can be null
+   * @param delegated the lines passed to the delegate, can be null
+   *
+   * @return the consumer
+   *
+   * @throws Exception if any errors occurred
+   */
+  private static ToolOutput consume(final int count, final Writer tee,
+      final List<String> delegated) throws Exception {
+    final ToolOutput output = new ToolOutput(new RecordingLog(), false,
+        delegated == null ? null : delegated::add, tee);
+    for (int i = 0; i < count; i++) {
+      output.consumeLine("line " + i);
+    }
+    return output;
+  }
+
+  /**
+   * The log recording the messages.
+   */
+  private static class RecordingLog extends SystemStreamLog {
+
+    /**
+     * The info messages.
+     */
+    private final List<String> info = new ArrayList<>();
+
+    /**
+     * The debug messages.
+     */
+    private final List<String> debug = new ArrayList<>();
+
+    /**
+     * The warning messages.
+     */
+    private final List<String> warn = new ArrayList<>();
+
+    @Override
+    public boolean isDebugEnabled() {
+      return true;
+    }
+
+    @Override
+    public void debug(final CharSequence content) {
+      debug.add(content.toString());
+    }
+
+    @Override
+    public void info(final CharSequence content) {
+      info.add(content.toString());
+    }
+
+    @Override
+    public void warn(final CharSequence content, final Throwable error) {
+      warn.add(content.toString());
+    }
+
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.SystemUtils;
+import org.codehaus.plexus.util.cli.CommandLineTimeOutException;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ToolWatchdog Test Class.
+ */
+public class ToolWatchdogTest {
+
+  /**
+   * Timeout of the tool execution in seconds.
+   */
+  private static final long TIMEOUT = 1L;
+
+  /**
+   * Time given to the killed processes to disappear in milliseconds.
+   */
+  private static final long EXIT_WAIT_MILLIS = 10_000L;
+
+  /**
+   * Poll interval in milliseconds.
+   */
+  private static final long INTERVAL = 50L;
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The tool finished in time returns its exit code and its output.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testFinishedInTime() throws Exception {
+    assumeFalse(SystemUtils.IS_OS_WINDOWS);
+    final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    final ToolWatchdog watchdog = new ToolWatchdog(TIMEOUT, null);
+    final int exitCode = watchdog.execute(shell("echo done; exit 3"),
+        lines::add, lines::add);
+    assertEquals("exit code", 3, exitCode);
+    assertEquals("output", List.of("done"), lines);
+    assertEquals("diagnostics", "", watchdog.getDiagnostics());
+  }
+
+  /**
+   * The tool running past the timeout is killed together with
+   * its descendants.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testProcessTreeIsKilled() throws Exception {
+    assumeFalse(SystemUtils.IS_OS_WINDOWS);
+    final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    final ToolWatchdog watchdog = new ToolWatchdog(TIMEOUT, null);
+    final long start = System.currentTimeMillis();
+    try {
+      watchdog.execute(shell("sleep 60 & echo $$; echo $!; wait"),
+          lines::add, line -> {});
+      fail("the process is not timed out");
+    } catch (CommandLineTimeOutException ex) {
+      // expected
+    }
+    assertTrue("timed out", System.currentTimeMillis() - start
+        < EXIT_WAIT_MILLIS);
+    assertEquals("pids", 2, lines.size());
+    for (final String pid : lines) {
+      assertFalse(pid, awaitAlive(Long.parseLong(pid.trim())));
+    }
+    assertFalse("diagnostics", watchdog.getDiagnostics().isEmpty());
+  }
+
+  /**
+   * The thread dump of the timed out JVM is taken by jcmd.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testThreadDump() throws Exception {
+    final File javaHome = new File(System.getProperty("java.home"));
+    final File java = new File(javaHome, SystemUtils.IS_OS_WINDOWS
+        ? "bin/java.exe" : "bin/java");
+    final File jcmd = new File(javaHome, SystemUtils.IS_OS_WINDOWS
+        ? "bin/jcmd.exe" : "bin/jcmd");
+    assumeTrue(java.isFile() && jcmd.isFile());
+    final Path source = folder.getRoot().toPath().resolve("Sleeper.java");
+    Files.write(source, ("public class Sleeper { public static void"
+        + " main(String[] args) throws Exception {"
+        + " System.out.println(\"started\"); Thread.sleep(60_000L); } }")
+        .getBytes(StandardCharsets.UTF_8));
+    final Commandline cmdLine = new Commandline();
+    cmdLine.setExecutable(java.toString());
+    cmdLine.createArg().setValue(source.toString());
+    final ToolWatchdog watchdog = new ToolWatchdog(TIMEOUT * 5, jcmd);
+    try {
+      watchdog.execute(cmdLine, line -> {}, line -> {});
+      fail("the process is not timed out");
+    } catch (CommandLineTimeOutException ex) {
+      // expected
+    }
+    assertTrue(watchdog.getDiagnostics(),
+        watchdog.getDiagnostics().contains("Sleeper.main"));
+  }
+
+  /**
+   * Create the command line running the shell script.
+   *
+   * @param script the shell script
+   *
+   * @return the command line
+   */
+  private static Commandline shell(final String script) {
+    final Commandline cmdLine = new Commandline();
+    cmdLine.setExecutable("/bin/sh");
+    cmdLine.createArg().setValue("-c");
+    cmdLine.createArg().setValue(script);
+    return cmdLine;
+  }
+
+  /**
+   * Wait until the process disappears.
+   *
+   * @param pid the process id
+   *
+   * @return true if the process is still alive
+   *
+   * @throws Exception if any errors occurred
+   */
+  private static boolean awaitAlive(final long pid) throws Exception {
+    final long deadline = System.currentTimeMillis() + EXIT_WAIT_MILLIS;
+    while (isAlive(pid) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(INTERVAL);
+    }
+    return isAlive(pid);
+  }
+
+  /**
+   * Checks whether the process is alive.
+   *
+   * @param pid the process id
+   *
+   * @return true if the process is alive
+   */
+  private static boolean isAlive(final long pid) {
+    return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.testing.MojoRule;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.toolchain.ToolchainManager;
+import org.codehaus.plexus.PlexusContainer;
+import org.junit.Rule;
+import org.junit.Test;
+import ru.akman.maven.plugins.TestUtils;
+
+/**
+ * BenchmarkMojo Test Class.
+ */
+public class BenchmarkMojoTest {
+
+  /**
+   * Relative path to the base directory of tested project.
+   */
+  private static final String PROJECT_DIR = "target/test-classes/benchmark/";
+
+  /**
+   * Executed goal.
+   */
+  private static final String MOJO_EXECUTION = "benchmark";
+
+  /**
+   * Plexus DI container.
+   */
+  private PlexusContainer container;
+
+  /**
+   * Toolchain manager.
+   */
+  private ToolchainManager toolchainManager;
+
+  /**
+   * Maven project.
+   */
+  private MavenProject project;
+
+  /**
+   * Maven session.
+   */
+  private MavenSession session;
+  
+  /**
+   * Mojo execution.
+   */
+  private MojoExecution execution;
+
+  /**
+   * Benchmark Mojo.
+   */
+  private BenchmarkMojo mojo;
+
+  /**
+   * AbstractMojoTestCase wrapper.
+   * All protected methods of the TestCase are exhibited as public in the 
+   */
+  @Rule
+  public MojoRule rule = new MojoRule() {
+
+    @Override
+    protected void before() throws Throwable {
+      // Plexus container
+      container = getContainer();
+      assertNotNull("Has access to the plexus container", container);
+      // Toolchain manager
+      toolchainManager = (ToolchainManager) container.lookup(
+          ToolchainManager.class.getName());
+      assertNotNull("Can get the toolchain manager", toolchainManager);
+      // Project directory
+      final File pom = new File(PROJECT_DIR);
+      assertNotNull("Project directory path is valid", pom);
+      assertTrue("Project directory exists", pom.exists());
+      // Maven project
+      project = readMavenProject(pom);
+      assertNotNull("Can read the project", project);
+      // Maven session
+      session = newMavenSession(project);
+      assertNotNull("Can create new session", session);
+      // Mojo execution
+      execution = newMojoExecution(MOJO_EXECUTION);
+      assertNotNull("Can create new execution", execution);      
+      // Mojo
+      mojo = (BenchmarkMojo) lookupConfiguredMojo(session, execution);
+      assertNotNull("Can lookup configured mojo", mojo);
+    }
+
+    @Override
+    protected void after() {
+      // skip
+    }
+    
+  };
+
+  /**
+   * Parameter 'output' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasOutput() throws Exception {
+    final File output =
+        (File) rule.getVariableValueFromObject(mojo, "output");
+    assertEquals("output",
+        TestUtils.getCanonicalPath(output),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "jlink/image"))
+    );
+  }
+
+  /**
+   * Parameter 'launcher/command' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasLauncherCommand() throws Exception {
+    final Launcher launcher =
+        (Launcher) rule.getVariableValueFromObject(mojo, "launcher");
+    assertNotNull("launcher",
+        launcher);
+    assertEquals("launcher/command",
+        launcher.getCommand(),
+        "myLauncher"
+    );
+  }
+
+  /**
+   * Parameter 'benchmarkargs' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkArgs() throws Exception {
+    final String benchmarkargs =
+        (String) rule.getVariableValueFromObject(mojo, "benchmarkargs");
+    assertEquals("benchmarkargs",
+        benchmarkargs,
+        "--ready"
+    );
+  }
+
+  /**
+   * Parameter 'benchmarkruns' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkRuns() throws Exception {
+    final int benchmarkruns =
+        (int) rule.getVariableValueFromObject(mojo, "benchmarkruns");
+    assertEquals("benchmarkruns",
+        benchmarkruns,
+        20
+    );
+  }
+
+  /**
+   * Parameter 'benchmarkwarmups' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkWarmups() throws Exception {
+    final int benchmarkwarmups =
+        (int) rule.getVariableValueFromObject(mojo, "benchmarkwarmups");
+    assertEquals("benchmarkwarmups",
+        benchmarkwarmups,
+        3
+    );
+  }
+
+  /**
+   * Parameter 'benchmarkmarker' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkMarker() throws Exception {
+    final String benchmarkmarker =
+        (String) rule.getVariableValueFromObject(mojo, "benchmarkmarker");
+    assertEquals("benchmarkmarker",
+        benchmarkmarker,
+        "^Ready"
+    );
+  }
+
+  /**
+   * Parameter 'benchmarktimeout' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkTimeout() throws Exception {
+    final int benchmarktimeout =
+        (int) rule.getVariableValueFromObject(mojo, "benchmarktimeout");
+    assertEquals("benchmarktimeout",
+        benchmarktimeout,
+        30
+    );
+  }
+
+  /**
+   * Parameter 'benchmarkreport' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkReport() throws Exception {
+    final File benchmarkreport =
+        (File) rule.getVariableValueFromObject(mojo, "benchmarkreport");
+    assertEquals("benchmarkreport",
+        TestUtils.getCanonicalPath(benchmarkreport),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "benchmark.json"))
+    );
+  }
+
+  /**
+   * Parameter 'benchmarkbudget' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasBenchmarkBudget() throws Exception {
+    final long benchmarkbudget =
+        (long) rule.getVariableValueFromObject(mojo, "benchmarkbudget");
+    assertEquals("benchmarkbudget",
+        benchmarkbudget,
+        500L
+    );
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CompressionSweep Test Class.
+ *
+ * <p>
+ * The less compressed images are the bigger and the faster ones.
+ * </p>
+ */
+public class CompressionSweepTest {
+
+  /**
+   * The size and the startup time of the images by the compression level
+   * in the order of the sweep.
+   */
+  private final Map<Compression, long[]> results = new LinkedHashMap<>();
+
+  /**
+   * Fill the results of the sweep.
+   */
+  @Before
+  public void setUp() {
+    results.put(Compression.ZIP_0, new long[] {90_000_000L, 100_000_000L});
+    results.put(Compression.ZIP_1, new long[] {60_000_000L, 120_000_000L});
+    results.put(Compression.ZIP_6, new long[] {50_000_000L, 150_000_000L});
+    results.put(Compression.ZIP_9, new long[] {48_000_000L, 180_000_000L});
+  }
+
+  /**
+   * Without the budget the fastest level is selected.
+   */
+  @Test
+  public void testNoBudget() {
+    assertEquals("fastest", Compression.ZIP_0,
+        CompressionSweep.selectFastestLevel(results, 0L));
+  }
+
+  /**
+   * The fastest level of the images within the budget is selected,
+   * the size equal to the budget meets it.
+   */
+  @Test
+  public void testBudget() {
+    assertEquals("budget 64M", Compression.ZIP_1,
+        CompressionSweep.selectFastestLevel(results, 64_000_000L));
+    assertEquals("budget 50M", Compression.ZIP_6,
+        CompressionSweep.selectFastestLevel(results, 50_000_000L));
+  }
+
+  /**
+   * If no level meets the budget the smallest image is the fallback.
+   */
+  @Test
+  public void testBudgetNotMet() {
+    assertNull("fastest", CompressionSweep.selectFastestLevel(results,
+        40_000_000L));
+    assertEquals("smallest", Compression.ZIP_9,
+        CompressionSweep.selectSmallestLevel(results));
+  }
+
+  /**
+   * The first level of the sweep wins the tie.
+   */
+  @Test
+  public void testTie() {
+    results.put(Compression.ZIP_6, new long[] {48_000_000L, 120_000_000L});
+    assertEquals("fastest", Compression.ZIP_1,
+        CompressionSweep.selectFastestLevel(results, 64_000_000L));
+    assertEquals("smallest", Compression.ZIP_6,
+        CompressionSweep.selectSmallestLevel(results));
+  }
+
+  /**
+   * No level is selected from the empty results.
+   */
+  @Test
+  public void testNoResults() {
+    assertNull("fastest", CompressionSweep.selectFastestLevel(Map.of(), 0L));
+    assertNull("smallest", CompressionSweep.selectSmallestLevel(Map.of()));
+  }
+
+}
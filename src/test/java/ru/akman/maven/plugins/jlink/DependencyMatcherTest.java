@@ -0,0 +1,294 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.junit.Test;
+
+/**
+ * DependencyMatcher Test Class.
+ *
+ * <p>
+ * The results of the matcher are compared with the reference logic,
+ * i.e. the patterns are compiled and matched one by one for every
+ * dependency.
+ * </p>
+ */
+public class DependencyMatcherTest {
+
+  /**
+   * The dependency files.
+   */
+  private static final List<File> FILES = List.of(
+      new File("/repo/org/foo/foo-core/1.0/foo-core-1.0.jar"),
+      new File("/repo/org/foo/foo-api/1.0/foo-api-1.0.jar"),
+      new File("/repo/com/bar/bar/2.1/bar-2.1.jar"),
+      new File("/repo/com/baz/baz/3.0/baz-3.0.jar"),
+      new File("/project/target/classes"));
+
+  /**
+   * The module names of the dependency files, the empty name means
+   * the dependency without the module descriptor.
+   */
+  private static final List<String> NAMES = List.of(
+      "org.foo.core", "org.foo.api", "com.bar", "", "com.example.app");
+
+  /**
+   * No include and exclude patterns, all dependencies are included.
+   */
+  @Test
+  public void testEmptyPatterns() {
+    assertSameAsReference(List.of(), List.of(), List.of(), List.of());
+    assertSameAsReference(null, null, null, null);
+  }
+
+  /**
+   * Only the file patterns are specified.
+   */
+  @Test
+  public void testPathOnlyPatterns() {
+    assertSameAsReference(List.of("glob:**/foo-*.jar"), List.of(),
+        List.of("regex:.*-api-.*"), List.of());
+    assertSameAsReference(List.of(), List.of(),
+        List.of("glob:**/bar-*.jar", "glob:**/classes"), List.of());
+  }
+
+  /**
+   * Only the module name patterns are specified.
+   */
+  @Test
+  public void testNameOnlyPatterns() {
+    assertSameAsReference(List.of(), List.of("org\\.foo\\..*", "com\\..*"),
+        List.of(), List.of("com\\.example\\..*"));
+    assertSameAsReference(List.of(), List.of(),
+        List.of(), List.of(".*\\.api", "com\\.bar"));
+  }
+
+  /**
+   * The file and the module name patterns are specified together.
+   */
+  @Test
+  public void testPathAndNamePatterns() {
+    assertSameAsReference(List.of("glob:**/baz-*.jar"),
+        List.of("org\\.foo\\..*"), List.of("glob:**/*-api-*.jar"),
+        List.of("org\\.foo\\.core"));
+  }
+
+  /**
+   * The dependency without the module descriptor is matched
+   * by the empty name.
+   */
+  @Test
+  public void testDependencyWithoutDescriptor() {
+    assertSameAsReference(List.of(), List.of("", "com\\.bar"),
+        List.of(), List.of());
+    assertSameAsReference(List.of(), List.of(".*"),
+        List.of(), List.of("^$"));
+    assertSameAsReference(List.of(), List.of(".+", "x"),
+        List.of(), List.of());
+  }
+
+  /**
+   * The patterns with the inline flags are matched one by one.
+   */
+  @Test
+  public void testInlineFlags() {
+    assertSameAsReference(List.of(), List.of("(?i)ORG\\.FOO\\.CORE", "com"),
+        List.of(), List.of());
+    assertSameAsReference(List.of(), List.of("COM\\.(?i:BAR)", "org.*"),
+        List.of(), List.of("(?-i)ORG.*", "(?x) org \\. foo \\. api"));
+    assertEquals("inline flags", 2, DependencyMatcher.compileNamePatterns(
+        List.of("(?i)ORG\\.FOO\\.CORE", "com")).size());
+    assertEquals("scoped inline flags", 2,
+        DependencyMatcher.compileNamePatterns(
+            List.of("com\\.(?i:BAR)", "org")).size());
+    assertEquals("non-capturing groups", 1,
+        DependencyMatcher.compileNamePatterns(
+            List.of("(?:org)\\..*", "(?<name>com)\\..*")).size());
+  }
+
+  /**
+   * The patterns with the back references are matched one by one.
+   */
+  @Test
+  public void testBackReferences() {
+    assertSameAsReference(List.of(), List.of("(c)om\\.ba\\1?r", "org.*"),
+        List.of(), List.of("(?<p>org)\\.foo\\.\\k<p>?api"));
+    assertEquals("back references", 2, DependencyMatcher.compileNamePatterns(
+        List.of("(c)om\\.\\1", "org")).size());
+  }
+
+  /**
+   * The invalid module name pattern is rejected.
+   */
+  @Test(expected = PatternSyntaxException.class)
+  public void testInvalidNamePattern() {
+    final DependencySet depSet = new DependencySet();
+    depSet.setIncludeNames(List.of("org.foo", "com.(bar"));
+    new DependencyMatcher(depSet);
+  }
+
+  /**
+   * The invalid file pattern is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPathPattern() {
+    final DependencySet depSet = new DependencySet();
+    depSet.setExcludes(List.of("**/*.jar"));
+    new DependencyMatcher(depSet);
+  }
+
+  /**
+   * The memoized results are the same as the computed ones.
+   */
+  @Test
+  public void testMemoizedResults() {
+    final DependencySet depSet = new DependencySet();
+    depSet.setIncludeNames(List.of("org\\.foo\\..*"));
+    final DependencyMatcher matcher = new DependencyMatcher(depSet);
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < FILES.size(); i++) {
+        assertEquals(FILES.get(i).toString(),
+            referenceMatches(depSet, FILES.get(i), NAMES.get(i)),
+            matcher.matches(FILES.get(i), NAMES.get(i)));
+      }
+    }
+  }
+
+  /**
+   * Check that the matcher accepts the same dependencies as
+   * the reference logic.
+   *
+   * @param includes the include file patterns
+   * @param includenames the include module name patterns
+   * @param excludes the exclude file patterns
+   * @param excludenames the exclude module name patterns
+   */
+  private static void assertSameAsReference(final List<String> includes,
+      final List<String> includenames, final List<String> excludes,
+      final List<String> excludenames) {
+    final DependencySet depSet = new DependencySet();
+    depSet.setIncludes(includes);
+    depSet.setIncludeNames(includenames);
+    depSet.setExcludes(excludes);
+    depSet.setExcludeNames(excludenames);
+    final DependencyMatcher matcher = new DependencyMatcher(depSet);
+    for (int i = 0; i < FILES.size(); i++) {
+      assertEquals(FILES.get(i) + " [" + NAMES.get(i) + "]",
+          referenceMatches(depSet, FILES.get(i), NAMES.get(i)),
+          matcher.matches(FILES.get(i), NAMES.get(i)));
+    }
+  }
+
+  /**
+   * The reference logic: the dependency matches the include patterns
+   * and doesn't match the exclude patterns.
+   *
+   * @param depSet the dependencyset
+   * @param file the dependency file
+   * @param name the dependency module name
+   *
+   * @return will the dependency be accepted
+   */
+  private static boolean referenceMatches(final DependencySet depSet,
+      final File file, final String name) {
+    return matchesIncludes(depSet, file, name)
+        && !matchesExcludes(depSet, file, name);
+  }
+
+  /**
+   * Checks whether the dependency matches the include patterns.
+   *
+   * @param depSet the dependencyset
+   * @param file the dependency file
+   * @param name the dependency module name
+   *
+   * @return should the dependency be included
+   */
+  private static boolean matchesIncludes(final DependencySet depSet,
+      final File file, final String name) {
+    final List<String> includes = depSet.getIncludes();
+    final List<String> includenames = depSet.getIncludeNames();
+    if (includenames == null || includenames.isEmpty()) {
+      return includes == null || includes.isEmpty()
+          || pathMatches(includes, file.toPath());
+    }
+    return nameMatches(includenames, name)
+        || includes != null && pathMatches(includes, file.toPath());
+  }
+
+  /**
+   * Checks whether the dependency matches the exclude patterns.
+   *
+   * @param depSet the dependencyset
+   * @param file the dependency file
+   * @param name the dependency module name
+   *
+   * @return should the dependency be excluded
+   */
+  private static boolean matchesExcludes(final DependencySet depSet,
+      final File file, final String name) {
+    final List<String> excludes = depSet.getExcludes();
+    final List<String> excludenames = depSet.getExcludeNames();
+    return excludes != null && pathMatches(excludes, file.toPath())
+        || excludenames != null && nameMatches(excludenames, name);
+  }
+
+  /**
+   * Checks if the path matches at least one of the patterns.
+   *
+   * @param patterns the list of patterns
+   * @param path the file path
+   *
+   * @return true if the path matches at least one of the patterns
+   */
+  private static boolean pathMatches(final List<String> patterns,
+      final Path path) {
+    for (final String pattern : patterns) {
+      if (FileSystems.getDefault().getPathMatcher(pattern).matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the name matches at least one of the patterns.
+   *
+   * @param patterns the list of patterns
+   * @param name the name
+   *
+   * @return true if the name matches at least one of the patterns
+   */
+  private static boolean nameMatches(final List<String> patterns,
+      final String name) {
+    for (final String pattern : patterns) {
+      if (Pattern.compile(pattern).matcher(name).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
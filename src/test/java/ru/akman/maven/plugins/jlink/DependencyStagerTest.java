@@ -0,0 +1,325 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * DependencyStager Test Class.
+ */
+public class DependencyStagerTest {
+
+  /**
+   * Number of the dependencies.
+   */
+  private static final int COUNT = 16;
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The dependency files.
+   */
+  private List<File> files;
+
+  /**
+   * The staging directory.
+   */
+  private Path dir;
+
+  /**
+   * Create the dependency files.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    final File repo = folder.newFolder("repo");
+    files = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      final File file = new File(repo, "lib-" + i + "-1.0.jar");
+      Files.write(file.toPath(), file.getName().getBytes(
+          StandardCharsets.UTF_8));
+      files.add(file);
+    }
+    dir = folder.getRoot().toPath().resolve("target").resolve("jlink-deps");
+  }
+
+  /**
+   * All dependencies are copied into the staging directory.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testCopy() throws Exception {
+    final DependencyStager.Result result =
+        new DependencyStager(1, false, StagingMode.COPY).stage(files, dir);
+    assertEquals("copied", COUNT, result.getCopied());
+    assertEquals("linked", 0, result.getLinked());
+    assertEquals("skipped", 0, result.getSkipped());
+    assertEquals("bytes", totalSize(), result.getBytes());
+    assertStaged();
+    for (final File file : files) {
+      final Path target = dir.resolve(file.getName());
+      assertFalse("same file", Files.isSameFile(file.toPath(), target));
+      assertEquals("mtime",
+          Files.getLastModifiedTime(file.toPath()).toMillis(),
+          Files.getLastModifiedTime(target).toMillis());
+    }
+  }
+
+  /**
+   * The unchanged dependencies are skipped, the changed ones are copied
+   * again and the orphaned ones are removed.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testIncremental() throws Exception {
+    final DependencyStager stager =
+        new DependencyStager(2, false, StagingMode.COPY);
+    stager.stage(files, dir);
+    final File changed = files.get(0);
+    Files.write(changed.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+    final File removed = files.remove(files.size() - 1);
+    final DependencyStager.Result result = stager.stage(files, dir);
+    assertEquals("copied", 1, result.getCopied());
+    assertEquals("skipped", COUNT - 2, result.getSkipped());
+    assertEquals("removed", 1, result.getRemoved());
+    assertFalse("orphan", Files.exists(dir.resolve(removed.getName())));
+    assertStaged();
+  }
+
+  /**
+   * The dependency with the same size and the changed content but
+   * with the preserved last modified time is detected by the checksum
+   * only.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testChecksum() throws Exception {
+    new DependencyStager(1, false, StagingMode.COPY).stage(files, dir);
+    final Path source = files.get(0).toPath();
+    final FileTime mtime = Files.getLastModifiedTime(source);
+    final byte[] content = Files.readAllBytes(source);
+    content[0] = (byte) (content[0] + 1);
+    Files.write(source, content);
+    Files.setLastModifiedTime(source, mtime);
+    assertEquals("timestamps", 0,
+        new DependencyStager(1, false, StagingMode.COPY)
+            .stage(files, dir).getCopied());
+    assertEquals("checksum", 1,
+        new DependencyStager(1, true, StagingMode.COPY)
+            .stage(files, dir).getCopied());
+    assertStaged();
+  }
+
+  /**
+   * The result doesn't depend on the number of threads, the invalid
+   * number of threads means a single thread.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testThreads() throws Exception {
+    for (final int threads : new int[] {0, 1, 4, COUNT * 2}) {
+      final Path target = dir.resolveSibling("jlink-deps-" + threads);
+      final DependencyStager.Result result =
+          new DependencyStager(threads, false, StagingMode.COPY)
+              .stage(files, target);
+      assertEquals("copied [" + threads + "]", COUNT, result.getCopied());
+      assertEquals("bytes [" + threads + "]", totalSize(), result.getBytes());
+      for (final File file : files) {
+        assertArrayEquals(file.getName() + " [" + threads + "]",
+            Files.readAllBytes(file.toPath()),
+            Files.readAllBytes(target.resolve(file.getName())));
+      }
+    }
+  }
+
+  /**
+   * The directories and the missing files are not staged.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testOnlyFilesAreStaged() throws Exception {
+    files.add(folder.newFolder("classes"));
+    files.add(new File(folder.getRoot(), "missing.jar"));
+    final DependencyStager.Result result =
+        new DependencyStager(1, false, StagingMode.COPY).stage(files, dir);
+    assertEquals("copied", COUNT, result.getCopied());
+    assertFalse("directory", Files.exists(dir.resolve("classes")));
+    assertFalse("missing", Files.exists(dir.resolve("missing.jar")));
+  }
+
+  /**
+   * The hard links are created and are up to date in the next build.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testHardLink() throws Exception {
+    final DependencyStager stager =
+        new DependencyStager(4, false, StagingMode.HARDLINK);
+    final DependencyStager.Result result = stager.stage(files, dir);
+    assertEquals("mode", StagingMode.HARDLINK, stager.getMode());
+    assertEquals("linked", COUNT, result.getLinked());
+    assertEquals("copied", 0, result.getCopied());
+    assertEquals("bytes", 0L, result.getBytes());
+    assertStaged();
+    for (final File file : files) {
+      assertTrue(file.getName(),
+          Files.isSameFile(file.toPath(), dir.resolve(file.getName())));
+    }
+    assertEquals("skipped", COUNT, stager.stage(files, dir).getSkipped());
+  }
+
+  /**
+   * The hard links are replaced by copies in the copy mode and the copies
+   * are replaced by hard links in the hard link mode, though the size and
+   * the last modified time of the staged files don't change.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testHardLinkModeChange() throws Exception {
+    assertEquals("linked", COUNT,
+        new DependencyStager(4, false, StagingMode.HARDLINK)
+            .stage(files, dir).getLinked());
+    final DependencyStager.Result copy =
+        new DependencyStager(4, false, StagingMode.COPY).stage(files, dir);
+    assertEquals("copied", COUNT, copy.getCopied());
+    assertEquals("skipped", 0, copy.getSkipped());
+    assertStaged();
+    for (final File file : files) {
+      assertFalse(file.getName(),
+          Files.isSameFile(file.toPath(), dir.resolve(file.getName())));
+    }
+    assertEquals("copies skipped", COUNT,
+        new DependencyStager(4, false, StagingMode.COPY)
+            .stage(files, dir).getSkipped());
+    assertEquals("relinked", COUNT,
+        new DependencyStager(4, false, StagingMode.HARDLINK)
+            .stage(files, dir).getLinked());
+    for (final File file : files) {
+      assertTrue(file.getName(),
+          Files.isSameFile(file.toPath(), dir.resolve(file.getName())));
+    }
+  }
+
+  /**
+   * The symbolic links are created and are replaced by copies
+   * in the copy mode.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testSymbolicLink() throws Exception {
+    final DependencyStager stager =
+        new DependencyStager(4, false, StagingMode.SYMLINK);
+    assertEquals("linked", COUNT, stager.stage(files, dir).getLinked());
+    assertStaged();
+    for (final File file : files) {
+      final Path target = dir.resolve(file.getName());
+      assertTrue(file.getName(), Files.isSymbolicLink(target));
+      assertEquals(file.getName(), file.toPath().toAbsolutePath(),
+          Files.readSymbolicLink(target));
+    }
+    assertEquals("skipped", COUNT, stager.stage(files, dir).getSkipped());
+    assertEquals("copied", COUNT,
+        new DependencyStager(4, false, StagingMode.COPY)
+            .stage(files, dir).getCopied());
+    for (final File file : files) {
+      assertFalse(file.getName(),
+          Files.isSymbolicLink(dir.resolve(file.getName())));
+    }
+  }
+
+  /**
+   * The copy-on-write clones are created if the file system supports
+   * them, otherwise the stager falls back to copy.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testReflinkFallback() throws Exception {
+    final DependencyStager stager =
+        new DependencyStager(4, false, StagingMode.REFLINK);
+    final DependencyStager.Result result = stager.stage(files, dir);
+    assertEquals("staged", COUNT, result.getLinked() + result.getCopied());
+    if (result.getCopied() > 0) {
+      assertEquals("mode", StagingMode.COPY, stager.getMode());
+    }
+    assertStaged();
+    for (final File file : files) {
+      assertFalse(file.getName(),
+          Files.isSameFile(file.toPath(), dir.resolve(file.getName())));
+    }
+  }
+
+  /**
+   * Check that the staging directory contains exactly the dependencies.
+   *
+   * @throws Exception if any errors occurred
+   */
+  private void assertStaged() throws Exception {
+    try (Stream<Path> stream = Files.list(dir)) {
+      assertEquals("staged", files.size(), stream.count());
+    }
+    for (final File file : files) {
+      final Path target = dir.resolve(file.getName());
+      assertTrue(file.getName(), Files.exists(target));
+      assertArrayEquals(file.getName(), Files.readAllBytes(file.toPath()),
+          Files.readAllBytes(target));
+    }
+  }
+
+  /**
+   * Get the total size of the dependencies.
+   *
+   * @return the total size of the dependencies
+   */
+  private long totalSize() {
+    long size = 0L;
+    for (final File file : files) {
+      size += file.length();
+    }
+    return size;
+  }
+
+}
@@ -0,0 +1,261 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor.JavaRequires.JavaModifier;
+import org.codehaus.plexus.languages.java.jpms.ModuleNameSource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * DescriptorIndex Test Class.
+ */
+public class DescriptorIndexTest {
+
+  /**
+   * The Java release of the tool.
+   */
+  private static final int RELEASE = 17;
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The index file.
+   */
+  private Path file;
+
+  /**
+   * The jar of the module.
+   */
+  private Path moduleJar;
+
+  /**
+   * The jar of the automatic module.
+   */
+  private Path automaticJar;
+
+  /**
+   * The jar which is not a module.
+   */
+  private Path plainJar;
+
+  /**
+   * The module descriptor.
+   */
+  private JavaModuleDescriptor module;
+
+  /**
+   * Create the jar files and the module descriptor.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    file = folder.getRoot().toPath().resolve("index")
+        .resolve("descriptors.properties");
+    moduleJar = createJar("lib-a-1.0.jar");
+    automaticJar = createJar("lib-b-1.0.jar");
+    plainJar = createJar("lib-c-1.0.jar");
+    module = JavaModuleDescriptor.newModule("lib.a")
+        .requires("java.logging")
+        .requires(Set.of(JavaModifier.STATIC), "java.compiler")
+        .requires(Set.of(JavaModifier.TRANSITIVE), "lib.b")
+        .exports("lib.a.api")
+        .exports("lib.a.spi", Set.of("lib.b", "lib.c"))
+        .uses("lib.a.spi.Service")
+        .provides("lib.a.spi.Service", List.of("lib.a.impl.First",
+            "lib.a.impl.Second"))
+        .build();
+  }
+
+  /**
+   * The stored entries are restored by the next build.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testStoreAndLoad() throws Exception {
+    final DescriptorIndex index = new DescriptorIndex(file);
+    index.load();
+    index.put(moduleJar, RELEASE, module, ModuleNameSource.MODULEDESCRIPTOR);
+    index.put(automaticJar, RELEASE,
+        JavaModuleDescriptor.newAutomaticModule("lib.b").build(),
+        ModuleNameSource.MANIFEST);
+    index.put(plainJar, RELEASE, null, null);
+    index.store();
+
+    final DescriptorIndex loaded = new DescriptorIndex(file);
+    loaded.load();
+    final DescriptorIndex.Entry entry = loaded.get(moduleJar, RELEASE);
+    assertNotNull("module", entry);
+    assertEquals("module source", ModuleNameSource.MODULEDESCRIPTOR,
+        entry.getSource());
+    final JavaModuleDescriptor descriptor = entry.getDescriptor();
+    assertEquals("name", module.name(), descriptor.name());
+    assertFalse("automatic", descriptor.isAutomatic());
+    assertEquals("requires", module.requires(), descriptor.requires());
+    assertEquals("exports", module.exports(), descriptor.exports());
+    assertEquals("uses", module.uses(), descriptor.uses());
+    assertEquals("provides", module.provides(), descriptor.provides());
+
+    final DescriptorIndex.Entry automatic = loaded.get(automaticJar, RELEASE);
+    assertNotNull("automatic module", automatic);
+    assertEquals("automatic source", ModuleNameSource.MANIFEST,
+        automatic.getSource());
+    assertEquals("automatic name", "lib.b",
+        automatic.getDescriptor().name());
+    assertTrue("automatic", automatic.getDescriptor().isAutomatic());
+
+    final DescriptorIndex.Entry plain = loaded.get(plainJar, RELEASE);
+    assertNotNull("plain", plain);
+    assertNull("plain descriptor", plain.getDescriptor());
+    assertNull("plain source", plain.getSource());
+  }
+
+  /**
+   * The entry of the changed jar file is stale.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testChangedJarIsStale() throws Exception {
+    final DescriptorIndex index = new DescriptorIndex(file);
+    index.load();
+    index.put(moduleJar, RELEASE, module, ModuleNameSource.MODULEDESCRIPTOR);
+    index.store();
+    Files.setLastModifiedTime(moduleJar, FileTime.fromMillis(
+        Files.getLastModifiedTime(moduleJar).toMillis() + 1_000L));
+    final DescriptorIndex loaded = new DescriptorIndex(file);
+    loaded.load();
+    assertNull("stale", loaded.get(moduleJar, RELEASE));
+  }
+
+  /**
+   * The entry of the other Java release is stale.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testOtherReleaseIsStale() throws Exception {
+    final DescriptorIndex index = new DescriptorIndex(file);
+    index.load();
+    index.put(moduleJar, RELEASE, module, ModuleNameSource.MODULEDESCRIPTOR);
+    index.store();
+    final DescriptorIndex loaded = new DescriptorIndex(file);
+    loaded.load();
+    assertNotNull("same release", loaded.get(moduleJar, RELEASE));
+    assertNull("other release", loaded.get(moduleJar, RELEASE + 4));
+  }
+
+  /**
+   * The entries of the missing jar files are removed.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMissingJarIsPruned() throws Exception {
+    final DescriptorIndex index = new DescriptorIndex(file);
+    index.load();
+    index.put(moduleJar, RELEASE, module, ModuleNameSource.MODULEDESCRIPTOR);
+    index.put(plainJar, RELEASE, null, null);
+    index.store();
+    Files.delete(moduleJar);
+
+    final DescriptorIndex next = new DescriptorIndex(file);
+    next.load();
+    next.put(automaticJar, RELEASE,
+        JavaModuleDescriptor.newAutomaticModule("lib.b").build(),
+        ModuleNameSource.MANIFEST);
+    next.store();
+
+    final String content =
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    assertFalse("pruned", content.contains("lib-a-1.0.jar"));
+    assertTrue("kept", content.contains("lib-c-1.0.jar"));
+    assertTrue("added", content.contains("lib-b-1.0.jar"));
+  }
+
+  /**
+   * The index file is not written if the index is not modified.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testUnmodifiedIndexIsNotStored() throws Exception {
+    final DescriptorIndex index = new DescriptorIndex(file);
+    index.load();
+    index.store();
+    assertFalse("stored", Files.exists(file));
+  }
+
+  /**
+   * The concurrent builds don't lose the entries of each other.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testConcurrentBuildsAreMerged() throws Exception {
+    final DescriptorIndex first = new DescriptorIndex(file);
+    final DescriptorIndex second = new DescriptorIndex(file);
+    first.load();
+    second.load();
+    first.put(moduleJar, RELEASE, module, ModuleNameSource.MODULEDESCRIPTOR);
+    second.put(plainJar, RELEASE, null, null);
+    first.store();
+    second.store();
+
+    final DescriptorIndex loaded = new DescriptorIndex(file);
+    loaded.load();
+    assertNotNull("first", loaded.get(moduleJar, RELEASE));
+    assertNotNull("second", loaded.get(plainJar, RELEASE));
+  }
+
+  /**
+   * Create the jar file.
+   *
+   * @param name the name of the jar file
+   *
+   * @return the jar file
+   *
+   * @throws Exception if any errors occurred
+   */
+  private Path createJar(final String name) throws Exception {
+    final Path jar = folder.getRoot().toPath().resolve(name);
+    Files.write(jar, name.getBytes(StandardCharsets.UTF_8));
+    return jar;
+  }
+
+}
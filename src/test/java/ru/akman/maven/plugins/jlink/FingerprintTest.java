@@ -0,0 +1,199 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Fingerprint Test Class.
+ */
+public class FingerprintTest {
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The input file.
+   */
+  private File file;
+
+  /**
+   * The input directory.
+   */
+  private File dir;
+
+  /**
+   * Create the input file and the input directory.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    file = folder.newFile("module-info.class");
+    write(file.toPath(), "module-info");
+    dir = folder.newFolder("classes");
+    write(dir.toPath().resolve("a").resolve("A.class"), "A");
+    write(dir.toPath().resolve("b").resolve("B.class"), "B");
+  }
+
+  /**
+   * The same inputs give the same fingerprint.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testSameInputs() throws Exception {
+    assertEquals("fingerprint", fingerprint(List.of("--strip-debug")),
+        fingerprint(List.of("--strip-debug")));
+  }
+
+  /**
+   * The changed option changes the fingerprint.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testChangedOption() throws Exception {
+    assertNotEquals("fingerprint", fingerprint(List.of("--strip-debug")),
+        fingerprint(List.of("--no-header-files")));
+    assertNotEquals("null value",
+        new Fingerprint().add("launcher", "app").toHex(),
+        new Fingerprint().add("launcher", (String) null).toHex());
+  }
+
+  /**
+   * The order of the options is significant.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testChangedOrder() throws Exception {
+    assertNotEquals("fingerprint",
+        fingerprint(List.of("--strip-debug", "--no-man-pages")),
+        fingerprint(List.of("--no-man-pages", "--strip-debug")));
+    assertNotEquals("boundaries",
+        new Fingerprint().add("options", List.of("ab", "c")).toHex(),
+        new Fingerprint().add("options", List.of("a", "bc")).toHex());
+  }
+
+  /**
+   * The changed content of the file changes the fingerprint.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testChangedFile() throws Exception {
+    final String before = fingerprint(List.of());
+    write(file.toPath(), "module-info changed");
+    assertNotEquals("fingerprint", before, fingerprint(List.of()));
+  }
+
+  /**
+   * The changed content or the renamed file of the directory changes
+   * the fingerprint.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testChangedDirectory() throws Exception {
+    final String before = fingerprint(List.of());
+    write(dir.toPath().resolve("a").resolve("A.class"), "A changed");
+    final String changed = fingerprint(List.of());
+    assertNotEquals("content", before, changed);
+    Files.move(dir.toPath().resolve("b").resolve("B.class"),
+        dir.toPath().resolve("b").resolve("C.class"));
+    assertNotEquals("name", changed, fingerprint(List.of()));
+  }
+
+  /**
+   * The missing file differs from the existing one and from the empty one.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMissingFile() throws Exception {
+    final File missing = new File(folder.getRoot(), "missing");
+    final File empty = folder.newFile("empty");
+    final String missingHex =
+        new Fingerprint().addFile("file", missing).toHex();
+    assertEquals("null", missingHex,
+        new Fingerprint().addFile("file", null).toHex());
+    assertNotEquals("empty", missingHex,
+        new Fingerprint().addFile("file", empty).toHex());
+  }
+
+  /**
+   * The digest of the file is computed once per fingerprint.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testFileDigestIsMemoized() throws Exception {
+    final Fingerprint fingerprint = new Fingerprint();
+    final String digest = fingerprint.getFileDigest(file.toPath());
+    write(file.toPath(), "module-info changed");
+    assertEquals("memoized", digest, fingerprint.getFileDigest(file.toPath()));
+    assertNotEquals("recomputed", digest,
+        new Fingerprint().getFileDigest(file.toPath()));
+  }
+
+  /**
+   * Compute the fingerprint of the options and the inputs.
+   *
+   * @param options the options
+   *
+   * @return the hexadecimal string representation of the fingerprint
+   *
+   * @throws Exception if any errors occurred
+   */
+  private String fingerprint(final List<String> options) throws Exception {
+    return new Fingerprint()
+        .add("options", options)
+        .addFile("descriptor", file)
+        .addFile("classes", dir)
+        .toHex();
+  }
+
+  /**
+   * Write the content to the file, creating the parent directories.
+   *
+   * @param path the file
+   * @param content the content
+   *
+   * @throws Exception if any errors occurred
+   */
+  private static void write(final Path path, final String content)
+      throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
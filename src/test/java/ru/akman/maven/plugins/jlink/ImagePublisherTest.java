@@ -0,0 +1,227 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ImagePublisher Test Class.
+ */
+public class ImagePublisherTest {
+
+  /**
+   * Timeout of the background deletion in milliseconds.
+   */
+  private static final long TIMEOUT = 10_000L;
+
+  /**
+   * Poll interval of the background deletion in milliseconds.
+   */
+  private static final long INTERVAL = 50L;
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The parent of the output directory.
+   */
+  private Path parent;
+
+  /**
+   * The output directory.
+   */
+  private Path output;
+
+  /**
+   * Create the parent of the output directory.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    parent = folder.getRoot().toPath().resolve("target");
+    output = parent.resolve("jlink").resolve("image");
+  }
+
+  /**
+   * The staging directory is next to the output directory.
+   */
+  @Test
+  public void testStagingDir() {
+    final Path staging = new ImagePublisher(output).getStagingDir();
+    assertEquals("parent", output.getParent(), staging.getParent());
+    assertEquals("name", ".image.staging", staging.getFileName().toString());
+  }
+
+  /**
+   * The first image is moved into the output directory.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testPublish() throws Exception {
+    final ImagePublisher publisher = new ImagePublisher(output);
+    publisher.prepare();
+    createImage(publisher.getStagingDir(), "first");
+    publisher.publish();
+    assertEquals("release", "first", readRelease(output));
+    assertFalse("staging", Files.exists(publisher.getStagingDir()));
+    assertEquals("siblings", List.of("image"), listSiblings());
+  }
+
+  /**
+   * The next image replaces the previous one, which is deleted
+   * in the background.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testReplace() throws Exception {
+    final ImagePublisher publisher = new ImagePublisher(output);
+    publisher.prepare();
+    createImage(publisher.getStagingDir(), "first");
+    publisher.publish();
+    publisher.prepare();
+    createImage(publisher.getStagingDir(), "second");
+    publisher.publish();
+    assertEquals("release", "second", readRelease(output));
+    awaitSiblings(List.of("image"));
+  }
+
+  /**
+   * The staging directory and the previous images left by
+   * the interrupted builds are deleted.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testPrepareCleansUp() throws Exception {
+    final ImagePublisher publisher = new ImagePublisher(output);
+    createImage(output, "current");
+    createImage(publisher.getStagingDir(), "partial");
+    createImage(output.resolveSibling(".image.old-1"), "stale");
+    createImage(output.resolveSibling(".image.old-2"), "stale");
+    createImage(output.resolveSibling(".other.old-1"), "other");
+    publisher.prepare();
+    assertFalse("staging", Files.exists(publisher.getStagingDir()));
+    assertEquals("release", "current", readRelease(output));
+    awaitSiblings(List.of(".other.old-1", "image"));
+  }
+
+  /**
+   * The previous image is restored if the image can not be published.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testFailedPublishKeepsImage() throws Exception {
+    final ImagePublisher publisher = new ImagePublisher(output);
+    createImage(output, "current");
+    publisher.prepare();
+    try {
+      publisher.publish();
+      fail("published without the staging directory");
+    } catch (IOException ex) {
+      // expected
+    }
+    assertEquals("release", "current", readRelease(output));
+    assertEquals("siblings", List.of("image"), listSiblings());
+  }
+
+  /**
+   * Create the image directory.
+   *
+   * @param dir the image directory
+   * @param release the content of the release file
+   *
+   * @throws Exception if any errors occurred
+   */
+  private static void createImage(final Path dir, final String release)
+      throws Exception {
+    Files.createDirectories(dir.resolve("bin"));
+    Files.write(dir.resolve("bin").resolve("java"),
+        new byte[] {1, 2, 3});
+    Files.write(dir.resolve("release"),
+        release.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Read the release file of the image.
+   *
+   * @param dir the image directory
+   *
+   * @return the content of the release file
+   *
+   * @throws Exception if any errors occurred
+   */
+  private static String readRelease(final Path dir) throws Exception {
+    return new String(Files.readAllBytes(dir.resolve("release")),
+        StandardCharsets.UTF_8);
+  }
+
+  /**
+   * List the names of the output directory and its siblings.
+   *
+   * @return the sorted names
+   *
+   * @throws Exception if any errors occurred
+   */
+  private List<String> listSiblings() throws Exception {
+    try (Stream<Path> stream = Files.list(output.getParent())) {
+      return stream
+          .map(path -> path.getFileName().toString())
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Wait until the background deletion leaves the expected siblings.
+   *
+   * @param expected the expected sorted names
+   *
+   * @throws Exception if any errors occurred
+   */
+  private void awaitSiblings(final List<String> expected) throws Exception {
+    final long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (!expected.equals(listSiblings())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(INTERVAL);
+    }
+    assertEquals("siblings", expected, listSiblings());
+    assertTrue("output", Files.isDirectory(output));
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.spi.ToolProvider;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ImageSizeReport Test Class.
+ *
+ * <p>
+ * The report is made for the image linked from the modules java.base
+ * and java.logging of the current JDK.
+ * </p>
+ */
+public class ImageSizeReportTest {
+
+  /**
+   * The jimage file of the image relative to the image directory.
+   */
+  private static final String JIMAGE = "lib/modules";
+
+  /**
+   * Temporary folder.
+   */
+  @ClassRule
+  public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+  /**
+   * The image directory.
+   */
+  private static Path image;
+
+  /**
+   * The size report of the image.
+   */
+  private static ImageSizeReport report;
+
+  /**
+   * Link the image and analyze it.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    final ToolProvider jlink = ToolProvider.findFirst("jlink").orElse(null);
+    assumeTrue(jlink != null);
+    image = FOLDER.getRoot().toPath().resolve("image");
+    final int exitCode = jlink.run(System.out, System.err,
+        "--add-modules", "java.logging", "--strip-debug", "--no-man-pages",
+        "--no-header-files", "--output", image.toString());
+    assertEquals("jlink exit code", 0, exitCode);
+    report = ImageSizeReport.analyze(image);
+  }
+
+  /**
+   * The total size is the size of the image on disk and the sum
+   * of the sizes of the top level entries.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testTotalIsSumOfDirectories() throws Exception {
+    final Map<String, Long> directories = report.getDirectories();
+    assertTrue("jimage", directories.containsKey(JIMAGE));
+    assertTrue("bin", directories.containsKey("bin"));
+    assertEquals("total", PluginUtils.getDirectorySize(image),
+        report.getTotal());
+    assertEquals("sum of directories", report.getTotal(),
+        directories.values().stream().mapToLong(Long::longValue).sum());
+  }
+
+  /**
+   * The stored size of every module is the sum of the stored sizes
+   * of its packages and the modules fit into the jimage file.
+   */
+  @Test
+  public void testModuleIsSumOfPackages() {
+    long modules = 0L;
+    for (final String module : List.of("java.base", "java.logging")) {
+      final long size = report.getModuleSize(module);
+      assertTrue(module, size > 0L);
+      assertEquals(module + " packages", size,
+          report.getPackageSizes(module).values().stream()
+              .mapToLong(Long::longValue).sum());
+      modules += size;
+    }
+    assertTrue("java.base packages", report.getPackageSizes("java.base")
+        .containsKey("java.lang"));
+    assertTrue("jimage", modules <= report.getDirectories().get(JIMAGE));
+  }
+
+  /**
+   * The modules which are not linked have no size.
+   */
+  @Test
+  public void testModuleNotLinked() {
+    assertEquals("size", -1L, report.getModuleSize("java.sql"));
+    assertTrue("packages", report.getPackageSizes("java.sql").isEmpty());
+  }
+
+  /**
+   * The modules exceeding their budgets are reported, the modules within
+   * their budgets and the modules which are not linked are not.
+   */
+  @Test
+  public void testBudgetViolations() {
+    final long base = report.getModuleSize("java.base");
+    final long logging = report.getModuleSize("java.logging");
+    assertEquals("violations", List.of(
+        "java.base (" + base + " > 1024 bytes)"),
+        report.getBudgetViolations(Map.of(
+            "java.base", 1024L,
+            "java.logging", logging,
+            "java.sql", 1L)));
+    assertTrue("within budgets", report.getBudgetViolations(Map.of(
+        "java.base", base, "java.logging", logging + 1L)).isEmpty());
+  }
+
+}
@@ -0,0 +1,237 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.spi.ToolProvider;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.akman.maven.plugins.CommandLineBuilder;
+import ru.akman.maven.plugins.CommandLineOption;
+
+/**
+ * JlinkMojo Test Class of the tool executed inside the current JVM.
+ *
+ * <p>
+ * The tool provider of the mojo is replaced by the one which records
+ * its arguments and exits with the specified exit code.
+ * </p>
+ */
+public class JlinkMojoLinkTest {
+
+  /**
+   * The name of the file of the tool options.
+   */
+  private static final String OPTS_FILE = "jlink.opts";
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The recording tool provider.
+   */
+  private RecordingToolProvider provider;
+
+  /**
+   * The mojo.
+   */
+  private JlinkMojo mojo;
+
+  /**
+   * The build directory.
+   */
+  private File buildDir;
+
+  /**
+   * The output directory of the image, its path contains a space.
+   */
+  private File output;
+
+  /**
+   * Create the mojo using the recording tool provider.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    provider = new RecordingToolProvider();
+    mojo = new JlinkMojo() {
+      @Override
+      protected ToolProvider findToolProvider(final String toolName) {
+        return provider;
+      }
+    };
+    buildDir = folder.newFolder("target");
+    output = new File(buildDir, "my image");
+    ReflectionUtils.setVariableValueInObject(mojo, "buildDir", buildDir);
+    ReflectionUtils.setVariableValueInObject(mojo, "toolExecutable",
+        new File(folder.getRoot(), "bin/jlink"));
+  }
+
+  /**
+   * The tool gets the expanded options as separate arguments instead of
+   * the file of the options, the arguments are not quoted.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testArgumentsAreExpanded() throws Exception {
+    final CommandLineBuilder builder = newCommandLine();
+    mojo.link(builder, builder.buildOptionList());
+    assertEquals("arguments", List.of(
+        "--add-modules", "java.base,java.sql",
+        "--output", output.toString(),
+        "--launcher", "app=app/app.Main",
+        "--strip-debug"), provider.arguments);
+    assertFalse("options file", new File(buildDir, OPTS_FILE).exists());
+  }
+
+  /**
+   * The non-zero exit code of the tool fails the execution.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testExitCodeIsReported() throws Exception {
+    provider.exitCode = 3;
+    final CommandLineBuilder builder = newCommandLine();
+    try {
+      mojo.link(builder, builder.buildOptionList());
+      fail("the tool failure is not reported");
+    } catch (MojoExecutionException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().endsWith("exit code: 3"));
+    }
+    assertEquals("runs", 1, provider.runs);
+  }
+
+  /**
+   * The exception thrown by the tool fails the execution.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testExceptionIsReported() throws Exception {
+    provider.failure = new IllegalStateException("broken tool");
+    final CommandLineBuilder builder = newCommandLine();
+    try {
+      mojo.link(builder, builder.buildOptionList());
+      fail("the tool failure is not reported");
+    } catch (MojoExecutionException ex) {
+      assertTrue("cause", ex.getCause() instanceof CommandLineException);
+      assertEquals("tool exception", provider.failure,
+          ex.getCause().getCause());
+    }
+  }
+
+  /**
+   * Create the command line of the tool.
+   *
+   * @return the command line builder
+   */
+  private CommandLineBuilder newCommandLine() {
+    final CommandLineBuilder builder = new CommandLineBuilder();
+    builder.setExecutable("jlink");
+    CommandLineOption opt = builder.createOpt();
+    opt.createArg().setValue("--add-modules");
+    opt.createArg().setValue("java.base,java.sql");
+    opt = builder.createOpt();
+    opt.createArg().setValue("--output");
+    opt.createArg().setFile(output);
+    opt = builder.createOpt();
+    opt.createArg().setValue("--launcher");
+    opt.createArg().setValue("app=app/app.Main");
+    opt = builder.createOpt();
+    opt.createArg().setValue("--strip-debug");
+    return builder;
+  }
+
+  /**
+   * Tool provider recording its arguments.
+   */
+  private static class RecordingToolProvider implements ToolProvider {
+
+    /**
+     * The exit code of the tool.
+     */
+    private int exitCode;
+
+    /**
+     * The exception thrown by the tool or null.
+     */
+    private RuntimeException failure;
+
+    /**
+     * The number of the runs.
+     */
+    private int runs;
+
+    /**
+     * The arguments of the last run.
+     */
+    private List<String> arguments;
+
+    /**
+     * Get the tool name.
+     *
+     * @return the tool name
+     */
+    @Override
+    public String name() {
+      return "jlink";
+    }
+
+    /**
+     * Run the tool.
+     *
+     * @param out the standard output
+     * @param err the standard error
+     * @param args the arguments
+     *
+     * @return the exit code
+     */
+    @Override
+    public int run(final PrintWriter out, final PrintWriter err,
+        final String... args) {
+      runs++;
+      arguments = List.of(args);
+      if (failure != null) {
+        throw failure;
+      }
+      if (exitCode != 0) {
+        err.println("Error: failed with exit code " + exitCode);
+      }
+      return exitCode;
+    }
+
+  }
+
+}
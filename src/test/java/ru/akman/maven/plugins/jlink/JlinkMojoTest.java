@@ -141,6 +141,107 @@ public class JlinkMojoTest {
     );
   }
 
+  /**
+   * Parameter 'toolcache' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasToolCache() throws Exception {
+    final File toolcache =
+        (File) rule.getVariableValueFromObject(mojo, "toolcache");
+    assertEquals("toolcache",
+        TestUtils.getCanonicalPath(toolcache),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "toolcache.properties"))
+    );
+  }
+
+  /**
+   * Parameter 'fork' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasFork() throws Exception {
+    final boolean fork =
+        (boolean) rule.getVariableValueFromObject(mojo, "fork");
+    assertTrue("fork",
+        fork);
+  }
+
+  /**
+   * Parameter 'parallelresolution' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasParallelResolution() throws Exception {
+    final boolean parallelresolution =
+        (boolean) rule.getVariableValueFromObject(mojo, "parallelresolution");
+    assertTrue("parallelresolution",
+        parallelresolution);
+  }
+
+  /**
+   * Parameter 'descriptorindex' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasDescriptorIndex() throws Exception {
+    final File descriptorindex =
+        (File) rule.getVariableValueFromObject(mojo, "descriptorindex");
+    assertEquals("descriptorindex",
+        TestUtils.getCanonicalPath(descriptorindex),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "descriptors.properties"))
+    );
+  }
+
+  /**
+   * Parameter 'incremental' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasIncremental() throws Exception {
+    final boolean incremental =
+        (boolean) rule.getVariableValueFromObject(mojo, "incremental");
+    assertTrue("incremental",
+        incremental);
+  }
+
+  /**
+   * Parameter 'imagecache' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasImageCache() throws Exception {
+    final File imagecache =
+        (File) rule.getVariableValueFromObject(mojo, "imagecache");
+    assertEquals("imagecache",
+        TestUtils.getCanonicalPath(imagecache),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "imagecache"))
+    );
+  }
+
+  /**
+   * Parameter 'imagecachesize' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasImageCacheSize() throws Exception {
+    final String imagecachesize =
+        (String) rule.getVariableValueFromObject(mojo, "imagecachesize");
+    assertEquals("imagecachesize",
+        "512M",
+        imagecachesize);
+  }
+
   /**
    * Parameter 'modsdir' exists and has a value.
    *
@@ -173,6 +274,47 @@ public class JlinkMojoTest {
     );
   }
 
+  /**
+   * Parameter 'stagingthreads' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasStagingThreads() throws Exception {
+    final int stagingthreads =
+        (int) rule.getVariableValueFromObject(mojo, "stagingthreads");
+    assertEquals("stagingthreads",
+        2,
+        stagingthreads);
+  }
+
+  /**
+   * Parameter 'stagingchecksum' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasStagingChecksum() throws Exception {
+    final boolean stagingchecksum =
+        (boolean) rule.getVariableValueFromObject(mojo, "stagingchecksum");
+    assertTrue("stagingchecksum",
+        stagingchecksum);
+  }
+
+  /**
+   * Parameter 'stagingmode' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasStagingMode() throws Exception {
+    final StagingMode stagingmode =
+        (StagingMode) rule.getVariableValueFromObject(mojo, "stagingmode");
+    assertEquals("stagingmode",
+        StagingMode.HARDLINK,
+        stagingmode);
+  }
+
   /**
    * Parameter 'modulepath' exists.
    *
@@ -528,6 +670,19 @@ public class JlinkMojoTest {
     );
   }
 
+  /**
+   * Parameter 'automodules' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasAutoModules() throws Exception {
+    final boolean automodules =
+        (boolean) rule.getVariableValueFromObject(mojo, "automodules");
+    assertTrue("automodules",
+        automodules);
+  }
+
   /**
    * Parameter 'output' exists and has a value.
    *
@@ -652,6 +807,27 @@ public class JlinkMojoTest {
         bindservices);
   }
 
+  /**
+   * Parameter 'servicebindings' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  @SuppressWarnings("unchecked") // unchecked cast
+  public void testMojoHasServiceBindings() throws Exception {
+    final List<ServiceBinding> servicebindings =
+        (List<ServiceBinding>) rule.getVariableValueFromObject(mojo,
+            "servicebindings");
+    assertEquals("servicebindings",
+        servicebindings.size(), 1);
+    final ServiceBinding binding = servicebindings.get(0);
+    assertEquals("servicebindings/servicebinding/service",
+        binding.getService(), "java.nio.file.spi.FileSystemProvider");
+    assertEquals("servicebindings/servicebinding/providers",
+        TestUtils.buildStringFromNames(binding.getProviders()),
+        TestUtils.buildStringFromNames(Arrays.asList("jdk.zipfs")));
+  }
+
   /**
    * Parameter 'launcher' exists and has a value.
    *
@@ -775,6 +951,277 @@ public class JlinkMojoTest {
     );
   }
 
+  /**
+   * Parameter 'training' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTraining() throws Exception {
+    final Training training =
+        (Training) rule.getVariableValueFromObject(mojo, "training");
+    assertNotNull("training",
+        training);
+  }
+
+  /**
+   * Parameter 'training/mainmodule' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTrainingMainModule() throws Exception {
+    final Training training =
+        (Training) rule.getVariableValueFromObject(mojo, "training");
+    assertEquals("training/mainmodule",
+        training.getMainModule(),
+        "trainingModule"
+    );
+  }
+
+  /**
+   * Parameter 'training/mainclass' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTrainingMainClass() throws Exception {
+    final Training training =
+        (Training) rule.getVariableValueFromObject(mojo, "training");
+    assertEquals("training/mainclass",
+        training.getMainClass(),
+        "trainingClass"
+    );
+  }
+
+  /**
+   * Parameter 'training/jvmargs' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTrainingJvmArgs() throws Exception {
+    final Training training =
+        (Training) rule.getVariableValueFromObject(mojo, "training");
+    assertEquals("training/jvmargs",
+        training.getJvmArgs(),
+        "-Xmx256m"
+    );
+  }
+
+  /**
+   * Parameter 'training/args' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTrainingArgs() throws Exception {
+    final Training training =
+        (Training) rule.getVariableValueFromObject(mojo, "training");
+    assertEquals("training/args",
+        training.getArgs(),
+        "--warmup"
+    );
+  }
+
+  /**
+   * Parameter 'appcds' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasAppCds() throws Exception {
+    final boolean appcds =
+        (boolean) rule.getVariableValueFromObject(mojo, "appcds");
+    assertTrue("appcds",
+        appcds);
+  }
+
+  /**
+   * Parameter 'defaultcds' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasDefaultCds() throws Exception {
+    final boolean defaultcds =
+        (boolean) rule.getVariableValueFromObject(mojo, "defaultcds");
+    assertTrue("defaultcds",
+        defaultcds);
+  }
+
+  /**
+   * Parameter 'defaultcdsstrict' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasDefaultCdsStrict() throws Exception {
+    final boolean defaultcdsstrict =
+        (boolean) rule.getVariableValueFromObject(mojo, "defaultcdsstrict");
+    assertFalse("defaultcdsstrict",
+        defaultcdsstrict);
+  }
+
+  /**
+   * Parameter 'aotcache' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasAotCache() throws Exception {
+    final boolean aotcache =
+        (boolean) rule.getVariableValueFromObject(mojo, "aotcache");
+    assertTrue("aotcache",
+        aotcache);
+  }
+
+  /**
+   * Parameter 'trainjliclasses' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTrainJliClasses() throws Exception {
+    final boolean trainjliclasses =
+        (boolean) rule.getVariableValueFromObject(mojo, "trainjliclasses");
+    assertTrue("trainjliclasses",
+        trainjliclasses);
+  }
+
+  /**
+   * Parameter 'trainorderresources' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTrainOrderResources() throws Exception {
+    final boolean trainorderresources =
+        (boolean) rule.getVariableValueFromObject(mojo, "trainorderresources");
+    assertTrue("trainorderresources",
+        trainorderresources);
+  }
+
+  /**
+   * Parameter 'classorderhistory' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasClassOrderHistory() throws Exception {
+    final File classorderhistory =
+        (File) rule.getVariableValueFromObject(mojo, "classorderhistory");
+    assertEquals("classorderhistory",
+        TestUtils.getCanonicalPath(classorderhistory),
+        TestUtils.getCanonicalPath(new File(project.getBasedir(),
+            "config/jlink/classorder"))
+    );
+  }
+
+  /**
+   * Parameter 'sizereport' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasSizeReport() throws Exception {
+    final boolean sizereport =
+        (boolean) rule.getVariableValueFromObject(mojo, "sizereport");
+    assertTrue("sizereport",
+        sizereport);
+  }
+
+  /**
+   * Parameter 'modulebudgets' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasModuleBudgets() throws Exception {
+    @SuppressWarnings("unchecked") // unchecked cast
+    final Map<String, String> modulebudgets = (Map<String, String>)
+        rule.getVariableValueFromObject(mojo, "modulebudgets");
+    assertEquals("modulebudgets",
+        modulebudgets.entrySet().stream()
+            .map(e -> e.getKey() + "=" + e.getValue())
+            .sorted()
+            .collect(Collectors.joining(":")),
+        "java.base=24M:mainModule=512K"
+    );
+  }
+
+  /**
+   * Parameter 'metrics' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasMetrics() throws Exception {
+    final boolean metrics =
+        (boolean) rule.getVariableValueFromObject(mojo, "metrics");
+    assertFalse("metrics",
+        metrics);
+  }
+
+  /**
+   * Parameter 'metricsprometheus' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasMetricsPrometheus() throws Exception {
+    final File metricsprometheus =
+        (File) rule.getVariableValueFromObject(mojo, "metricsprometheus");
+    assertEquals("metricsprometheus",
+        TestUtils.getCanonicalPath(metricsprometheus),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "jlink.prom"))
+    );
+  }
+
+  /**
+   * Parameter 'profile' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasProfile() throws Exception {
+    final boolean profile =
+        (boolean) rule.getVariableValueFromObject(mojo, "profile");
+    assertTrue("profile",
+        profile);
+  }
+
+  /**
+   * Parameter 'toollog' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasToolLog() throws Exception {
+    final File toollog =
+        (File) rule.getVariableValueFromObject(mojo, "toollog");
+    assertEquals("toollog",
+        TestUtils.getCanonicalPath(toollog),
+        TestUtils.getCanonicalPath(new File(project.getBuild().getDirectory(),
+            "jlink-output.log"))
+    );
+  }
+
+  /**
+   * Parameter 'timeout' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasTimeout() throws Exception {
+    final int timeout =
+        (int) rule.getVariableValueFromObject(mojo, "timeout");
+    assertEquals("timeout",
+        timeout,
+        600);
+  }
+
   /**
    * Parameter 'noheaderfiles' exists and has a value.
    *
@@ -897,6 +1344,79 @@ public class JlinkMojoTest {
     );
   }
 
+  /**
+   * Parameter 'compressionsweep' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasCompressionSweep() throws Exception {
+    final CompressionSweep compressionsweep = (CompressionSweep)
+        rule.getVariableValueFromObject(mojo, "compressionsweep");
+    assertNotNull("compressionsweep",
+        compressionsweep);
+  }
+
+  /**
+   * Parameter 'compressionsweep/levels' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasCompressionSweepLevels() throws Exception {
+    final CompressionSweep compressionsweep = (CompressionSweep)
+        rule.getVariableValueFromObject(mojo, "compressionsweep");
+    assertEquals("compressionsweep/levels",
+        compressionsweep.getLevels(),
+        Arrays.asList(Compression.ZIP_1, Compression.ZIP_6, Compression.ZIP_9)
+    );
+  }
+
+  /**
+   * Parameter 'compressionsweep/sizebudget' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasCompressionSweepSizeBudget() throws Exception {
+    final CompressionSweep compressionsweep = (CompressionSweep)
+        rule.getVariableValueFromObject(mojo, "compressionsweep");
+    assertEquals("compressionsweep/sizebudget",
+        compressionsweep.getSizeBudget(),
+        "64M"
+    );
+  }
+
+  /**
+   * Parameter 'compressionsweep/runs' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasCompressionSweepRuns() throws Exception {
+    final CompressionSweep compressionsweep = (CompressionSweep)
+        rule.getVariableValueFromObject(mojo, "compressionsweep");
+    assertEquals("compressionsweep/runs",
+        compressionsweep.getRuns(),
+        3
+    );
+  }
+
+  /**
+   * Parameter 'compressionsweep/marker' exists and has a value.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMojoHasCompressionSweepMarker() throws Exception {
+    final CompressionSweep compressionsweep = (CompressionSweep)
+        rule.getVariableValueFromObject(mojo, "compressionsweep");
+    assertEquals("compressionsweep/marker",
+        compressionsweep.getMarker(),
+        "^Ready"
+    );
+  }
+
   /**
    * Parameter 'includelocales' exists and has a value.
    *
@@ -0,0 +1,110 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ModuleDependencies Test Class.
+ *
+ * <p>
+ * The output is produced by "jdeps --multi-release 17 -verbose:class
+ * -filter:archive classes a-1.0.jar b-1.0.jar", where the classes
+ * of the project depend on a-1.0.jar and a-1.0.jar depends
+ * on b-1.0.jar, java.sql and java.logging.
+ * </p>
+ */
+public class ModuleDependenciesTest {
+
+  /**
+   * The output of the jdeps tool.
+   */
+  private static final String OUTPUT_FILE =
+      "target/test-classes/jdeps/verbose-class.txt";
+
+  /**
+   * The analyzed files and directories.
+   */
+  private static final List<String> TARGETS = List.of(
+      "/project/target/classes",
+      "/project/target/jlink/libs/a-1.0.jar",
+      "/project/target/jlink/libs/b-1.0.jar");
+
+  /**
+   * The output of the jdeps tool.
+   */
+  private String output;
+
+  /**
+   * Read the output of the jdeps tool.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    output = new String(Files.readAllBytes(Paths.get(OUTPUT_FILE)),
+        StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The analyzed jar files and directories are not modules.
+   */
+  @Test
+  public void testModules() {
+    assertEquals("modules", Set.of("java.base", "java.logging", "java.sql"),
+        ModuleDependencies.parse(output, TARGETS).getModules());
+  }
+
+  /**
+   * The jar files are not modules even if they are not analyzed.
+   */
+  @Test
+  public void testJarsAreNotModules() {
+    final Set<String> modules =
+        ModuleDependencies.parse(output, List.of()).getModules();
+    assertFalse("jar", modules.contains("b-1.0.jar"));
+    assertTrue("jdk module", modules.contains("java.sql"));
+  }
+
+  /**
+   * The report lists the archives and the classes pulling in the modules.
+   */
+  @Test
+  public void testReport() {
+    final List<String> report =
+        ModuleDependencies.parse(output, TARGETS).getReport();
+    assertEquals("header", "# Modules: java.base,java.logging,java.sql",
+        report.get(0));
+    final int sql = report.indexOf("java.sql");
+    assertTrue("java.sql", sql > 0);
+    assertEquals("archive", "  required by a-1.0.jar", report.get(sql + 1));
+    assertEquals("class", "    a.A -> java.sql.DriverManager",
+        report.get(sql + 2));
+    assertFalse("jar", report.contains("b-1.0.jar"));
+  }
+
+}
@@ -0,0 +1,366 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.module.InvalidModuleDescriptorException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.spi.ToolProvider;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.codehaus.plexus.languages.java.jpms.LocationManager;
+import org.codehaus.plexus.languages.java.jpms.ModuleNameSource;
+import org.codehaus.plexus.languages.java.jpms.ResolvePathsRequest;
+import org.codehaus.plexus.languages.java.jpms.ResolvePathsResult;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ModuleResolver Test Class.
+ *
+ * <p>
+ * The fixture project consists of the main module and the modular,
+ * the multi-release, the automatic (named by the manifest and by
+ * the filename) and the unused jars. The path elements must be split into
+ * the module path and the class path elements the same way as
+ * the plexus-java LocationManager does it.
+ * </p>
+ */
+public class ModuleResolverTest {
+
+  /**
+   * Offset of the major version in the class file.
+   */
+  private static final int MAJOR_VERSION_OFFSET = 7;
+
+  /**
+   * Temporary folder.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * The output directory of the main module.
+   */
+  private File outputDir;
+
+  /**
+   * The path elements, the output directory is the first one.
+   */
+  private List<File> paths;
+
+  /**
+   * Create the fixture project.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Before
+  public void setUp() throws Exception {
+    final Path libs = folder.newFolder("libs").toPath();
+    final Path libA = compile("lib.a",
+        "module lib.a { exports lib.a; }",
+        "lib/a/A.java", "package lib.a; public class A {}");
+    final Path libB = compile("lib.b",
+        "module lib.b { requires transitive lib.a; exports lib.b; }",
+        "lib/b/B.java", "package lib.b; public class B {}",
+        libA);
+    final Path libMr = compile("lib.mr",
+        "module lib.mr { exports lib.mr; }",
+        "lib/mr/Mr.java", "package lib.mr; public class Mr {}");
+    final Path libUnused = compile("lib.unused",
+        "module lib.unused {}",
+        "lib/unused/Unused.java", "package lib.unused; class Unused {}");
+    final Path auto = compile("auto", null,
+        "lib/auto/Auto.java", "package lib.auto; public class Auto {}");
+    final Path plain = compile("plain", null,
+        "plain/Plain.java", "package plain; public class Plain {}");
+    final File jarA = jar(libs.resolve("lib-a-1.0.jar"), libA, null, false);
+    final File jarB = jar(libs.resolve("lib-b-1.0.jar"), libB, null, false);
+    final File jarMr = jar(libs.resolve("lib-mr-1.0.jar"), libMr, null, true);
+    final File jarUnused =
+        jar(libs.resolve("lib-unused-1.0.jar"), libUnused, null, false);
+    final File jarAuto =
+        jar(libs.resolve("auto-lib-1.0.jar"), auto, "lib.auto", false);
+    final File jarPlain = jar(libs.resolve("plain-lib-2.3.jar"), plain, null,
+        false);
+    outputDir = compile("app",
+        "module app { requires lib.b; requires lib.mr; requires lib.auto;"
+        + " requires plain.lib; }",
+        "app/Main.java", "package app; public class Main {}",
+        jarA.toPath(), jarB.toPath(), libMr, jarAuto.toPath(),
+        jarPlain.toPath()).toFile();
+    paths = new ArrayList<>();
+    paths.add(outputDir);
+    paths.add(jarUnused);
+    paths.add(jarB);
+    paths.add(jarAuto);
+    paths.add(jarPlain);
+    paths.add(jarMr);
+    paths.add(jarA);
+  }
+
+  /**
+   * The module path and the class path elements are the same as
+   * the LocationManager resolves.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testSameSplitAsLocationManager() throws Exception {
+    final File descriptor = new File(outputDir, "module-info.class");
+    final ResolvePathsRequest<File> request =
+        ResolvePathsRequest.ofFiles(paths);
+    request.setMainModuleDescriptor(descriptor);
+    final ResolvePathsResult<File> expected =
+        new LocationManager().resolvePaths(request);
+    final ResolvePathsResult<File> actual =
+        new ModuleResolver(2, Runtime.version().feature(), null)
+            .resolvePaths(paths, descriptor);
+    assertEquals("main module",
+        expected.getMainModuleDescriptor().name(),
+        actual.getMainModuleDescriptor().name());
+    assertEquals("modulepath",
+        expected.getModulepathElements(), actual.getModulepathElements());
+    assertEquals("classpath",
+        new ArrayList<>(expected.getClasspathElements()),
+        new ArrayList<>(actual.getClasspathElements()));
+    assertEquals("path exceptions",
+        expected.getPathExceptions().keySet(),
+        actual.getPathExceptions().keySet());
+    assertEquals("modulepath size", 6, actual.getModulepathElements().size());
+    assertFalse("unsupported", ModuleResolver.isUnsupported(actual));
+  }
+
+  /**
+   * The module path and the class path elements are the same as
+   * the LocationManager resolves without the main module.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testSameSplitAsLocationManagerWithoutMainModule()
+      throws Exception {
+    final ResolvePathsResult<File> expected = new LocationManager()
+        .resolvePaths(ResolvePathsRequest.ofFiles(paths));
+    final ResolvePathsResult<File> actual =
+        new ModuleResolver(1, 0, null).resolvePaths(paths, null);
+    assertEquals("modulepath",
+        expected.getModulepathElements(), actual.getModulepathElements());
+    assertEquals("classpath",
+        new ArrayList<>(expected.getClasspathElements()),
+        new ArrayList<>(actual.getClasspathElements()));
+  }
+
+  /**
+   * The versioned module descriptor of the multi-release jar is selected
+   * by the release of the tool.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMultiReleaseIsResolvedForToolRelease() throws Exception {
+    final File descriptor = new File(outputDir, "module-info.class");
+    final File jarMr = paths.get(5);
+    assertEquals("release 11", ModuleNameSource.MODULEDESCRIPTOR,
+        new ModuleResolver(1, 11, null).resolvePaths(paths, descriptor)
+            .getModulepathElements().get(jarMr));
+    // the versioned descriptor is ignored, the name is derived
+    // from the filename
+    assertEquals("release 10", ModuleNameSource.FILENAME,
+        new ModuleResolver(1, 10, null).resolvePaths(paths, descriptor)
+            .getModulepathElements().get(jarMr));
+  }
+
+  /**
+   * The module descriptor of the multi-release jar indexed for the other
+   * release of the tool is not reused.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testMultiReleaseIsIndexedForToolRelease() throws Exception {
+    final File descriptor = new File(outputDir, "module-info.class");
+    final File jarMr = paths.get(5);
+    final DescriptorIndex index = new DescriptorIndex(
+        folder.getRoot().toPath().resolve("descriptors.properties"));
+    index.load();
+    assertEquals("release 11", ModuleNameSource.MODULEDESCRIPTOR,
+        new ModuleResolver(1, 11, index).resolvePaths(paths, descriptor)
+            .getModulepathElements().get(jarMr));
+    assertEquals("release 10", ModuleNameSource.FILENAME,
+        new ModuleResolver(1, 10, index).resolvePaths(paths, descriptor)
+            .getModulepathElements().get(jarMr));
+    assertEquals("release 11 again", ModuleNameSource.MODULEDESCRIPTOR,
+        new ModuleResolver(1, 11, index).resolvePaths(paths, descriptor)
+            .getModulepathElements().get(jarMr));
+  }
+
+  /**
+   * The module descriptor compiled for the newer Java release is reported
+   * as unsupported.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test
+  public void testNewerDescriptorIsUnsupported() throws Exception {
+    final Path newer = folder.newFolder("newer").toPath();
+    Files.copy(outputDir.toPath().resolve("module-info.class"),
+        newer.resolve("module-info.class"));
+    bumpMajorVersion(newer.resolve("module-info.class"));
+    final File jarNewer = jar(folder.getRoot().toPath().resolve("newer.jar"),
+        newer, null, false);
+    final List<File> elements = new ArrayList<>(paths);
+    elements.add(jarNewer);
+    final ResolvePathsResult<File> actual =
+        new ModuleResolver(1, 0, null).resolvePaths(elements,
+            new File(outputDir, "module-info.class"));
+    assertTrue("unsupported", ModuleResolver.isUnsupported(actual));
+  }
+
+  /**
+   * The main module descriptor compiled for the newer Java release
+   * can't be read.
+   *
+   * @throws Exception if any errors occurred
+   */
+  @Test(expected = InvalidModuleDescriptorException.class)
+  public void testNewerMainDescriptorFails() throws Exception {
+    final Path descriptor = folder.newFolder("main").toPath()
+        .resolve("module-info.class");
+    Files.copy(outputDir.toPath().resolve("module-info.class"), descriptor);
+    bumpMajorVersion(descriptor);
+    new ModuleResolver(1, 0, null).resolvePaths(paths, descriptor.toFile());
+  }
+
+  /**
+   * Compile the module.
+   *
+   * @param name the name of the output directory
+   * @param moduleInfo the source of the module descriptor, can be null
+   * @param className the path of the source of the class
+   * @param classSource the source of the class
+   * @param modulePath the module path elements
+   *
+   * @return the output directory
+   *
+   * @throws IOException if any errors occurred
+   */
+  private Path compile(final String name, final String moduleInfo,
+      final String className, final String classSource,
+      final Path... modulePath) throws IOException {
+    final Path src = folder.newFolder(name + "-src").toPath();
+    final Path out = folder.newFolder(name).toPath();
+    final List<String> args = new ArrayList<>();
+    args.add("-d");
+    args.add(out.toString());
+    if (modulePath.length > 0) {
+      args.add("--module-path");
+      args.add(Stream.of(modulePath).map(Path::toString)
+          .collect(Collectors.joining(File.pathSeparator)));
+    }
+    if (moduleInfo != null) {
+      final Path file = src.resolve("module-info.java");
+      Files.write(file, moduleInfo.getBytes(StandardCharsets.UTF_8));
+      args.add(file.toString());
+    }
+    final Path file = src.resolve(className);
+    Files.createDirectories(file.getParent());
+    Files.write(file, classSource.getBytes(StandardCharsets.UTF_8));
+    args.add(file.toString());
+    final int exitCode = ToolProvider.findFirst("javac").get()
+        .run(System.out, System.err, args.toArray(new String[0]));
+    assertEquals("javac " + name, 0, exitCode);
+    return out;
+  }
+
+  /**
+   * Create the jar file of the directory.
+   *
+   * @param jarFile the jar file
+   * @param dir the directory
+   * @param automaticModuleName the automatic module name, can be null
+   * @param multiRelease put the module descriptor into the versioned
+   *                     entries of the multi-release jar
+   *
+   * @return the jar file
+   *
+   * @throws IOException if any errors occurred
+   */
+  private static File jar(final Path jarFile, final Path dir,
+      final String automaticModuleName, final boolean multiRelease)
+      throws IOException {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (automaticModuleName != null) {
+      attributes.putValue("Automatic-Module-Name", automaticModuleName);
+    }
+    if (multiRelease) {
+      attributes.putValue("Multi-Release", "true");
+    }
+    final List<Path> files;
+    try (Stream<Path> stream = Files.walk(dir)) {
+      files = stream.filter(Files::isRegularFile).sorted()
+          .collect(Collectors.toList());
+    }
+    try (OutputStream out = Files.newOutputStream(jarFile);
+        JarOutputStream jar = new JarOutputStream(out, manifest)) {
+      for (final Path file : files) {
+        String entry = dir.relativize(file).toString()
+            .replace(File.separatorChar, '/');
+        if (multiRelease && "module-info.class".equals(entry)) {
+          entry = "META-INF/versions/11/" + entry;
+        }
+        jar.putNextEntry(new JarEntry(entry));
+        jar.write(Files.readAllBytes(file));
+        jar.closeEntry();
+      }
+    }
+    return jarFile.toFile();
+  }
+
+  /**
+   * Make the class file unsupported by the current JVM.
+   *
+   * @param classFile the class file
+   *
+   * @throws IOException if any errors occurred
+   */
+  private static void bumpMajorVersion(final Path classFile)
+      throws IOException {
+    final byte[] bytes = Files.readAllBytes(classFile);
+    bytes[MAJOR_VERSION_OFFSET] = (byte) (Runtime.version().feature() + 45);
+    Files.write(classFile, bytes);
+  }
+
+}
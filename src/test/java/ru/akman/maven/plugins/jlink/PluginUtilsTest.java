@@ -0,0 +1,47 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * PluginUtils Test Class.
+ */
+public class PluginUtilsTest {
+
+  /**
+   * The feature version is parsed from the release, the early access
+   * and the build version strings.
+   */
+  @Test
+  public void testFeatureVersion() {
+    assertEquals("release", 17, PluginUtils.getFeatureVersion("17.0.9"));
+    assertEquals("feature only", 9, PluginUtils.getFeatureVersion("9"));
+    assertEquals("early access", 21, PluginUtils.getFeatureVersion("21-ea"));
+    assertEquals("build", 21, PluginUtils.getFeatureVersion("21+35"));
+    assertEquals("full", 21,
+        PluginUtils.getFeatureVersion("21.0.1+12-LTS"));
+    assertEquals("vendor", 17,
+        PluginUtils.getFeatureVersion("17.0.9-internal"));
+    assertEquals("legacy", 1, PluginUtils.getFeatureVersion("1.8.0_292"));
+    assertEquals("blank", 0, PluginUtils.getFeatureVersion(" "));
+    assertEquals("null", 0, PluginUtils.getFeatureVersion(null));
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+  Copyright (C) 2020 - 2024 Alexander Kapitman
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package ru.akman.maven.plugins.jlink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.codehaus.plexus.languages.java.jpms.JavaModuleDescriptor;
+import org.junit.Test;
+
+/**
+ * ServiceBinder Test Class.
+ *
+ * <p>
+ * The module graph: the module "app" requires "lib.core" and uses
+ * "app.Plugin", the module "lib.core" requires "lib.util" and uses
+ * "core.Codec", which is provided by "codec.fast" and "codec.slow",
+ * the module "codec.fast" uses "util.Metrics", which is provided by
+ * "metrics.impl". The module "tool" is not required by anyone and uses
+ * "tool.Command", which is provided by "tool.impl".
+ * </p>
+ */
+public class ServiceBinderTest {
+
+  /**
+   * The module descriptors of the module path.
+   */
+  private static final List<JavaModuleDescriptor> DESCRIPTORS = List.of(
+      JavaModuleDescriptor.newModule("app")
+          .requires("lib.core")
+          .uses("app.Plugin")
+          .build(),
+      JavaModuleDescriptor.newModule("lib.core")
+          .requires("lib.util")
+          .uses("core.Codec")
+          .build(),
+      JavaModuleDescriptor.newModule("lib.util")
+          .build(),
+      JavaModuleDescriptor.newModule("plugin.a")
+          .requires("app")
+          .provides("app.Plugin", List.of("plugin.a.PluginA"))
+          .build(),
+      JavaModuleDescriptor.newModule("codec.fast")
+          .requires("lib.core")
+          .uses("util.Metrics")
+          .provides("core.Codec", List.of("codec.fast.FastCodec"))
+          .build(),
+      JavaModuleDescriptor.newModule("codec.slow")
+          .requires("lib.core")
+          .provides("core.Codec", List.of("codec.slow.SlowCodec"))
+          .build(),
+      JavaModuleDescriptor.newModule("metrics.impl")
+          .provides("util.Metrics", List.of("metrics.impl.MetricsImpl"))
+          .build(),
+      JavaModuleDescriptor.newModule("tool")
+          .uses("tool.Command")
+          .build(),
+      JavaModuleDescriptor.newModule("tool.impl")
+          .provides("tool.Command", List.of("tool.impl.CommandImpl"))
+          .build());
+
+  /**
+   * The services used by the root module, its dependencies and the bound
+   * providers are bound to all their providers.
+   */
+  @Test
+  public void testUsedServicesAreBound() {
+    final Map<String, List<String>> result =
+        new ServiceBinder(DESCRIPTORS, Map.of()).bind(List.of("app"));
+    assertEquals("services", List.of("app.Plugin", "core.Codec",
+        "util.Metrics"), new ArrayList<>(result.keySet()));
+    assertEquals("app.Plugin", List.of("plugin.a"), result.get("app.Plugin"));
+    assertEquals("core.Codec", List.of("codec.fast", "codec.slow"),
+        result.get("core.Codec"));
+    assertEquals("util.Metrics", List.of("metrics.impl"),
+        result.get("util.Metrics"));
+  }
+
+  /**
+   * The allow-list filters the providers and the services used only
+   * by the filtered out providers are not bound.
+   */
+  @Test
+  public void testAllowListFiltersProviders() {
+    final Map<String, List<String>> result = new ServiceBinder(DESCRIPTORS,
+        Map.of("core.Codec", List.of("codec.slow"))).bind(List.of("app"));
+    assertEquals("core.Codec", List.of("codec.slow"),
+        result.get("core.Codec"));
+    assertFalse("util.Metrics", result.containsKey("util.Metrics"));
+    assertEquals("app.Plugin", List.of("plugin.a"), result.get("app.Plugin"));
+  }
+
+  /**
+   * The known modules which don't provide the service are filtered out
+   * of the allow-list, the unknown modules are kept.
+   */
+  @Test
+  public void testAllowListOfUnknownModules() {
+    final String service = "java.nio.file.spi.FileSystemProvider";
+    final ServiceBinder binder = new ServiceBinder(DESCRIPTORS, Map.of(
+        service, List.of("jdk.zipfs", "lib.util"),
+        "core.Codec", List.of("codec.fast", "tool.impl")));
+    final Map<String, List<String>> result = binder.bind(List.of("app"));
+    assertEquals(service, List.of("jdk.zipfs"), result.get(service));
+    assertEquals("core.Codec", List.of("codec.fast"),
+        result.get("core.Codec"));
+    assertTrue("lib.util", binder.isNotProvider("lib.util", service));
+    assertFalse("jdk.zipfs", binder.isNotProvider("jdk.zipfs", service));
+  }
+
+  /**
+   * The services used by the modules which are not required by the root
+   * modules are not bound, unless the module is the root module.
+   */
+  @Test
+  public void testUnreachableServicesAreNotBound() {
+    assertFalse("app", new ServiceBinder(DESCRIPTORS, Map.of())
+        .bind(List.of("app")).containsKey("tool.Command"));
+    assertEquals("app and tool", List.of("tool.impl"),
+        new ServiceBinder(DESCRIPTORS, Map.of())
+            .bind(List.of("app", "tool")).get("tool.Command"));
+  }
+
+  /**
+   * The service specified by the allow-list is bound even if it is
+   * not used, the services used by its providers are bound too.
+   */
+  @Test
+  public void testUnusedServiceIsBound() {
+    final Map<String, List<String>> result = new ServiceBinder(DESCRIPTORS,
+        Map.of("core.Codec", List.of())).bind(List.of("lib.util"));
+    assertEquals("services", List.of("core.Codec", "util.Metrics"),
+        new ArrayList<>(result.keySet()));
+    assertEquals("core.Codec", List.of("codec.fast", "codec.slow"),
+        result.get("core.Codec"));
+  }
+
+}